@@ -0,0 +1,94 @@
+package com.splawrence.ecommercepro.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit that adapts to latency using a gradient between a
+ * long-term and the most recent round trip time.
+ * <p>
+ * While the latest requests are as fast as the long-term average the limit
+ * grows by roughly its square root; when they slow down (for example because
+ * the database is struggling) the limit shrinks in proportion, so excess
+ * requests are rejected instead of queueing on the connection pool.
+ */
+public class AdaptiveConcurrencyLimit {
+    private static final double LONG_RTT_SMOOTHING = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // limit updates are skipped rather than queued when another thread holds the lock
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile double limit;
+    private double longRttNanos;
+
+    /**
+     * @param initialLimit the starting limit
+     * @param minLimit     the limit never drops below this
+     * @param maxLimit     the limit never grows above this
+     * @param tolerance    how much slower than the long-term RTT a sample may be before the limit shrinks
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot if fewer requests than the current limit are in flight.
+     *
+     * @return true if the request may proceed, in which case {@link #release} must be called
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees a slot and feeds the request latency into the limit.
+     *
+     * @param rttNanos the time the request took
+     */
+    public void release(long rttNanos) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        if (rttNanos <= 0 || !updateLock.tryLock()) {
+            return;
+        }
+        try {
+            longRttNanos = longRttNanos == 0
+                    ? rttNanos
+                    : longRttNanos * (1 - LONG_RTT_SMOOTHING) + rttNanos * LONG_RTT_SMOOTHING;
+            double current = limit;
+            // don't grow the limit when the service isn't using it
+            if (inFlightAtCompletion < current / 2 && rttNanos <= longRttNanos * tolerance) {
+                return;
+            }
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / rttNanos));
+            double target = current * gradient + Math.sqrt(current);
+            double next = current * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
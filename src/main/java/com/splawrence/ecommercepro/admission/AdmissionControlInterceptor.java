@@ -0,0 +1,108 @@
+package com.splawrence.ecommercepro.admission;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import com.splawrence.ecommercepro.config.AdmissionControlProperties;
+import com.splawrence.ecommercepro.exception.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Applies a separate adaptive concurrency limit to each {@link BulkheadGroup}
+ * and rejects requests over the limit with a 503 before they reach a
+ * controller.
+ */
+@Component
+@Slf4j
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private record Permit(BulkheadGroup group, long startNanos) {
+    }
+
+    private final boolean enabled;
+    private final int retryAfterSeconds;
+    private final Map<BulkheadGroup, AdaptiveConcurrencyLimit> limits = new EnumMap<>(BulkheadGroup.class);
+    private final Map<BulkheadGroup, Counter> rejections = new EnumMap<>(BulkheadGroup.class);
+
+    public AdmissionControlInterceptor(AdmissionControlProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.retryAfterSeconds = properties.getRetryAfterSeconds();
+        for (BulkheadGroup group : BulkheadGroup.values()) {
+            AdmissionControlProperties.Limits bounds = properties.limitsFor(group.key());
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(bounds.getInitialLimit(),
+                    bounds.getMinLimit(), bounds.getMaxLimit(), properties.getTolerance());
+            limits.put(group, limit);
+            rejections.put(group, Counter.builder("ecommercepro.admission.rejected")
+                    .description("Requests rejected by admission control")
+                    .tag("group", group.key())
+                    .register(meterRegistry));
+            Gauge.builder("ecommercepro.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("group", group.key())
+                    .register(meterRegistry);
+            Gauge.builder("ecommercepro.admission.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Requests currently admitted")
+                    .tag("group", group.key())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!enabled || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        BulkheadGroup group = groupOf(handlerMethod, request);
+        if (!limits.get(group).tryAcquire()) {
+            rejections.get(group).increment();
+            log.debug("AdmissionControlInterceptor rejected {} {} in group {}", request.getMethod(),
+                    request.getRequestURI(), group);
+            throw new ServiceOverloadedException("Too many concurrent " + group.key() + " requests",
+                    retryAfterSeconds);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(group, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        // long-lived async requests hold no slot and give no useful latency sample
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            limits.get(permit.group()).release(0);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            limits.get(permit.group()).release(System.nanoTime() - permit.startNanos());
+        }
+    }
+
+    AdaptiveConcurrencyLimit limitFor(BulkheadGroup group) {
+        return limits.get(group);
+    }
+
+    private static BulkheadGroup groupOf(HandlerMethod handlerMethod, HttpServletRequest request) {
+        Bulkhead bulkhead = handlerMethod.getMethodAnnotation(Bulkhead.class);
+        if (bulkhead != null) {
+            return bulkhead.value();
+        }
+        return "GET".equals(request.getMethod()) ? BulkheadGroup.LIST : BulkheadGroup.WRITE;
+    }
+}
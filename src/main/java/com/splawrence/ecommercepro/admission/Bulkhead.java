@@ -0,0 +1,17 @@
+package com.splawrence.ecommercepro.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assigns a controller method to a bulkhead group. Methods without this
+ * annotation are assigned to {@link BulkheadGroup#LIST} for GET requests and
+ * {@link BulkheadGroup#WRITE} otherwise.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+    BulkheadGroup value();
+}
@@ -0,0 +1,23 @@
+package com.splawrence.ecommercepro.admission;
+
+/**
+ * The endpoint groups that each get their own concurrency limit, so slow
+ * scans cannot starve cheap point reads or writes.
+ */
+public enum BulkheadGroup {
+    /** Collection reads, searches and change feeds. */
+    LIST,
+    /** Lookups by id: a single row, a bounded batch of ids, or the items of one order. */
+    POINT_READ,
+    /** POST, PUT and DELETE requests. */
+    WRITE,
+    /** Bulk imports, set-based updates and report scans that run for seconds or minutes. */
+    BULK;
+
+    /**
+     * @return the name used in configuration and metric tags
+     */
+    public String key() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,39 @@
+package com.splawrence.ecommercepro.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Per-group concurrency limits for admission control, bound from
+ * {@code ecommercepro.admission}.
+ */
+@Data
+@ConfigurationProperties(prefix = "ecommercepro.admission")
+public class AdmissionControlProperties {
+    private boolean enabled = true;
+    private int retryAfterSeconds = 1;
+    private double tolerance = 2.0;
+    private Map<String, Limits> groups = new HashMap<>();
+
+    /**
+     * The bounds for one group's adaptive limit.
+     */
+    @Data
+    public static class Limits {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+    }
+
+    /**
+     * @param group the bulkhead group key
+     * @return the configured limits, or the defaults if none are configured
+     */
+    public Limits limitsFor(String group) {
+        return groups.getOrDefault(group, new Limits());
+    }
+}
@@ -0,0 +1,34 @@
+package com.splawrence.ecommercepro.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Registers CBOR ({@code application/cbor}) and Smile
+ * ({@code application/x-jackson-smile}) alongside JSON, so clients can pick a
+ * binary format with the Accept and Content-Type headers. Both use the same
+ * Jackson settings as the JSON converter.
+ */
+@Configuration
+public class ContentNegotiationConfig {
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    return new MappingJackson2CborHttpMessageConverter(
+        objectMapperBuilder.factory(new CBORFactory()).build());
+  }
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+      Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    return new MappingJackson2SmileHttpMessageConverter(
+        objectMapperBuilder.factory(new SmileFactory()).build());
+  }
+}
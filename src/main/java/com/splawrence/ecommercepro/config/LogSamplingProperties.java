@@ -0,0 +1,24 @@
+package com.splawrence.ecommercepro.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Per-endpoint debug log sampling rates, bound from
+ * {@code ecommercepro.logging.sampling}.
+ */
+@Data
+@ConfigurationProperties(prefix = "ecommercepro.logging.sampling")
+public class LogSamplingProperties {
+    private boolean enabled = true;
+    private double defaultRate = 1.0;
+    /**
+     * Rates from 0 to 1 keyed by {@code Controller.method} or by
+     * {@code Controller} for all of its methods.
+     */
+    private Map<String, Double> rates = new HashMap<>();
+}
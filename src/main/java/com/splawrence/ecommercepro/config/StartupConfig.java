@@ -0,0 +1,33 @@
+package com.splawrence.ecommercepro.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Startup hooks for the fast-startup build.
+ * <p>
+ * The class data sharing archive is produced by a training run that starts
+ * the context and exits once it is refreshed, without a database. Spring AOT
+ * fixes at build time that Flyway is present, so the training run skips the
+ * migration here instead of through {@code spring.flyway.enabled}.
+ */
+@Slf4j
+@Configuration
+public class StartupConfig {
+
+  @Bean
+  public FlywayMigrationStrategy flywayMigrationStrategy(
+      @Value("${ecommercepro.startup.training-run:false}") boolean trainingRun) {
+    return flyway -> {
+      if (trainingRun) {
+        log.info("StartupConfig skipping Flyway migration during the training run");
+        return;
+      }
+      flyway.migrate();
+    };
+  }
+}
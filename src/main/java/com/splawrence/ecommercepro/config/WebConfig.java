@@ -0,0 +1,29 @@
+package com.splawrence.ecommercepro.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.splawrence.ecommercepro.admission.AdmissionControlInterceptor;
+import com.splawrence.ecommercepro.logging.RequestLogSampler;
+
+@Configuration
+@EnableConfigurationProperties({ AdmissionControlProperties.class, LogSamplingProperties.class })
+public class WebConfig implements WebMvcConfigurer {
+
+  private final AdmissionControlInterceptor admissionControlInterceptor;
+  private final RequestLogSampler requestLogSampler;
+
+  public WebConfig(AdmissionControlInterceptor admissionControlInterceptor, RequestLogSampler requestLogSampler) {
+    this.admissionControlInterceptor = admissionControlInterceptor;
+    this.requestLogSampler = requestLogSampler;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    // first, so admission control's own debug logging is sampled too
+    registry.addInterceptor(requestLogSampler).addPathPatterns("/api/**");
+    registry.addInterceptor(admissionControlInterceptor).addPathPatterns("/api/**");
+  }
+}
@@ -1,20 +1,38 @@
 package com.splawrence.ecommercepro.controller;
 
+import com.splawrence.ecommercepro.exception.IdempotencyConflictException;
+import com.splawrence.ecommercepro.exception.IdempotencyKeyReusedException;
+import com.splawrence.ecommercepro.exception.InsufficientStockException;
 import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.exception.ServiceOverloadedException;
 import com.splawrence.ecommercepro.model.ErrorMessage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice
 public class ExceptionHandlerController extends ResponseEntityExceptionHandler {
 
+  /**
+   * Write 404 and 400 bodies directly with {@link FastErrorBody} instead of
+   * through an {@link ErrorMessage} and Jackson, for clients that accept JSON.
+   */
+  @Value("${ecommercepro.errors.fast:false}")
+  private boolean fast;
+
   /**
    * Handles the ResourceNotFoundException and returns a ResponseEntity with an ErrorMessage.
    *
@@ -26,7 +44,10 @@ public class ExceptionHandlerController extends ResponseEntityExceptionHandler {
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public ResponseEntity<ErrorMessage> resourceNotFoundException(
       ResourceNotFoundException ex,
-      WebRequest request) {
+      WebRequest request) throws IOException {
+    if (writeFast(request, 404, ex.getDetail(), ex.getId())) {
+      return null;
+    }
     ErrorMessage errorMessage = new ErrorMessage(
         404,
         LocalDateTime.now(),
@@ -46,7 +67,10 @@ public class ExceptionHandlerController extends ResponseEntityExceptionHandler {
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   public ResponseEntity<ErrorMessage> badRequestException(
       BadRequestException ex,
-      WebRequest request) {
+      WebRequest request) throws IOException {
+    if (writeFast(request, 400, String.valueOf(ex.getMessage()), null)) {
+      return null;
+    }
     ErrorMessage errorMessage = new ErrorMessage(
         400,
         LocalDateTime.now(),
@@ -55,6 +79,89 @@ public class ExceptionHandlerController extends ResponseEntityExceptionHandler {
     return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
   }
 
+  /**
+   * Handles the IdempotencyConflictException and returns a ResponseEntity with an ErrorMessage.
+   *
+   * @param ex      The IdempotencyConflictException that was thrown.
+   * @param request The WebRequest object containing the request details.
+   * @return A ResponseEntity containing an ErrorMessage and HttpStatus.CONFLICT.
+   */
+  @ExceptionHandler(IdempotencyConflictException.class)
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public ResponseEntity<ErrorMessage> idempotencyConflictException(
+      IdempotencyConflictException ex,
+      WebRequest request) {
+    ErrorMessage errorMessage = new ErrorMessage(
+        409,
+        LocalDateTime.now(),
+        ex.getMessage(),
+        request.getDescription(false));
+    return new ResponseEntity<>(errorMessage, HttpStatus.CONFLICT);
+  }
+
+  /**
+   * Handles the IdempotencyKeyReusedException and returns a ResponseEntity with an ErrorMessage.
+   *
+   * @param ex      The IdempotencyKeyReusedException that was thrown.
+   * @param request The WebRequest object containing the request details.
+   * @return A ResponseEntity containing an ErrorMessage and HttpStatus.UNPROCESSABLE_ENTITY.
+   */
+  @ExceptionHandler(IdempotencyKeyReusedException.class)
+  @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+  public ResponseEntity<ErrorMessage> idempotencyKeyReusedException(
+      IdempotencyKeyReusedException ex,
+      WebRequest request) {
+    ErrorMessage errorMessage = new ErrorMessage(
+        422,
+        LocalDateTime.now(),
+        ex.getMessage(),
+        request.getDescription(false));
+    return new ResponseEntity<>(errorMessage, HttpStatus.UNPROCESSABLE_ENTITY);
+  }
+
+  /**
+   * Handles the InsufficientStockException and returns a ResponseEntity with an ErrorMessage.
+   *
+   * @param ex      The InsufficientStockException that was thrown.
+   * @param request The WebRequest object containing the request details.
+   * @return A ResponseEntity containing an ErrorMessage and HttpStatus.CONFLICT.
+   */
+  @ExceptionHandler(InsufficientStockException.class)
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public ResponseEntity<ErrorMessage> insufficientStockException(
+      InsufficientStockException ex,
+      WebRequest request) {
+    ErrorMessage errorMessage = new ErrorMessage(
+        409,
+        LocalDateTime.now(),
+        ex.getMessage(),
+        request.getDescription(false));
+    return new ResponseEntity<>(errorMessage, HttpStatus.CONFLICT);
+  }
+
+  /**
+   * Handles the ServiceOverloadedException and returns a ResponseEntity with an ErrorMessage and a
+   * Retry-After header.
+   *
+   * @param ex      The ServiceOverloadedException that was thrown.
+   * @param request The WebRequest object containing the request details.
+   * @return A ResponseEntity containing an ErrorMessage and HttpStatus.SERVICE_UNAVAILABLE.
+   */
+  @ExceptionHandler(ServiceOverloadedException.class)
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public ResponseEntity<ErrorMessage> serviceOverloadedException(
+      ServiceOverloadedException ex,
+      WebRequest request) {
+    ErrorMessage errorMessage = new ErrorMessage(
+        503,
+        LocalDateTime.now(),
+        ex.getMessage(),
+        request.getDescription(false));
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+        .body(errorMessage);
+  }
+
   /**
    * Handles exceptions thrown by the controller.
    *
@@ -73,4 +180,27 @@ public class ExceptionHandlerController extends ResponseEntityExceptionHandler {
         request.getDescription(false));
     return new ResponseEntity<>(errorMessage, HttpStatus.INTERNAL_SERVER_ERROR);
   }
+
+  /**
+   * Writes the error body directly if fast errors are on and the client
+   * accepts JSON. Returning null from the handler then tells Spring MVC the
+   * response is complete.
+   *
+   * @return true if the response was written
+   */
+  private boolean writeFast(WebRequest request, int status, String message, Object id) throws IOException {
+    if (!fast || !(request instanceof ServletWebRequest servletWebRequest)) {
+      return false;
+    }
+    HttpServletRequest servletRequest = servletWebRequest.getRequest();
+    HttpServletResponse response = servletWebRequest.getResponse();
+    String accept = servletRequest.getHeader(HttpHeaders.ACCEPT);
+    if (response == null || accept != null && !accept.contains("json") && !accept.contains("*/*")) {
+      return false;
+    }
+    response.setStatus(status);
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    FastErrorBody.write(response.getOutputStream(), status, message, id, servletRequest.getRequestURI());
+    return true;
+  }
 }
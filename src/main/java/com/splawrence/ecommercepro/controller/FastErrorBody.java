@@ -0,0 +1,132 @@
+package com.splawrence.ecommercepro.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Writes an {@code ErrorMessage} as JSON straight to a stream, with the same
+ * fields Jackson writes, for the high-volume 404 and 400 responses.
+ * <p>
+ * The constant parts of the body are pre-rendered bytes and the timestamp is
+ * rendered at most once per second, so a body costs one buffer sized for the
+ * message and request URI instead of an {@code ErrorMessage}, a
+ * {@code LocalDateTime}, a description string and a Jackson generator.
+ */
+public final class FastErrorBody {
+  private static final byte[] STATUS_CODE = ascii("{\"statusCode\":");
+  private static final byte[] TIMESTAMP = ascii(",\"timestamp\":\"");
+  private static final byte[] MESSAGE = ascii("\",\"message\":\"");
+  private static final byte[] DESCRIPTION = ascii("\",\"description\":\"uri=");
+  private static final byte[] END = ascii("\"}");
+  private static final byte[] HEX = ascii("0123456789abcdef");
+  // a JSON escape of one UTF-16 char is at most 6 bytes
+  private static final int MAX_BYTES_PER_CHAR = 6;
+
+  private static volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, new byte[0]);
+
+  private FastErrorBody() {
+  }
+
+  /**
+   * @param status  the HTTP status code
+   * @param message the message, or its start if {@code id} is not null
+   * @param id      appended to the message unless null
+   * @param uri     the request URI
+   */
+  public static void write(OutputStream out, int status, String message, Object id, String uri)
+      throws IOException {
+    String idText = id == null ? "" : id.toString();
+    byte[] time = timestamp().iso;
+    byte[] buffer = new byte[STATUS_CODE.length + 3 + TIMESTAMP.length + time.length + MESSAGE.length
+        + DESCRIPTION.length + END.length
+        + MAX_BYTES_PER_CHAR * (message.length() + idText.length() + uri.length())];
+    int position = put(buffer, 0, STATUS_CODE);
+    position = putStatus(buffer, position, status);
+    position = put(buffer, position, TIMESTAMP);
+    position = put(buffer, position, time);
+    position = put(buffer, position, MESSAGE);
+    position = putEscaped(buffer, position, message);
+    position = putEscaped(buffer, position, idText);
+    position = put(buffer, position, DESCRIPTION);
+    position = putEscaped(buffer, position, uri);
+    position = put(buffer, position, END);
+    out.write(buffer, 0, position);
+  }
+
+  private static Timestamp timestamp() {
+    long second = System.currentTimeMillis() / 1000;
+    Timestamp current = timestamp;
+    if (current.second != second) {
+      // racing threads render the same second, whichever is kept
+      current = new Timestamp(second, ascii(
+          DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))));
+      timestamp = current;
+    }
+    return current;
+  }
+
+  private static int put(byte[] buffer, int position, byte[] bytes) {
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    return position + bytes.length;
+  }
+
+  private static int putStatus(byte[] buffer, int position, int status) {
+    buffer[position] = (byte) ('0' + status / 100);
+    buffer[position + 1] = (byte) ('0' + status / 10 % 10);
+    buffer[position + 2] = (byte) ('0' + status % 10);
+    return position + 3;
+  }
+
+  /**
+   * Writes the text as the UTF-8 of a JSON string's content.
+   */
+  private static int putEscaped(byte[] buffer, int position, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        buffer[position++] = '\\';
+        buffer[position++] = (byte) c;
+      } else if (c < 0x20) {
+        buffer[position++] = '\\';
+        buffer[position++] = 'u';
+        buffer[position++] = '0';
+        buffer[position++] = '0';
+        buffer[position++] = HEX[c >> 4];
+        buffer[position++] = HEX[c & 0xf];
+      } else if (c < 0x80) {
+        buffer[position++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[position++] = (byte) (0xc0 | c >> 6);
+        buffer[position++] = (byte) (0x80 | c & 0x3f);
+      } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, text.charAt(++i));
+        buffer[position++] = (byte) (0xf0 | codePoint >> 18);
+        buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+        buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+        buffer[position++] = (byte) (0x80 | codePoint & 0x3f);
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogate, written as the replacement character
+        buffer[position++] = (byte) 0xef;
+        buffer[position++] = (byte) 0xbf;
+        buffer[position++] = (byte) 0xbd;
+      } else {
+        buffer[position++] = (byte) (0xe0 | c >> 12);
+        buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+        buffer[position++] = (byte) (0x80 | c & 0x3f);
+      }
+    }
+    return position;
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private record Timestamp(long second, byte[] iso) {
+  }
+}
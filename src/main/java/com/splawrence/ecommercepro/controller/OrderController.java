@@ -2,9 +2,12 @@ package com.splawrence.ecommercepro.controller;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,19 +15,43 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.splawrence.ecommercepro.admission.Bulkhead;
+import com.splawrence.ecommercepro.admission.BulkheadGroup;
 import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.logging.LogSummary;
+import com.splawrence.ecommercepro.model.ChangeSet;
+import com.splawrence.ecommercepro.model.CountMode;
+import com.splawrence.ecommercepro.model.MultiGetResult;
 import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderDetail;
+import com.splawrence.ecommercepro.model.OrderStatusEvent;
+import com.splawrence.ecommercepro.model.OrderWithItemsRequest;
+import com.splawrence.ecommercepro.model.TotalCount;
+import com.splawrence.ecommercepro.repository.FieldProjectionRepository;
 import com.splawrence.ecommercepro.repository.OrderRepository;
+import com.splawrence.ecommercepro.service.ChangeFeedService;
+import com.splawrence.ecommercepro.service.IdempotencyService;
+import com.splawrence.ecommercepro.service.MultiGetService;
+import com.splawrence.ecommercepro.service.OrderCheckoutService;
+import com.splawrence.ecommercepro.service.OrderDetailCache;
+import com.splawrence.ecommercepro.service.OrderStatusPublisher;
+import com.splawrence.ecommercepro.service.OrderStatusWriteBehind;
+import com.splawrence.ecommercepro.service.RequestCoalescer;
+import com.splawrence.ecommercepro.service.TotalCountService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
@@ -35,10 +62,48 @@ public class OrderController {
 
         private OrderRepository orderRepository;
 
+        private ChangeFeedService changeFeedService;
+
+        private IdempotencyService idempotencyService;
+
+        private RequestCoalescer requestCoalescer;
+
+        private MultiGetService multiGetService;
+
+        private FieldProjectionRepository fieldProjectionRepository;
+
+        private OrderStatusPublisher orderStatusPublisher;
+
+        private OrderStatusWriteBehind orderStatusWriteBehind;
+
+        private OrderCheckoutService orderCheckoutService;
+
+        private OrderDetailCache orderDetailCache;
+
+        private TotalCountService totalCountService;
+
+        @Value("${ecommercepro.order-status-stream.max-orders-per-subscription:100}")
+        private int maxOrdersPerSubscription = 100;
+
         private static final String ORDER_ITEM_NOT_FOUND_ERROR = "Order not found for Order Id: ";
 
-        public OrderController(OrderRepository orderRepository) {
+        public OrderController(OrderRepository orderRepository, ChangeFeedService changeFeedService,
+                        IdempotencyService idempotencyService, RequestCoalescer requestCoalescer,
+                        MultiGetService multiGetService, FieldProjectionRepository fieldProjectionRepository,
+                        OrderStatusPublisher orderStatusPublisher, OrderStatusWriteBehind orderStatusWriteBehind,
+                        OrderCheckoutService orderCheckoutService, OrderDetailCache orderDetailCache,
+                        TotalCountService totalCountService) {
                 this.orderRepository = orderRepository;
+                this.changeFeedService = changeFeedService;
+                this.idempotencyService = idempotencyService;
+                this.requestCoalescer = requestCoalescer;
+                this.multiGetService = multiGetService;
+                this.fieldProjectionRepository = fieldProjectionRepository;
+                this.orderStatusPublisher = orderStatusPublisher;
+                this.orderStatusWriteBehind = orderStatusWriteBehind;
+                this.orderCheckoutService = orderCheckoutService;
+                this.orderDetailCache = orderDetailCache;
+                this.totalCountService = totalCountService;
         }
 
         @Operation(summary = "Get all Orders")
@@ -50,7 +115,89 @@ public class OrderController {
         public List<Order> getOrders() {
                 log.debug("OrderController.getOrders called");
 
-                return orderRepository.findAll();
+                return orderStatusWriteBehind.overlay(orderRepository.findAll());
+        }
+
+        @Operation(summary = "Get one page of Orders ordered by Id, with the total number of Orders in the X-Total-Count header. count=exact, cached, estimate or auto chooses how it is counted; X-Total-Count-Mode says which was used.")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "One page of Orders", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = Order[].class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad page, size or count mode supplied", content = @Content) })
+        @GetMapping(params = { "page", "!ids", "!fields" })
+        @ResponseStatus(HttpStatus.OK)
+        public List<Order> getOrdersPage(@RequestParam int page, @RequestParam(defaultValue = "50") int size,
+                        @RequestParam(defaultValue = "auto") String count, HttpServletResponse response)
+                        throws BadRequestException {
+                log.debug("OrderController.getOrdersPage called with page: {} size: {} count: {}", page, size, count);
+
+                CountMode mode = CountMode.fromValue(count);
+                List<Order> orders = orderRepository.findAllBy(totalCountService.page(page, size)).getContent();
+                TotalCount total = totalCountService.count(ChangeFeedService.ORDERS, mode);
+                response.setHeader(TotalCountService.HEADER, Long.toString(total.getCount()));
+                response.setHeader(TotalCountService.MODE_HEADER, total.getMode().getLabel());
+                return orderStatusWriteBehind.overlay(orders);
+        }
+
+        @Operation(summary = "Get Orders changed or deleted since a cursor, ordered by updated timestamp and Id")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Orders changed since the cursor", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = ChangeSet.class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad cursor or limit supplied", content = @Content), })
+        @GetMapping("/changes")
+        @ResponseStatus(HttpStatus.OK)
+        public ChangeSet<Order> getOrderChanges(@RequestParam(required = false) String since,
+                        @RequestParam(required = false) Integer limit) throws BadRequestException {
+                log.debug("OrderController.getOrderChanges called with cursor: {} and limit: {}", since, limit);
+
+                // the feed pages by the updated timestamp a flush writes, so it cannot overlay the buffer
+                orderStatusWriteBehind.flushBeforeRead();
+                return changeFeedService.changesSince(ChangeFeedService.ORDERS, since, limit,
+                                orderRepository::findChangedSince, orderRepository::findChangedBetween);
+        }
+
+        @Operation(summary = "Get many Orders by Id in one call, in the order requested")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Orders found and Ids not found", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class)), }),
+                        @ApiResponse(responseCode = "400", description = "No Ids or too many Ids supplied", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
+        @GetMapping(params = "ids")
+        @ResponseStatus(HttpStatus.OK)
+        public MultiGetResult<Order> getOrdersByIds(@RequestParam List<Long> ids) throws BadRequestException {
+                log.debug("OrderController.getOrdersByIds called with Order Ids: {}", LogSummary.of(ids));
+
+                return multiGetService.findAll(ids,
+                                requested -> orderStatusWriteBehind.overlay(orderRepository.findAllById(requested)));
+        }
+
+        @Operation(summary = "Get all Orders with only the requested fields, e.g. ?fields=id,quantity,product.description")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "All available Orders", content = @Content),
+                        @ApiResponse(responseCode = "400", description = "Unknown field supplied", content = @Content), })
+        @GetMapping(params = { "fields", "!ids" })
+        @ResponseStatus(HttpStatus.OK)
+        public List<Map<String, Object>> getOrdersWithFields(@RequestParam List<String> fields)
+                        throws BadRequestException {
+                log.debug("OrderController.getOrdersWithFields called with fields: {}", fields);
+
+                orderStatusWriteBehind.flushBeforeRead();
+                return fieldProjectionRepository.findAll(Order.class, fields);
+        }
+
+        @Operation(summary = "Stream status changes for one or more Orders as Server-Sent Events. The current status of each Order is sent first.")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Stream of order-status events", content = {
+                        @Content(mediaType = "text/event-stream", schema = @Schema(implementation = OrderStatusEvent.class)), }),
+                        @ApiResponse(responseCode = "400", description = "No Order Ids or too many Order Ids supplied", content = @Content), })
+        @GetMapping(value = "/status-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public SseEmitter streamOrderStatus(@RequestParam List<Long> ids) throws BadRequestException {
+                log.debug("OrderController.streamOrderStatus called with Order Ids: {}", LogSummary.of(ids));
+
+                if (ids.isEmpty() || ids.size() > maxOrdersPerSubscription) {
+                        throw new BadRequestException(
+                                        "Between 1 and " + maxOrdersPerSubscription + " Order Ids must be supplied");
+                }
+                // read the current statuses only once subscribed, so a change made in between is not lost
+                return orderStatusPublisher.subscribe(ids,
+                                () -> orderStatusWriteBehind.overlay(orderRepository.findAllById(ids))
+                                                .stream()
+                                                .map(OrderStatusEvent::of)
+                                                .toList());
         }
 
         @Operation(summary = "Get an Order by Id")
@@ -58,28 +205,90 @@ public class OrderController {
                         @Content(mediaType = "application/json", schema = @Schema(implementation = Order.class)), }),
                         @ApiResponse(responseCode = "400", description = "Bad Order Id supplied", content = @Content),
                         @ApiResponse(responseCode = "404", description = "Order not found", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
         @GetMapping("/{id}")
         @ResponseStatus(HttpStatus.OK)
         public Order getOrderById(@PathVariable @NonNull Long id) throws ResourceNotFoundException {
                 log.debug("OrderController.getOrderById called with Order Id: {}", id);
 
-                return orderRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException(
-                                ORDER_ITEM_NOT_FOUND_ERROR + id));
+                return requestCoalescer.execute(ChangeFeedService.ORDERS, id, () -> orderRepository.findById(id))
+                                .map(orderStatusWriteBehind::overlay)
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
+        }
+
+        @Operation(summary = "Get an Order by Id with its OrderItems, total quantity and total price")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Order found", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = OrderDetail.class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad Order Id supplied", content = @Content),
+                        @ApiResponse(responseCode = "404", description = "Order not found", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
+        @GetMapping("/{id}/detail")
+        @ResponseStatus(HttpStatus.OK)
+        public OrderDetail getOrderDetailById(@PathVariable @NonNull Long id) throws ResourceNotFoundException {
+                log.debug("OrderController.getOrderDetailById called with Order Id: {}", id);
+
+                OrderDetail detail = orderDetailCache.get(id)
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
+                // the cached detail is shared, so show a buffered status on a copy
+                Order order = orderStatusWriteBehind.overlay(detail.getOrder());
+                return order == detail.getOrder() ? detail
+                                : new OrderDetail(order, detail.getItems(), detail.getTotalQuantity(), detail.getTotal());
         }
 
-        @Operation(summary = "Save an Order")
+        @Operation(summary = "Get an Order by Id with only the requested fields")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Order found", content = @Content),
+                        @ApiResponse(responseCode = "400", description = "Unknown field supplied", content = @Content),
+                        @ApiResponse(responseCode = "404", description = "Order not found", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
+        @GetMapping(value = "/{id}", params = "fields")
+        @ResponseStatus(HttpStatus.OK)
+        public Map<String, Object> getOrderByIdWithFields(@PathVariable @NonNull Long id,
+                        @RequestParam List<String> fields) throws ResourceNotFoundException, BadRequestException {
+                log.debug("OrderController.getOrderByIdWithFields called with Order Id: {} and fields: {}", id, fields);
+
+                orderStatusWriteBehind.flushBeforeRead(id);
+                return fieldProjectionRepository.findById(Order.class, id, fields)
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
+        }
+
+        @Operation(summary = "Save an Order. Retries carrying the same Idempotency-Key header replay the original response.")
         @ApiResponses(value = { @ApiResponse(responseCode = "201", description = "Order saved", content = {
                         @Content(mediaType = "application/json", schema = @Schema(implementation = Order.class)), }),
                         @ApiResponse(responseCode = "400", description = "Bad Order supplied", content = @Content), })
         @PostMapping
         @ResponseStatus(HttpStatus.CREATED)
-        public Order postOrder(@Valid @RequestBody Order order) throws BadRequestException {
-                log.debug("OrderController.postOrder called with Order: {}", order);
+        public Order postOrder(@Valid @RequestBody Order order,
+                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+                        throws BadRequestException {
+                log.debug("OrderController.postOrder called with Order: {}", LogSummary.of(order));
 
-                order.setCreated(LocalDateTime.now());
-                order.setUpdated(LocalDateTime.now());
+                return idempotencyService.execute(IdempotencyService.ORDERS, idempotencyKey, order, Order.class, () -> {
+                        order.setCreated(LocalDateTime.now());
+                        order.setUpdated(LocalDateTime.now());
 
-                return orderRepository.save(order);
+                        Order savedOrder = orderRepository.save(order);
+                        orderStatusPublisher.publish(OrderStatusEvent.of(savedOrder));
+                        return savedOrder;
+                });
+        }
+
+        @Operation(summary = "Save an Order together with its OrderItems in one transaction, reserving stock for every item. Retries carrying the same Idempotency-Key header replay the original response.")
+        @ApiResponses(value = { @ApiResponse(responseCode = "201", description = "Order and OrderItems saved, with totals", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = OrderDetail.class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad Order or OrderItems supplied", content = @Content),
+                        @ApiResponse(responseCode = "404", description = "Product not found", content = @Content),
+                        @ApiResponse(responseCode = "409", description = "Not enough Product stock", content = @Content), })
+        @PostMapping("/with-items")
+        @ResponseStatus(HttpStatus.CREATED)
+        public OrderDetail postOrderWithItems(@RequestBody OrderWithItemsRequest request,
+                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+                        throws BadRequestException {
+                log.debug("OrderController.postOrderWithItems called with request: {}",
+                                LogSummary.of(request));
+                orderCheckoutService.validate(request);
+
+                return idempotencyService.execute(IdempotencyService.ORDERS_WITH_ITEMS, idempotencyKey, request,
+                                OrderDetail.class, () -> orderCheckoutService.create(request));
         }
 
         @Operation(summary = "Update an Order")
@@ -93,24 +302,32 @@ public class OrderController {
                         @Valid @RequestBody Order newOrderDetails)
                         throws ResourceNotFoundException, BadRequestException {
                 log.debug("OrderController.putOrderById called with Order Id: {} and Order: {}", id,
-                                newOrderDetails);
+                                LogSummary.of(newOrderDetails));
 
-                // Get the existing order
-                Order existingOrder = orderRepository.findById(id)
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                                ORDER_ITEM_NOT_FOUND_ERROR + id));
+                // Get the existing order, from the write-behind buffer if it holds a newer status
+                Order existingOrder = orderStatusWriteBehind.buffered(id)
+                                .or(() -> orderRepository.findById(id))
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
                 // Update the order
                 Order order = new Order();
                 order.setId(existingOrder.getId());
 
-                if (newOrderDetails.getStatus() != null) {
-                        order.setStatus(newOrderDetails.getStatus());
-                }
+                order.setStatus(newOrderDetails.getStatus() != null ? newOrderDetails.getStatus()
+                                : existingOrder.getStatus());
                 order.setCreated(existingOrder.getCreated());
                 order.setUpdated(LocalDateTime.now());
 
-                // Save the updated order
-                return orderRepository.save(order);
+                // Save or buffer the updated order and notify status stream subscribers
+                Order savedOrder;
+                if (orderStatusWriteBehind.isEnabled()) {
+                        orderStatusWriteBehind.buffer(order);
+                        savedOrder = order;
+                } else {
+                        savedOrder = orderRepository.save(order);
+                }
+                orderDetailCache.invalidate(id);
+                orderStatusPublisher.publish(OrderStatusEvent.of(savedOrder));
+                return savedOrder;
         }
 
         @Operation(summary = "Delete an Order")
@@ -123,10 +340,12 @@ public class OrderController {
                 log.debug("OrderController.deleteOrderById called with Order Id: {}", id);
 
                 Order order = orderRepository.findById(id)
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                                ORDER_ITEM_NOT_FOUND_ERROR + id));
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
 
                 orderRepository.delete(order);
+                orderStatusWriteBehind.discard(id);
+                orderDetailCache.invalidate(id);
+                changeFeedService.recordDeletion(ChangeFeedService.ORDERS, id);
 
         }
 }
@@ -2,6 +2,7 @@ package com.splawrence.ecommercepro.controller;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.coyote.BadRequestException;
 import org.springframework.http.HttpStatus;
@@ -12,23 +13,43 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.splawrence.ecommercepro.admission.Bulkhead;
+import com.splawrence.ecommercepro.admission.BulkheadGroup;
 import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.logging.LogSummary;
+import com.splawrence.ecommercepro.model.ChangeSet;
+import com.splawrence.ecommercepro.model.CountMode;
 import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.MultiGetResult;
 import com.splawrence.ecommercepro.model.OrderItem;
 import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.model.TotalCount;
+import com.splawrence.ecommercepro.repository.FieldProjectionRepository;
 import com.splawrence.ecommercepro.repository.OrderItemRepository;
 import com.splawrence.ecommercepro.repository.OrderRepository;
 import com.splawrence.ecommercepro.repository.ProductRepository;
+import com.splawrence.ecommercepro.service.ChangeFeedService;
+import com.splawrence.ecommercepro.service.IdempotencyService;
+import com.splawrence.ecommercepro.service.InventoryService;
+import com.splawrence.ecommercepro.service.MultiGetService;
+import com.splawrence.ecommercepro.service.OrderCheckoutService;
+import com.splawrence.ecommercepro.service.OrderDetailCache;
+import com.splawrence.ecommercepro.service.OrderStatusWriteBehind;
+import com.splawrence.ecommercepro.service.RequestCoalescer;
+import com.splawrence.ecommercepro.service.TotalCountService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
@@ -39,13 +60,38 @@ public class OrderItemController {
         OrderItemRepository orderItemRepository;
         ProductRepository productRepository;
         OrderRepository orderRepository;
+        ChangeFeedService changeFeedService;
+        IdempotencyService idempotencyService;
+        RequestCoalescer requestCoalescer;
+        MultiGetService multiGetService;
+        FieldProjectionRepository fieldProjectionRepository;
+        InventoryService inventoryService;
+        OrderDetailCache orderDetailCache;
+        TotalCountService totalCountService;
+        OrderCheckoutService orderCheckoutService;
+        OrderStatusWriteBehind orderStatusWriteBehind;
         private static final String ORDER_ITEM_NOT_FOUND_ERROR = "OrderItem not found for OrderItem Id: ";
 
         public OrderItemController(OrderItemRepository orderItemRepository, ProductRepository productRepository,
-                        OrderRepository orderRepository) {
+                        OrderRepository orderRepository, ChangeFeedService changeFeedService,
+                        IdempotencyService idempotencyService, RequestCoalescer requestCoalescer,
+                        MultiGetService multiGetService, FieldProjectionRepository fieldProjectionRepository,
+                        InventoryService inventoryService, OrderDetailCache orderDetailCache,
+                        TotalCountService totalCountService, OrderCheckoutService orderCheckoutService,
+                        OrderStatusWriteBehind orderStatusWriteBehind) {
                 this.orderItemRepository = orderItemRepository;
                 this.productRepository = productRepository;
                 this.orderRepository = orderRepository;
+                this.changeFeedService = changeFeedService;
+                this.idempotencyService = idempotencyService;
+                this.requestCoalescer = requestCoalescer;
+                this.multiGetService = multiGetService;
+                this.fieldProjectionRepository = fieldProjectionRepository;
+                this.inventoryService = inventoryService;
+                this.orderDetailCache = orderDetailCache;
+                this.totalCountService = totalCountService;
+                this.orderCheckoutService = orderCheckoutService;
+                this.orderStatusWriteBehind = orderStatusWriteBehind;
         }
 
         @Operation(summary = "Get all OrderItems")
@@ -59,17 +105,80 @@ public class OrderItemController {
                 return orderItemRepository.findAll();
         }
 
+        @Operation(summary = "Get one page of OrderItems ordered by Id, with the total number of OrderItems in the X-Total-Count header. count=exact, cached, estimate or auto chooses how it is counted; X-Total-Count-Mode says which was used.")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "One page of OrderItems", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = OrderItem[].class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad page, size or count mode supplied", content = @Content), })
+        @GetMapping(params = { "page", "!ids", "!fields" })
+        @ResponseStatus(HttpStatus.OK)
+        public List<OrderItem> getOrderItemsPage(@RequestParam int page, @RequestParam(defaultValue = "50") int size,
+                        @RequestParam(defaultValue = "auto") String count, HttpServletResponse response)
+                        throws BadRequestException {
+                log.debug("OrderItemController.getOrderItemsPage called with page: {} size: {} count: {}", page, size,
+                                count);
+
+                CountMode mode = CountMode.fromValue(count);
+                List<OrderItem> orderItems = orderItemRepository.findAllBy(totalCountService.page(page, size))
+                                .getContent();
+                TotalCount total = totalCountService.count(ChangeFeedService.ORDER_ITEMS, mode);
+                response.setHeader(TotalCountService.HEADER, Long.toString(total.getCount()));
+                response.setHeader(TotalCountService.MODE_HEADER, total.getMode().getLabel());
+                return orderItems;
+        }
+
+        @Operation(summary = "Get OrderItems changed or deleted since a cursor, ordered by updated timestamp and Id")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "OrderItems changed since the cursor", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = ChangeSet.class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad cursor or limit supplied", content = @Content), })
+        @GetMapping("/changes")
+        @ResponseStatus(HttpStatus.OK)
+        public ChangeSet<OrderItem> getOrderItemChanges(@RequestParam(required = false) String since,
+                        @RequestParam(required = false) Integer limit) throws BadRequestException {
+                log.debug("OrderItemController.getOrderItemChanges called with cursor: {} and limit: {}", since,
+                                limit);
+
+                return changeFeedService.changesSince(ChangeFeedService.ORDER_ITEMS, since, limit,
+                                orderItemRepository::findChangedSince, orderItemRepository::findChangedBetween);
+        }
+
+        @Operation(summary = "Get many OrderItems by Id in one call, in the order requested")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "OrderItems found and Ids not found", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class)), }),
+                        @ApiResponse(responseCode = "400", description = "No Ids or too many Ids supplied", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
+        @GetMapping(params = "ids")
+        @ResponseStatus(HttpStatus.OK)
+        public MultiGetResult<OrderItem> getOrderItemsByIds(@RequestParam List<Long> ids) throws BadRequestException {
+                log.debug("OrderItemController.getOrderItemsByIds called with OrderItem Ids: {}", LogSummary.of(ids));
+
+                return multiGetService.findAll(ids, orderItemRepository::findAllById);
+        }
+
+        @Operation(summary = "Get all OrderItems with only the requested fields, e.g. ?fields=id,quantity,product.description")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "All available OrderItems", content = @Content),
+                        @ApiResponse(responseCode = "400", description = "Unknown field supplied", content = @Content), })
+        @GetMapping(params = { "fields", "!ids" })
+        @ResponseStatus(HttpStatus.OK)
+        public List<Map<String, Object>> getOrderItemsWithFields(@RequestParam List<String> fields)
+                        throws BadRequestException {
+                log.debug("OrderItemController.getOrderItemsWithFields called with fields: {}", fields);
+
+                return fieldProjectionRepository.findAll(OrderItem.class, fields);
+        }
+
         @Operation(summary = "Get an OrderItem by Id")
         @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "OrderItem found", content = {
                         @Content(mediaType = "application/json", schema = @Schema(implementation = OrderItem.class)), }),
                         @ApiResponse(responseCode = "400", description = "Bad OrderItem Id supplied", content = @Content),
                         @ApiResponse(responseCode = "404", description = "OrderItem not found", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
         @GetMapping("/{id}")
         @ResponseStatus(HttpStatus.OK)
         public OrderItem getOrderItemById(@PathVariable @NonNull Long id) throws ResourceNotFoundException {
                 log.debug("OrderItemController.getOrderItemsById called with OrderItem Id: {}", id);
-                return orderItemRepository.findById(id)
-                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR + id));
+                return requestCoalescer.execute(ChangeFeedService.ORDER_ITEMS, id,
+                                () -> orderItemRepository.findById(id))
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
         }
 
         @Operation(summary = "Get OrderItems by Order Id. This is useful for seeing which Order Items are associated with a particular order.")
@@ -77,57 +186,96 @@ public class OrderItemController {
                         @ApiResponse(responseCode = "200", description = "OrderItem found or OrderItem not found", content = {
                                         @Content(mediaType = "application/json", schema = @Schema(implementation = OrderItem.class)), }),
                         @ApiResponse(responseCode = "400", description = "Bad OrderItem Id supplied", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
         @GetMapping("/search/order-id/{id}")
         @ResponseStatus(HttpStatus.OK)
         public List<OrderItem> getOrderItemByOrderId(@PathVariable @NonNull Long id) throws ResourceNotFoundException {
                 log.debug("OrderItemController.getOrderItemsById called with OrderItem Id: {}", id);
 
-                return orderItemRepository.findByOrderId(id);
+                // the items embed their order, so write a buffered status first; the flush drops the cached items
+                orderStatusWriteBehind.flushBeforeRead(id);
+                return orderDetailCache.getItems(id);
+        }
+
+        @Operation(summary = "Get an OrderItem by Id with only the requested fields")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "OrderItem found", content = @Content),
+                        @ApiResponse(responseCode = "400", description = "Unknown field supplied", content = @Content),
+                        @ApiResponse(responseCode = "404", description = "OrderItem not found", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
+        @GetMapping(value = "/{id}", params = "fields")
+        @ResponseStatus(HttpStatus.OK)
+        public Map<String, Object> getOrderItemByIdWithFields(@PathVariable @NonNull Long id,
+                        @RequestParam List<String> fields) throws ResourceNotFoundException, BadRequestException {
+                log.debug("OrderItemController.getOrderItemByIdWithFields called with OrderItem Id: {} and fields: {}", id, fields);
+
+                return fieldProjectionRepository.findById(OrderItem.class, id, fields)
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
         }
 
-        @Operation(summary = "Save an OrderItem")
+        @Operation(summary = "Save an OrderItem, reserving its quantity from the Product's stock. Retries carrying the same Idempotency-Key header replay the original response.")
         @ApiResponses(value = { @ApiResponse(responseCode = "201", description = "OrderItem saved", content = {
                         @Content(mediaType = "application/json", schema = @Schema(implementation = OrderItem.class)), }),
-                        @ApiResponse(responseCode = "400", description = "Bad OrderItem supplied", content = @Content), })
+                        @ApiResponse(responseCode = "400", description = "Bad OrderItem supplied", content = @Content),
+                        @ApiResponse(responseCode = "409", description = "Not enough Product stock", content = @Content), })
         @PostMapping
         @ResponseStatus(HttpStatus.CREATED)
-        public OrderItem postOrderItem(@Valid @RequestBody OrderItem orderItem) throws BadRequestException {
-                log.debug("OrderItemController.postOrderItem called with OrderItem: {}", orderItem);
-                orderItem.setCreated(LocalDateTime.now());
-                orderItem.setUpdated(LocalDateTime.now());
-                orderItemRepository.save(orderItem);
-                Product product = productRepository.findById(orderItem.getProduct().getId())
-                                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-                Order order = orderRepository.findById(orderItem.getOrder().getId())
-                                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
-                orderItem.setProduct(product);
-                orderItem.setOrder(order);
-                return orderItem;
+        public OrderItem postOrderItem(@Valid @RequestBody OrderItem orderItem,
+                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+                        throws BadRequestException {
+                log.debug("OrderItemController.postOrderItem called with OrderItem: {}", LogSummary.of(orderItem));
+                if (orderItem.getQuantity() <= 0) {
+                        throw new BadRequestException("Quantity must be positive");
+                }
+                return idempotencyService.execute(IdempotencyService.ORDER_ITEMS, idempotencyKey, orderItem, OrderItem.class,
+                                () -> {
+                                        Long productId = orderItem.getProduct().getId();
+                                        inventoryService.reserve(productId, orderItem.getQuantity());
+                                        try {
+                                                // read from the database after reserving, never from the catalog cache,
+                                                // so the item records the current price and the stock left
+                                                Product product = productRepository.findById(productId)
+                                                                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+                                                orderItem.snapshotProduct(product);
+                                                orderItem.setCreated(LocalDateTime.now());
+                                                orderItem.setUpdated(LocalDateTime.now());
+                                                orderItemRepository.save(orderItem);
+                                        } catch (RuntimeException e) {
+                                                inventoryService.release(productId, orderItem.getQuantity());
+                                                throw e;
+                                        }
+                                        orderDetailCache.invalidate(orderItem.getOrder().getId());
+                                        Order order = orderRepository.findById(orderItem.getOrder().getId())
+                                                        .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+                                        orderItem.setOrder(order);
+                                        return orderItem;
+                                });
         }
 
-        @Operation(summary = "Update an OrderItem")
+        @Operation(summary = "Update an OrderItem's quantity, reserving or releasing the difference from the Product's stock")
         @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "OrderItem updated", content = {
                         @Content(mediaType = "application/json", schema = @Schema(implementation = OrderItem.class)), }),
                         @ApiResponse(responseCode = "400", description = "Bad OrderItem or OrderItem Id supplied", content = @Content),
-                        @ApiResponse(responseCode = "404", description = "OrderItem not found", content = @Content), })
+                        @ApiResponse(responseCode = "404", description = "OrderItem not found", content = @Content),
+                        @ApiResponse(responseCode = "409", description = "Not enough Product stock", content = @Content), })
         @PutMapping("/{id}")
         @ResponseStatus(HttpStatus.OK)
         public OrderItem putOrderItemById(@PathVariable @NonNull Long id,
                         @Valid @RequestBody OrderItem newOrderItemDetails)
                         throws ResourceNotFoundException, BadRequestException {
                 log.debug("OrderItemController.putOrderItemById called with OrderItem Id: {} and OrderItem: {}", id,
-                                newOrderItemDetails);
+                                LogSummary.of(newOrderItemDetails));
                 OrderItem existingOrderItem = orderItemRepository.findById(id)
-                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR + id));
-                OrderItem orderItem = new OrderItem();
-                orderItem.setId(existingOrderItem.getId());
-                orderItem.setQuantity(newOrderItemDetails.getQuantity());
-                orderItem.setCreated(existingOrderItem.getCreated());
-                orderItem.setUpdated(LocalDateTime.now());
-                return orderItemRepository.save(orderItem);
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
+                if (newOrderItemDetails.getQuantity() <= 0) {
+                        throw new BadRequestException("Quantity must be positive");
+                }
+                // reserves or releases the difference; the item keeps its order, product and price
+                OrderItem savedOrderItem = orderCheckoutService.changeQuantity(id, newOrderItemDetails.getQuantity());
+                invalidateOrderDetail(existingOrderItem);
+                return savedOrderItem;
         }
 
-        @Operation(summary = "Delete an OrderItem")
+        @Operation(summary = "Delete an OrderItem, releasing its quantity back to the Product's stock")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "204", description = "OrderItem deleted", content = @Content),
                         @ApiResponse(responseCode = "400", description = "Bad OrderItem Id supplied", content = @Content),
@@ -137,7 +285,15 @@ public class OrderItemController {
         public void deleteOrderItemById(@PathVariable @NonNull Long id) {
                 log.debug("OrderItemController.deleteOrderItemById called with OrderItem Id: {}", id);
                 OrderItem orderItem = orderItemRepository.findById(id)
-                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR + id));
-                orderItemRepository.delete(orderItem);
+                                .orElseThrow(() -> new ResourceNotFoundException(ORDER_ITEM_NOT_FOUND_ERROR, id));
+                orderCheckoutService.deleteItem(id);
+                invalidateOrderDetail(orderItem);
+                changeFeedService.recordDeletion(ChangeFeedService.ORDER_ITEMS, id);
+        }
+
+        private void invalidateOrderDetail(OrderItem orderItem) {
+                if (orderItem.getOrder() != null) {
+                        orderDetailCache.invalidate(orderItem.getOrder().getId());
+                }
         }
 }
\ No newline at end of file
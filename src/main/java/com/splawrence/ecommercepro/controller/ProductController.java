@@ -1,18 +1,40 @@
 package com.splawrence.ecommercepro.controller;
 
+import com.splawrence.ecommercepro.admission.Bulkhead;
+import com.splawrence.ecommercepro.admission.BulkheadGroup;
 import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.logging.LogSummary;
+import com.splawrence.ecommercepro.model.ChangeSet;
+import com.splawrence.ecommercepro.model.MultiGetResult;
 import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.model.ProductImportFormat;
+import com.splawrence.ecommercepro.model.ProductImportResult;
+import com.splawrence.ecommercepro.model.ProductRepriceRequest;
+import com.splawrence.ecommercepro.model.ProductRepriceResult;
+import com.splawrence.ecommercepro.repository.FieldProjectionRepository;
 import com.splawrence.ecommercepro.repository.ProductRepository;
+import com.splawrence.ecommercepro.service.ChangeFeedService;
+import com.splawrence.ecommercepro.service.IdempotencyService;
+import com.splawrence.ecommercepro.service.MultiGetService;
+import com.splawrence.ecommercepro.service.ProductCatalogCache;
+import com.splawrence.ecommercepro.service.ProductImportService;
+import com.splawrence.ecommercepro.service.ProductRepriceService;
+import com.splawrence.ecommercepro.service.RequestCoalescer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.coyote.BadRequestException;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -21,7 +43,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -30,10 +54,31 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/products")
 public class ProductController {
         ProductRepository productRepository;
+        ChangeFeedService changeFeedService;
+        IdempotencyService idempotencyService;
+        RequestCoalescer requestCoalescer;
+        MultiGetService multiGetService;
+        FieldProjectionRepository fieldProjectionRepository;
+        ProductImportService productImportService;
+        ProductRepriceService productRepriceService;
+        ProductCatalogCache productCatalogCache;
         private static final String PRODUCT_NOT_FOUND_ERROR = "Product not found for Product Id: ";
 
-        public ProductController(ProductRepository productRepository) {
+        public ProductController(ProductRepository productRepository, ChangeFeedService changeFeedService,
+                        IdempotencyService idempotencyService, RequestCoalescer requestCoalescer,
+                        MultiGetService multiGetService, FieldProjectionRepository fieldProjectionRepository,
+                        @Lazy ProductImportService productImportService,
+                        @Lazy ProductRepriceService productRepriceService,
+                        ProductCatalogCache productCatalogCache) {
                 this.productRepository = productRepository;
+                this.changeFeedService = changeFeedService;
+                this.idempotencyService = idempotencyService;
+                this.requestCoalescer = requestCoalescer;
+                this.multiGetService = multiGetService;
+                this.fieldProjectionRepository = fieldProjectionRepository;
+                this.productImportService = productImportService;
+                this.productRepriceService = productRepriceService;
+                this.productCatalogCache = productCatalogCache;
         }
 
         @Operation(summary = "Get all Products")
@@ -48,33 +93,127 @@ public class ProductController {
                 return productRepository.findAll();
         }
 
+        @Operation(summary = "Get Products changed or deleted since a cursor, ordered by updated timestamp and Id")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Products changed since the cursor", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = ChangeSet.class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad cursor or limit supplied", content = @Content), })
+        @GetMapping("/changes")
+        @ResponseStatus(HttpStatus.OK)
+        public ChangeSet<Product> getProductChanges(@RequestParam(required = false) String since,
+                        @RequestParam(required = false) Integer limit) throws BadRequestException {
+                log.debug("ProductController.getProductChanges called with cursor: {} and limit: {}", since, limit);
+
+                return changeFeedService.changesSince(ChangeFeedService.PRODUCTS, since, limit,
+                                productRepository::findChangedSince, productRepository::findChangedBetween);
+        }
+
+        @Operation(summary = "Get many Products by Id in one call, in the order requested")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Products found and Ids not found", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = MultiGetResult.class)), }),
+                        @ApiResponse(responseCode = "400", description = "No Ids or too many Ids supplied", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
+        @GetMapping(params = "ids")
+        @ResponseStatus(HttpStatus.OK)
+        public MultiGetResult<Product> getProductsByIds(@RequestParam List<Long> ids) throws BadRequestException {
+                log.debug("ProductController.getProductsByIds called with Product Ids: {}", LogSummary.of(ids));
+
+                // only the ids the catalog cache does not hold go to the database
+                return multiGetService.findAll(ids,
+                                requested -> productCatalogCache.getAll(requested, productRepository::findAllById));
+        }
+
+        @Operation(summary = "Get all Products with only the requested fields, e.g. ?fields=id,quantity,product.description")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "All available Products", content = @Content),
+                        @ApiResponse(responseCode = "400", description = "Unknown field supplied", content = @Content), })
+        @GetMapping(params = { "fields", "!ids" })
+        @ResponseStatus(HttpStatus.OK)
+        public List<Map<String, Object>> getProductsWithFields(@RequestParam List<String> fields)
+                        throws BadRequestException {
+                log.debug("ProductController.getProductsWithFields called with fields: {}", fields);
+
+                return fieldProjectionRepository.findAll(Product.class, fields);
+        }
+
         @Operation(summary = "Get a Product by Id")
         @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Product found", content = {
                         @Content(mediaType = "application/json", schema = @Schema(implementation = Product.class)), }),
                         @ApiResponse(responseCode = "400", description = "Bad Product Id supplied", content = @Content),
                         @ApiResponse(responseCode = "404", description = "Product not found", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
         @GetMapping("/{id}")
         @ResponseStatus(HttpStatus.OK)
         public Product getProductById(@PathVariable @NonNull Long id) throws ResourceNotFoundException {
                 log.debug("ProductController.getProductsById called with Product Id: {}", id);
 
-                return productRepository.findById(id)
-                                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND_ERROR + id));
+                return productCatalogCache.get(id)
+                                .or(() -> requestCoalescer.execute(ChangeFeedService.PRODUCTS, id,
+                                                () -> productRepository.findById(id)).map(productCatalogCache::put))
+                                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND_ERROR, id));
+        }
+
+        @Operation(summary = "Get a Product by Id with only the requested fields")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Product found", content = @Content),
+                        @ApiResponse(responseCode = "400", description = "Unknown field supplied", content = @Content),
+                        @ApiResponse(responseCode = "404", description = "Product not found", content = @Content), })
+        @Bulkhead(BulkheadGroup.POINT_READ)
+        @GetMapping(value = "/{id}", params = "fields")
+        @ResponseStatus(HttpStatus.OK)
+        public Map<String, Object> getProductByIdWithFields(@PathVariable @NonNull Long id,
+                        @RequestParam List<String> fields) throws ResourceNotFoundException, BadRequestException {
+                log.debug("ProductController.getProductByIdWithFields called with Product Id: {} and fields: {}", id, fields);
+
+                return fieldProjectionRepository.findById(Product.class, id, fields)
+                                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND_ERROR, id));
         }
 
-        @Operation(summary = "Save a Product")
+        @Operation(summary = "Save a Product. Retries carrying the same Idempotency-Key header replay the original response.")
         @ApiResponses(value = { @ApiResponse(responseCode = "201", description = "Product saved", content = {
                         @Content(mediaType = "application/json", schema = @Schema(implementation = Product.class)), }),
                         @ApiResponse(responseCode = "400", description = "Bad Product supplied", content = @Content), })
         @PostMapping
         @ResponseStatus(HttpStatus.CREATED)
-        public Product postProduct(@Valid @RequestBody Product product) throws BadRequestException {
-                log.debug("ProductController.postProduct called with Product: {}", product);
+        public Product postProduct(@Valid @RequestBody Product product,
+                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+                        throws BadRequestException {
+                log.debug("ProductController.postProduct called with Product: {}", LogSummary.of(product));
+                validatePrice(product);
 
-                product.setCreated(LocalDateTime.now());
-                product.setUpdated(LocalDateTime.now());
+                return idempotencyService.execute(IdempotencyService.PRODUCTS, idempotencyKey, product, Product.class, () -> {
+                        product.setCreated(LocalDateTime.now());
+                        product.setUpdated(LocalDateTime.now());
+
+                        return productCatalogCache.put(productRepository.save(product));
+                });
+        }
+
+        @Operation(summary = "Import Products in bulk from CSV with an id,description,price header or from NDJSON. Rows with an Id insert or replace that Product, rows without one add a new Product.")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Import counts and rejected rows", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = ProductImportResult.class)), }),
+                        @ApiResponse(responseCode = "400", description = "Missing CSV header or unsupported content type", content = @Content), })
+        @Bulkhead(BulkheadGroup.BULK)
+        @PostMapping(value = "/import", consumes = { ProductImportFormat.CSV_VALUE, ProductImportFormat.NDJSON_VALUE })
+        @ResponseStatus(HttpStatus.OK)
+        public ProductImportResult importProducts(InputStream body,
+                        @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType)
+                        throws BadRequestException, IOException {
+                log.debug("ProductController.importProducts called with content type: {}", contentType);
+
+                return productImportService.importProducts(body, ProductImportFormat.fromContentType(contentType));
+        }
 
-                return productRepository.save(product);
+        @Operation(summary = "Reprice Products in bulk, either to explicit prices by Id or by a percentage rule filtered by Id range and description")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Number of Products repriced and Ids not found", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = ProductRepriceResult.class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad prices or rule supplied", content = @Content), })
+        @Bulkhead(BulkheadGroup.BULK)
+        @PostMapping("/reprice")
+        @ResponseStatus(HttpStatus.OK)
+        public ProductRepriceResult repriceProducts(@RequestBody ProductRepriceRequest request)
+                        throws BadRequestException {
+                log.debug("ProductController.repriceProducts called with request: {}",
+                                LogSummary.of(request));
+
+                return productRepriceService.reprice(request);
         }
 
         @Operation(summary = "Update a Product")
@@ -87,10 +226,11 @@ public class ProductController {
         public Product putProductById(@PathVariable @NonNull Long id, @Valid @RequestBody Product newProductDetails)
                         throws ResourceNotFoundException, BadRequestException {
                 log.debug("ProductController.putProductById called with Product Id: {} and Product: {}", id,
-                                newProductDetails);
-                
+                                LogSummary.of(newProductDetails));
+                validatePrice(newProductDetails);
+
                 Product existingProduct = productRepository.findById(id)
-                                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND_ERROR + id));
+                                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND_ERROR, id));
                 Product product = new Product();
                 product.setId(existingProduct.getId());
 
@@ -105,7 +245,15 @@ public class ProductController {
                 product.setCreated(existingProduct.getCreated());
                 product.setUpdated(LocalDateTime.now());
 
-                return productRepository.save(product);
+                // the save leaves stock alone so reservations since the read are kept
+                Product saved = productRepository.save(product);
+                if (newProductDetails.getStock() != null) {
+                        productRepository.setStock(id, newProductDetails.getStock());
+                        saved.setStock(newProductDetails.getStock());
+                } else {
+                        saved.setStock(existingProduct.getStock());
+                }
+                return productCatalogCache.put(saved);
         }
 
         @Operation(summary = "Delete a Product")
@@ -118,8 +266,17 @@ public class ProductController {
                 log.debug("ProductController.deleteProductById called with Product Id: {}", id);
 
                 Product product = productRepository.findById(id)
-                                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND_ERROR + id));
+                                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND_ERROR, id));
 
                 productRepository.delete(product);
+                productCatalogCache.evict(id);
+                changeFeedService.recordDeletion(ChangeFeedService.PRODUCTS, id);
+        }
+
+        // repricing rules cut by at most 100%, which keeps prices that start non-negative at or above zero
+        private static void validatePrice(Product product) throws BadRequestException {
+                if (product.getPrice() != null && product.getPrice().signum() < 0) {
+                        throw new BadRequestException("Price must not be negative");
+                }
         }
-}
\ No newline at end of file
+}
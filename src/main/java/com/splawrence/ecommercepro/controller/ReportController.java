@@ -0,0 +1,74 @@
+package com.splawrence.ecommercepro.controller;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.splawrence.ecommercepro.admission.Bulkhead;
+import com.splawrence.ecommercepro.admission.BulkheadGroup;
+import com.splawrence.ecommercepro.model.DailyRevenue;
+import com.splawrence.ecommercepro.model.ProductSales;
+import com.splawrence.ecommercepro.model.SalesMetric;
+import com.splawrence.ecommercepro.service.SalesReportService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@Lazy
+@Slf4j
+@RequestMapping("/api/reports")
+public class ReportController {
+        SalesReportService salesReportService;
+
+        public ReportController(SalesReportService salesReportService) {
+                this.salesReportService = salesReportService;
+        }
+
+        @Operation(summary = "Get the top Products by quantity or revenue for order items created from one day to another. Set streaming=true to aggregate in the application for large ranges.")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Best selling Products, best first", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = ProductSales[].class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad metric, limit or date range supplied", content = @Content), })
+        @Bulkhead(BulkheadGroup.BULK)
+        @GetMapping("/top-products")
+        @ResponseStatus(HttpStatus.OK)
+        public List<ProductSales> getTopProducts(@RequestParam(defaultValue = "revenue") String by,
+                        @RequestParam(defaultValue = "10") int limit,
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                        @RequestParam(defaultValue = "false") boolean streaming) throws BadRequestException {
+                log.debug("ReportController.getTopProducts called by: {} limit: {} from: {} to: {} streaming: {}", by,
+                                limit, from, to, streaming);
+
+                return salesReportService.topProducts(SalesMetric.fromValue(by), limit, from, to, streaming);
+        }
+
+        @Operation(summary = "Get revenue per day for order items created from one day to another. Set streaming=true to aggregate in the application for large ranges.")
+        @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Revenue for every day in the range", content = {
+                        @Content(mediaType = "application/json", schema = @Schema(implementation = DailyRevenue[].class)), }),
+                        @ApiResponse(responseCode = "400", description = "Bad date range supplied", content = @Content), })
+        @Bulkhead(BulkheadGroup.BULK)
+        @GetMapping("/daily-revenue")
+        @ResponseStatus(HttpStatus.OK)
+        public List<DailyRevenue> getDailyRevenue(
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                        @RequestParam(defaultValue = "false") boolean streaming) throws BadRequestException {
+                log.debug("ReportController.getDailyRevenue called from: {} to: {} streaming: {}", from, to, streaming);
+
+                return salesReportService.dailyRevenue(from, to, streaming);
+        }
+}
@@ -0,0 +1,10 @@
+package com.splawrence.ecommercepro.exception;
+
+public class IdempotencyConflictException extends RuntimeException {
+
+  private static final long serialVersionUID = 4417830154982260113L;
+
+  public IdempotencyConflictException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,10 @@
+package com.splawrence.ecommercepro.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+  private static final long serialVersionUID = 6203154718806532907L;
+
+  public IdempotencyKeyReusedException(String message) {
+    super(message);
+  }
+}
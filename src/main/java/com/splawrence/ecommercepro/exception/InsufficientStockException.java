@@ -0,0 +1,10 @@
+package com.splawrence.ecommercepro.exception;
+
+public class InsufficientStockException extends RuntimeException {
+
+  private static final long serialVersionUID = 6803554418527021937L;
+
+  public InsufficientStockException(String message) {
+    super(message);
+  }
+}
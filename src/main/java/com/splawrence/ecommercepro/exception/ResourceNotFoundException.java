@@ -1,10 +1,51 @@
 package com.splawrence.ecommercepro.exception;
 
+/**
+ * Thrown when a requested row does not exist. Not finding a row is an
+ * expected outcome, often caused by scanners and stale clients, so no stack
+ * trace is captured, and the message is only concatenated if it is read.
+ */
 public class ResourceNotFoundException extends RuntimeException {
 
   private static final long serialVersionUID = -2196715886663105664L;
 
+  private final String detail;
+  private final transient Object id;
+  private String message;
+
   public ResourceNotFoundException(String message) {
-    super(message);
+    this(message, null);
+  }
+
+  /**
+   * @param detail the message up to the id, e.g. {@code "Product not found for Product Id: "}
+   * @param id     the id that was not found, appended to the detail
+   */
+  public ResourceNotFoundException(String detail, Object id) {
+    super(null, null, false, false);
+    this.detail = detail;
+    this.id = id;
+  }
+
+  @Override
+  public String getMessage() {
+    if (message == null) {
+      message = id == null ? detail : detail + id;
+    }
+    return message;
+  }
+
+  /**
+   * @return the message up to the id
+   */
+  public String getDetail() {
+    return detail;
+  }
+
+  /**
+   * @return the id that was not found, or null if the detail is the whole message
+   */
+  public Object getId() {
+    return id;
   }
 }
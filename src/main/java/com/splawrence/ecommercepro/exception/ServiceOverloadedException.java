@@ -0,0 +1,20 @@
+package com.splawrence.ecommercepro.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+  private static final long serialVersionUID = -6342107736512794531L;
+
+  private final int retryAfterSeconds;
+
+  /**
+   * Rejections are expected under load, so no stack trace is captured.
+   */
+  public ServiceOverloadedException(String message, int retryAfterSeconds) {
+    super(message, null, false, false);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public int getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
@@ -0,0 +1,99 @@
+package com.splawrence.ecommercepro.logging;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderItem;
+import com.splawrence.ecommercepro.model.OrderWithItemsRequest;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.model.ProductRepriceRequest;
+
+/**
+ * A log argument that renders a short summary of an entity, request or
+ * collection instead of its Lombok {@code toString()}, which walks from an
+ * order item to its whole order and product and prints every element of a
+ * list.
+ * <p>
+ * The summary is only rendered if the event is logged, and is at most
+ * {@value #MAX_LENGTH} characters with at most {@value #MAX_ELEMENTS}
+ * elements of any collection.
+ */
+public final class LogSummary {
+    static final int MAX_LENGTH = 200;
+    static final int MAX_ELEMENTS = 10;
+
+    private final Object value;
+
+    private LogSummary(Object value) {
+        this.value = value;
+    }
+
+    /**
+     * @return a log argument summarizing the value when it is rendered
+     */
+    public static Object of(Object value) {
+        return new LogSummary(value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(64);
+        append(summary, value);
+        if (summary.length() > MAX_LENGTH) {
+            summary.setLength(MAX_LENGTH - 3);
+            summary.append("...");
+        }
+        return summary.toString();
+    }
+
+    private static void append(StringBuilder summary, Object value) {
+        if (summary.length() > MAX_LENGTH) {
+            return;
+        }
+        if (value instanceof Product product) {
+            summary.append("Product(id=").append(product.getId())
+                    .append(", price=").append(product.getPrice())
+                    .append(", stock=").append(product.getStock()).append(')');
+        } else if (value instanceof OrderItem orderItem) {
+            // ids only, so lazy associations are never loaded
+            summary.append("OrderItem(id=").append(orderItem.getId())
+                    .append(", orderId=").append(orderItem.getOrder() == null ? null : orderItem.getOrder().getId())
+                    .append(", productId=")
+                    .append(orderItem.getProduct() == null ? null : orderItem.getProduct().getId())
+                    .append(", quantity=").append(orderItem.getQuantity()).append(')');
+        } else if (value instanceof Order order) {
+            summary.append("Order(id=").append(order.getId())
+                    .append(", status=").append(order.getStatus()).append(')');
+        } else if (value instanceof OrderWithItemsRequest request) {
+            summary.append("OrderWithItemsRequest(status=").append(request.getStatus()).append(", items=");
+            append(summary, request.getItems());
+            summary.append(')');
+        } else if (value instanceof ProductRepriceRequest request) {
+            summary.append("ProductRepriceRequest(prices=");
+            append(summary, request.getPrices());
+            summary.append(", rule=").append(request.getRule()).append(')');
+        } else if (value instanceof Collection<?> collection) {
+            appendElements(summary, collection.iterator(), collection.size());
+        } else if (value instanceof Map<?, ?> map) {
+            appendElements(summary, map.entrySet().iterator(), map.size());
+        } else {
+            summary.append(value);
+        }
+    }
+
+    private static void appendElements(StringBuilder summary, Iterator<?> elements, int size) {
+        summary.append('[');
+        for (int i = 0; i < MAX_ELEMENTS && elements.hasNext(); i++) {
+            if (i > 0) {
+                summary.append(", ");
+            }
+            append(summary, elements.next());
+        }
+        if (size > MAX_ELEMENTS) {
+            summary.append(", ... ").append(size).append(" in total");
+        }
+        summary.append(']');
+    }
+}
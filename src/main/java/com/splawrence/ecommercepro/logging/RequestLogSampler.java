@@ -0,0 +1,97 @@
+package com.splawrence.ecommercepro.logging;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import com.splawrence.ecommercepro.config.LogSamplingProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Decides per request whether its debug logging is kept, at the rate
+ * configured for the endpoint, and records the decision in the MDC for
+ * {@link SampledLogFilter}. Sampled requests also get the endpoint in the
+ * MDC, so it is a field of every JSON log line they write.
+ */
+@Component
+public class RequestLogSampler implements AsyncHandlerInterceptor {
+    public static final String SAMPLED = "sampled";
+    public static final String ENDPOINT = "endpoint";
+    static final String NOT_SAMPLED = "false";
+
+    private record Endpoint(String name, double rate) {
+    }
+
+    private final boolean enabled;
+    private final double defaultRate;
+    private final Map<String, Double> rates;
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Counter sampled;
+    private final Counter skipped;
+
+    public RequestLogSampler(LogSamplingProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.defaultRate = properties.getDefaultRate();
+        this.rates = Map.copyOf(properties.getRates());
+        this.sampled = Counter.builder("ecommercepro.log-sampling.requests")
+                .description("Requests by whether their debug logging was sampled")
+                .tag("sampled", "true")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("ecommercepro.log-sampling.requests")
+                .description("Requests by whether their debug logging was sampled")
+                .tag("sampled", NOT_SAMPLED)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!enabled || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(handlerMethod.getMethod(), this::endpointOf);
+        if (endpoint.rate() >= 1.0 || ThreadLocalRandom.current().nextDouble() < endpoint.rate()) {
+            sampled.increment();
+            MDC.put(SAMPLED, "true");
+            MDC.put(ENDPOINT, endpoint.name());
+        } else {
+            skipped.increment();
+            MDC.put(SAMPLED, NOT_SAMPLED);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        // the thread goes back to the pool while the request carries on elsewhere
+        clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        clear();
+    }
+
+    private static void clear() {
+        MDC.remove(SAMPLED);
+        MDC.remove(ENDPOINT);
+    }
+
+    private Endpoint endpointOf(Method method) {
+        String controller = method.getDeclaringClass().getSimpleName();
+        String name = controller + "." + method.getName();
+        Double rate = rates.getOrDefault(name, rates.get(controller));
+        return new Endpoint(name, rate == null ? defaultRate : rate);
+    }
+}
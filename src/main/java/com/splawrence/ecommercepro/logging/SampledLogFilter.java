@@ -0,0 +1,45 @@
+package com.splawrence.ecommercepro.logging;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Drops debug and trace events of the application's loggers on request
+ * threads that {@link RequestLogSampler} did not sample, before the message
+ * is formatted or its arguments rendered. Turbo filters also answer
+ * {@code isDebugEnabled()}, so guarded log statements are skipped as well.
+ * Events on threads outside a request, and all info and higher events, are
+ * left to the logger levels.
+ * <p>
+ * Configured in {@code logback-spring.xml}.
+ */
+public class SampledLogFilter extends TurboFilter {
+    private String loggerPrefix = "com.splawrence.ecommercepro";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+            Throwable t) {
+        if (level.levelInt > Level.DEBUG_INT || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return RequestLogSampler.NOT_SAMPLED.equals(MDC.get(RequestLogSampler.SAMPLED)) ? FilterReply.DENY
+                : FilterReply.NEUTRAL;
+    }
+
+    public String getLoggerPrefix() {
+        return loggerPrefix;
+    }
+
+    /**
+     * @param loggerPrefix events of loggers whose names start with this are
+     *                     sampled
+     */
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
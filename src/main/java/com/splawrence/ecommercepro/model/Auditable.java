@@ -0,0 +1,13 @@
+package com.splawrence.ecommercepro.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Implemented by entities that carry an id and an updated timestamp, which is
+ * what the change feed uses to order and resume over rows.
+ */
+public interface Auditable {
+    Long getId();
+
+    LocalDateTime getUpdated();
+}
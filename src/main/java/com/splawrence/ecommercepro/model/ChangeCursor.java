@@ -0,0 +1,66 @@
+package com.splawrence.ecommercepro.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import org.apache.coyote.BadRequestException;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * A resumable position in a change feed, ordered by (updated, id), with the
+ * time the page that returned it was read.
+ * <p>
+ * The string form is {@code <ISO timestamp>_<id>_<ISO read time>}. The read
+ * time may be left off, and a bare ISO timestamp is also accepted and starts
+ * from the first row at or after that time.
+ */
+@Value
+@AllArgsConstructor
+public class ChangeCursor {
+    public static final ChangeCursor START = new ChangeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    private static final char SEPARATOR = '_';
+
+    LocalDateTime updated;
+    Long id;
+    /**
+     * When the page ending at this position was read, or null if unknown.
+     */
+    LocalDateTime read;
+
+    public ChangeCursor(LocalDateTime updated, Long id) {
+        this(updated, id, null);
+    }
+
+    /**
+     * Parses a cursor previously returned by a change feed.
+     *
+     * @param value the cursor string, or null to start from the beginning
+     * @return the parsed cursor
+     * @throws BadRequestException if the value is not a valid cursor
+     */
+    public static ChangeCursor parse(String value) throws BadRequestException {
+        if (value == null || value.isBlank()) {
+            return START;
+        }
+        try {
+            String[] parts = value.split(String.valueOf(SEPARATOR), -1);
+            if (parts.length > 3) {
+                throw new BadRequestException("Invalid change cursor: " + value);
+            }
+            return new ChangeCursor(LocalDateTime.parse(parts[0]),
+                    parts.length > 1 ? Long.parseLong(parts[1]) : 0L,
+                    parts.length > 2 ? LocalDateTime.parse(parts[2]) : null);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new BadRequestException("Invalid change cursor: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String position = updated.toString() + SEPARATOR + id;
+        return read == null ? position : position + SEPARATOR + read;
+    }
+}
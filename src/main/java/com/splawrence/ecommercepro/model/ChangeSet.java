@@ -0,0 +1,19 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A page of a change feed: rows changed and ids deleted since the requested
+ * cursor, and the cursor to resume from.
+ */
+@Data
+@AllArgsConstructor
+public class ChangeSet<T> {
+    private List<T> changed;
+    private List<Long> deleted;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,39 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.apache.coyote.BadRequestException;
+
+/**
+ * How the {@code X-Total-Count} of a paged list is worked out.
+ */
+public enum CountMode {
+    /** {@code COUNT(*)} on every request. */
+    EXACT,
+    /** An exact count recomputed in the background at most once per refresh interval. */
+    CACHED,
+    /** The query planner's row estimate for the table. */
+    ESTIMATE,
+    /** Exact for tables the planner estimates to be small, otherwise the estimate. */
+    AUTO;
+
+    /**
+     * @param value {@code exact}, {@code cached}, {@code estimate} or {@code auto}, in any case
+     * @return the matching mode
+     * @throws BadRequestException if the value names no mode
+     */
+    public static CountMode fromValue(String value) throws BadRequestException {
+        return Arrays.stream(values())
+                .filter(mode -> mode.name().equals(value.trim().toUpperCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Unknown count mode: " + value));
+    }
+
+    /**
+     * @return the mode in lower case, as used in requests and headers
+     */
+    public String getLabel() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
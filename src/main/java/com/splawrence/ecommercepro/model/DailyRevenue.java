@@ -0,0 +1,20 @@
+package com.splawrence.ecommercepro.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The quantity sold and revenue of all order items created on one day.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRevenue {
+    private LocalDate day;
+    private long quantity;
+    private BigDecimal revenue;
+}
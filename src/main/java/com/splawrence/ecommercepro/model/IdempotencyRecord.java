@@ -0,0 +1,37 @@
+package com.splawrence.ecommercepro.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The stored response for an Idempotency-Key, used to replay retried POSTs
+ * across restarts and instances. The response is null while the request that
+ * claimed the key is still running.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_created", columnList = "created") })
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+    @Column(name = "response", columnDefinition = "text")
+    private String response;
+    @Column(name = "created", nullable = false)
+    private LocalDateTime created;
+    @Column(name = "response_type")
+    private String responseType;
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+}
@@ -0,0 +1,17 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The rows found for a multi-get request, in the order their ids were
+ * requested, and the requested ids that do not exist.
+ */
+@Data
+@AllArgsConstructor
+public class MultiGetResult<T> {
+    private List<T> found;
+    private List<Long> missing;
+}
@@ -7,6 +7,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.transaction.Transactional;
 import lombok.Data;
@@ -17,8 +18,10 @@ import lombok.Data;
 @Entity
 @Data
 @Transactional
-@Table(name = "orders")
-public class Order {
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_updated_id", columnList = "updated, id"),
+        @Index(name = "idx_orders_status_updated", columnList = "status, updated") })
+public class Order implements Auditable {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(name = "id")
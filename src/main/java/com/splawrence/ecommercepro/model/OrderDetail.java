@@ -0,0 +1,36 @@
+package com.splawrence.ecommercepro.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An order with its line items and their totals.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderDetail {
+    private Order order;
+    private List<OrderItem> items;
+    /** The sum of the item quantities. */
+    private long totalQuantity;
+    /** The sum of quantity times unit price over the items. */
+    private BigDecimal total;
+
+    public static OrderDetail of(Order order, List<OrderItem> items) {
+        long totalQuantity = 0;
+        BigDecimal total = BigDecimal.ZERO.setScale(2);
+        for (OrderItem item : items) {
+            totalQuantity += item.getQuantity();
+            BigDecimal unitPrice = item.effectiveUnitPrice();
+            if (unitPrice != null) {
+                total = total.add(unitPrice.multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+        }
+        return new OrderDetail(order, items, totalQuantity, total);
+    }
+}
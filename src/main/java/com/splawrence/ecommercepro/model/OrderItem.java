@@ -1,5 +1,6 @@
 package com.splawrence.ecommercepro.model;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import jakarta.persistence.CascadeType;
@@ -9,6 +10,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.transaction.Transactional;
@@ -20,14 +22,23 @@ import lombok.Data;
 @Entity
 @Data
 @Transactional
-@Table(name = "order_items")
-public class OrderItem {
+@Table(name = "order_items", indexes = {
+        @Index(name = "idx_order_items_updated_id", columnList = "updated, id"),
+        @Index(name = "idx_order_items_order_id_priced", columnList = "order_id, id"),
+        @Index(name = "idx_order_items_product_id", columnList = "product_id"),
+        @Index(name = "idx_order_items_created_priced", columnList = "created") })
+public class OrderItem implements Auditable {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(name = "id")
     private Long id;
     @Column(name = "quantity", nullable = false)
     private int quantity;
+    // the product's price and description when the item was ordered; null until an older row is backfilled
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice;
+    @Column(name = "description")
+    private String description;
     @Column(name = "created", nullable = false)
     private LocalDateTime created;
     @Column(name = "updated", nullable = false)
@@ -40,4 +51,25 @@ public class OrderItem {
     // Straight forward relationship with Product
     @ManyToOne(cascade = CascadeType.DETACH, fetch = FetchType.EAGER)
     private Product product;
+
+    /**
+     * Sets the product and records its current price and description on this
+     * item, so later repricing does not change what the item was sold for.
+     */
+    public void snapshotProduct(Product product) {
+        this.product = product;
+        this.unitPrice = product.getPrice();
+        this.description = product.getDescription();
+    }
+
+    /**
+     * @return the price the item was sold at, or the product's current price
+     *         for an older row that has not been backfilled yet
+     */
+    public BigDecimal effectiveUnitPrice() {
+        if (unitPrice != null) {
+            return unitPrice;
+        }
+        return product == null ? null : product.getPrice();
+    }
 }
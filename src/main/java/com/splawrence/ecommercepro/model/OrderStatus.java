@@ -0,0 +1,52 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The states an order moves through during fulfillment, in order. The label
+ * is the value stored in {@link Order#getStatus()}.
+ */
+public enum OrderStatus {
+    NEW("New"),
+    PROCESSING("Processing"),
+    SHIPPED("Shipped"),
+    COMPLETED("Completed");
+
+    private final String label;
+
+    OrderStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the state that follows this one, or empty if this is the final state
+     */
+    public Optional<OrderStatus> next() {
+        OrderStatus[] values = values();
+        return ordinal() + 1 < values.length ? Optional.of(values[ordinal() + 1]) : Optional.empty();
+    }
+
+    /**
+     * @return the labels of every state that still has a next state
+     */
+    public static List<String> pendingLabels() {
+        return Arrays.stream(values())
+                .filter(status -> status.next().isPresent())
+                .map(OrderStatus::getLabel)
+                .toList();
+    }
+
+    /**
+     * @param label a stored status value
+     * @return the matching state, or empty for free-text statuses outside the pipeline
+     */
+    public static Optional<OrderStatus> fromLabel(String label) {
+        return Arrays.stream(values()).filter(status -> status.label.equals(label)).findFirst();
+    }
+}
@@ -0,0 +1,24 @@
+package com.splawrence.ecommercepro.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The status of an order at a point in time, as pushed to order status stream
+ * subscribers.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusEvent {
+    private Long orderId;
+    private String status;
+    private LocalDateTime updated;
+
+    public static OrderStatusEvent of(Order order) {
+        return new OrderStatusEvent(order.getId(), order.getStatus(), order.getUpdated());
+    }
+}
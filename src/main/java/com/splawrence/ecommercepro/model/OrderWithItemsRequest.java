@@ -0,0 +1,29 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A new order and its line items, created together in one transaction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderWithItemsRequest {
+    private String status;
+    private List<Line> items;
+
+    /**
+     * One line item: a quantity of a product.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private int quantity;
+    }
+}
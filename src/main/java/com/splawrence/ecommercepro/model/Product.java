@@ -7,6 +7,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.transaction.Transactional;
 import lombok.Data;
@@ -18,8 +19,9 @@ import java.math.BigDecimal;
 @Entity
 @Data
 @Transactional
-@Table(name = "products")
-public class Product {
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_updated_id", columnList = "updated, id") })
+public class Product implements Auditable {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(name = "id")
@@ -28,6 +30,11 @@ public class Product {
     private String description;
     @Column(name = "price", nullable = false)
     private BigDecimal price;
+    // units on hand, or null if stock is not tracked for this product. Only
+    // written by the stock updates in ProductRepository, so saving a product
+    // read before a reservation committed cannot overwrite the reservation.
+    @Column(name = "stock", updatable = false)
+    private Integer stock;
     @Column(name = "created", nullable = false)
     private LocalDateTime created;
     @Column(name = "updated", nullable = false)
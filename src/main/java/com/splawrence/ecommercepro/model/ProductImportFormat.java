@@ -0,0 +1,56 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.Arrays;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.http.MediaType;
+
+/**
+ * The input formats accepted by the bulk product import.
+ */
+public enum ProductImportFormat {
+    /** Comma separated values with an {@code id,description,price} header; id may be left empty. */
+    CSV(ProductImportFormat.CSV_VALUE, ".csv"),
+    /** One JSON object per line with {@code id}, {@code description} and {@code price} fields. */
+    NDJSON(ProductImportFormat.NDJSON_VALUE, ".ndjson");
+
+    public static final String CSV_VALUE = "text/csv";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ProductImportFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @param contentType a Content-Type header value
+     * @return the matching format
+     * @throws BadRequestException if the content type is not an import format
+     */
+    public static ProductImportFormat fromContentType(String contentType) throws BadRequestException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        return Arrays.stream(values())
+                .filter(format -> format.mediaType.isCompatibleWith(mediaType))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Unsupported import content type: " + contentType));
+    }
+
+    /**
+     * @param fileName the name of a file to import
+     * @return the format matching the file extension
+     * @throws BadRequestException if the extension is not an import format
+     */
+    public static ProductImportFormat fromFileName(String fileName) throws BadRequestException {
+        return Arrays.stream(values())
+                .filter(format -> fileName.toLowerCase().endsWith(format.extension))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Unsupported import file type: " + fileName));
+    }
+}
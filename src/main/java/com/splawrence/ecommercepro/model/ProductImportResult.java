@@ -0,0 +1,33 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcome of a bulk product import. Only the first rejected rows are
+ * listed in {@code errors}; {@code rejected} counts all of them.
+ */
+@Data
+@NoArgsConstructor
+public class ProductImportResult {
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private List<RowError> errors = new ArrayList<>();
+    private long durationMillis;
+
+    /**
+     * A row that was not imported, by its 1-based line number in the input.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
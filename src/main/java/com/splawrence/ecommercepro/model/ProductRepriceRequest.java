@@ -0,0 +1,42 @@
+package com.splawrence.ecommercepro.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bulk repricing, given either as explicit new prices by product id or as a
+ * rule. Exactly one of {@code prices} and {@code rule} must be set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRepriceRequest {
+    private Map<Long, BigDecimal> prices;
+    private Rule rule;
+
+    /**
+     * Changes the price of every matching product by a percentage, rounded to
+     * cents. The filters are optional and combine with AND; a rule without
+     * filters reprices the whole catalog.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+        /**
+         * The change in percent, e.g. 10 for a 10% rise or -25 for a 25% cut,
+         * from -100 up to {@code ecommercepro.product-reprice.max-percent}.
+         */
+        private BigDecimal percent;
+        /** The lowest product id to reprice, inclusive. */
+        private Long minId;
+        /** The highest product id to reprice, inclusive. */
+        private Long maxId;
+        /** Text the description must contain, ignoring case. */
+        private String descriptionContains;
+    }
+}
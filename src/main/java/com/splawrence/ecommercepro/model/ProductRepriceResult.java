@@ -0,0 +1,19 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcome of a bulk repricing. {@code missing} lists the ids of an
+ * explicit price map that do not exist; it is always empty for a rule.
+ */
+@Data
+@NoArgsConstructor
+public class ProductRepriceResult {
+    private long updated;
+    private List<Long> missing = new ArrayList<>();
+    private long durationMillis;
+}
@@ -0,0 +1,20 @@
+package com.splawrence.ecommercepro.model;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The quantity sold and revenue of one product over a report's date range.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSales {
+    private Long productId;
+    private String description;
+    private long quantity;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,26 @@
+package com.splawrence.ecommercepro.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.apache.coyote.BadRequestException;
+
+/**
+ * What the top products report ranks by.
+ */
+public enum SalesMetric {
+    QUANTITY,
+    REVENUE;
+
+    /**
+     * @param value {@code quantity} or {@code revenue}, in any case
+     * @return the matching metric
+     * @throws BadRequestException if the value names no metric
+     */
+    public static SalesMetric fromValue(String value) throws BadRequestException {
+        return Arrays.stream(values())
+                .filter(metric -> metric.name().equals(value.trim().toUpperCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Unknown sales metric: " + value));
+    }
+}
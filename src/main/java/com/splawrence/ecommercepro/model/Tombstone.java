@@ -0,0 +1,40 @@
+package com.splawrence.ecommercepro.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Records the deletion of a row so that change feed clients can see deletes.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "tombstones", indexes = {
+        @Index(name = "idx_tombstones_type_deleted_entity", columnList = "entity_type, deleted, entity_id") })
+public class Tombstone {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "id")
+    private Long id;
+    @Column(name = "entity_type", nullable = false)
+    private String entityType;
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+    @Column(name = "deleted", nullable = false)
+    private LocalDateTime deleted;
+
+    public Tombstone(String entityType, Long entityId, LocalDateTime deleted) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,15 @@
+package com.splawrence.ecommercepro.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The number of rows in a table and how it was worked out; never
+ * {@link CountMode#AUTO}.
+ */
+@Data
+@AllArgsConstructor
+public class TotalCount {
+    private long count;
+    private CountMode mode;
+}
@@ -0,0 +1,167 @@
+package com.splawrence.ecommercepro.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+/**
+ * Reads only the requested fields of an entity for the {@code ?fields=}
+ * endpoints.
+ * <p>
+ * Fields are selected with a criteria tuple query, so unrequested columns are
+ * never read and an association is only joined when one of its non-id fields
+ * is requested. A field is either a basic attribute ({@code quantity}), an
+ * attribute of a many-to-one association ({@code product.description}) or an
+ * association name on its own, which selects all of its basic attributes.
+ */
+@Repository
+public class FieldProjectionRepository {
+    private final EntityManager entityManager;
+
+    public FieldProjectionRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @return every row of the entity, ordered by id, with only the requested fields
+     * @throws BadRequestException if a field does not exist
+     */
+    public List<Map<String, Object>> findAll(Class<?> entityType, List<String> fields) throws BadRequestException {
+        List<String> paths = resolve(entityType, fields);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : query(entityType, paths, null).getResultList()) {
+            rows.add(toMap(paths, tuple));
+        }
+        return rows;
+    }
+
+    /**
+     * @return the row with the given id, with only the requested fields
+     * @throws BadRequestException if a field does not exist
+     */
+    public Optional<Map<String, Object>> findById(Class<?> entityType, Long id, List<String> fields)
+            throws BadRequestException {
+        List<String> paths = resolve(entityType, fields);
+        return query(entityType, paths, id).getResultStream().findFirst().map(tuple -> toMap(paths, tuple));
+    }
+
+    private TypedQuery<Tuple> query(Class<?> entityType, List<String> paths, Long id) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<?> root = query.from(entityType);
+        Map<String, From<?, ?>> joins = new HashMap<>();
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String path : paths) {
+            int dot = path.indexOf('.');
+            if (dot < 0) {
+                selections.add(root.get(path));
+                continue;
+            }
+            String association = path.substring(0, dot);
+            String attribute = path.substring(dot + 1);
+            if (attribute.equals(idName(root.get(association).getJavaType()))) {
+                // the foreign key column already holds the id, no join needed
+                selections.add(root.get(association).get(attribute));
+            } else {
+                selections.add(joins.computeIfAbsent(association, name -> root.join(name, JoinType.LEFT))
+                        .get(attribute));
+            }
+        }
+        query.multiselect(selections);
+        String rootId = idName(entityType);
+        if (id != null) {
+            query.where(criteriaBuilder.equal(root.get(rootId), id));
+        }
+        query.orderBy(criteriaBuilder.asc(root.get(rootId)));
+        return entityManager.createQuery(query);
+    }
+
+    private List<String> resolve(Class<?> entityType, List<String> fields) throws BadRequestException {
+        EntityType<?> type = entityManager.getMetamodel().entity(entityType);
+        Set<String> paths = new LinkedHashSet<>();
+        for (String field : fields) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\.");
+            Attribute<?, ?> attribute = attribute(type, parts[0], trimmed);
+            if (!attribute.isAssociation()) {
+                if (parts.length > 1) {
+                    throw new BadRequestException("Unknown field: " + trimmed);
+                }
+                paths.add(trimmed);
+                continue;
+            }
+            EntityType<?> target = entityManager.getMetamodel().entity(attribute.getJavaType());
+            if (parts.length == 1) {
+                for (Attribute<?, ?> nested : target.getAttributes()) {
+                    if (!nested.isAssociation() && !nested.isCollection()) {
+                        paths.add(parts[0] + "." + nested.getName());
+                    }
+                }
+            } else if (parts.length == 2 && !attribute(target, parts[1], trimmed).isAssociation()) {
+                paths.add(trimmed);
+            } else {
+                throw new BadRequestException("Unknown field: " + trimmed);
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new BadRequestException("At least one field must be supplied");
+        }
+        return new ArrayList<>(paths);
+    }
+
+    private static Attribute<?, ?> attribute(EntityType<?> type, String name, String field)
+            throws BadRequestException {
+        for (Attribute<?, ?> attribute : type.getAttributes()) {
+            if (attribute.getName().equals(name) && !attribute.isCollection()) {
+                return attribute;
+            }
+        }
+        throw new BadRequestException("Unknown field: " + field);
+    }
+
+    private String idName(Class<?> entityType) {
+        EntityType<?> type = entityManager.getMetamodel().entity(entityType);
+        SingularAttribute<?, ?> id = type.getId(type.getIdType().getJavaType());
+        return id.getName();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(List<String> paths, Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            int dot = path.indexOf('.');
+            if (dot < 0) {
+                row.put(path, tuple.get(i));
+            } else {
+                ((Map<String, Object>) row.computeIfAbsent(path.substring(0, dot), name -> new LinkedHashMap<>()))
+                        .put(path.substring(dot + 1), tuple.get(i));
+            }
+        }
+        return row;
+    }
+}
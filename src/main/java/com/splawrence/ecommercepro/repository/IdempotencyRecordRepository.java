@@ -0,0 +1,56 @@
+package com.splawrence.ecommercepro.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.splawrence.ecommercepro.model.IdempotencyRecord;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    /**
+     * Inserts a pending record for the key unless one exists, committing
+     * straight away so other instances see the claim.
+     *
+     * @return 1 if this call claimed the key, 0 if it was already claimed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, created, request_hash, response_type)"
+            + " VALUES (:key, :created, :requestHash, :responseType) ON CONFLICT DO NOTHING", nativeQuery = true)
+    public int claim(@Param("key") String key, @Param("created") LocalDateTime created,
+            @Param("requestHash") String requestHash, @Param("responseType") String responseType);
+
+    /**
+     * Takes over a pending claim, if it is still the one read at {@code claimed}.
+     *
+     * @return 1 if this call took the claim over
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.created = :created"
+            + " WHERE r.key = :key AND r.response IS NULL AND r.created = :claimed")
+    public int reclaim(@Param("key") String key, @Param("created") LocalDateTime created,
+            @Param("claimed") LocalDateTime claimed);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.response = :response WHERE r.key = :key")
+    public int complete(@Param("key") String key, @Param("response") String response);
+
+    /**
+     * Drops a pending claim so the key can be retried.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.response IS NULL")
+    public int release(@Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.created < :cutoff")
+    public int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,12 +1,48 @@
 package com.splawrence.ecommercepro.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.splawrence.ecommercepro.model.OrderItem;
 
+import jakarta.persistence.LockModeType;
+
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     public List<OrderItem> findByOrderId(@Param("id") Long id);
+
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.updated > :updated OR (oi.updated = :updated AND oi.id > :id)"
+            + " ORDER BY oi.updated, oi.id")
+    public List<OrderItem> findChangedSince(@Param("updated") LocalDateTime updated, @Param("id") Long id,
+            Pageable pageable);
+
+    /**
+     * Reads rows stamped at or after {@code from} up to and including the
+     * cursor, newest first, for the change feed's overlap replay.
+     */
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.updated >= :from"
+            + " AND (oi.updated < :updated OR (oi.updated = :updated AND oi.id <= :id))"
+            + " ORDER BY oi.updated DESC, oi.id DESC")
+    public List<OrderItem> findChangedBetween(@Param("from") LocalDateTime from,
+            @Param("updated") LocalDateTime updated, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Reads one page without the {@code COUNT(*)} a {@code Page} would run.
+     */
+    public Slice<OrderItem> findAllBy(Pageable pageable);
+
+    /**
+     * Reads the item and locks its row until the transaction ends, so
+     * concurrent changes to its quantity reserve or release stock one at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.id = :id")
+    public Optional<OrderItem> findByIdForUpdate(@Param("id") Long id);
 }
@@ -1,9 +1,46 @@
 package com.splawrence.ecommercepro.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.splawrence.ecommercepro.model.Order;
 
 public interface OrderRepository extends JpaRepository<Order, Long>{
-    
+    @Query("SELECT o FROM Order o WHERE o.updated > :updated OR (o.updated = :updated AND o.id > :id)"
+            + " ORDER BY o.updated, o.id")
+    public List<Order> findChangedSince(@Param("updated") LocalDateTime updated, @Param("id") Long id,
+            Pageable pageable);
+
+    /**
+     * Reads rows stamped at or after {@code from} up to and including the
+     * cursor, newest first, for the change feed's overlap replay.
+     */
+    @Query("SELECT o FROM Order o WHERE o.updated >= :from"
+            + " AND (o.updated < :updated OR (o.updated = :updated AND o.id <= :id))"
+            + " ORDER BY o.updated DESC, o.id DESC")
+    public List<Order> findChangedBetween(@Param("from") LocalDateTime from,
+            @Param("updated") LocalDateTime updated, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Locks up to {@code limit} orders in the given statuses last updated
+     * before {@code before}, oldest first, skipping rows already locked by
+     * another worker or instance. Must be called inside a transaction; the
+     * locks are held until it commits.
+     */
+    @Query(value = "SELECT * FROM orders WHERE status IN (:statuses) AND updated < :before"
+            + " ORDER BY updated, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    public List<Order> claimBatch(@Param("statuses") Collection<String> statuses,
+            @Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * Reads one page without the {@code COUNT(*)} a {@code Page} would run.
+     */
+    public Slice<Order> findAllBy(Pageable pageable);
 }
@@ -1,8 +1,64 @@
 package com.splawrence.ecommercepro.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.splawrence.ecommercepro.model.Product;
 
 public interface ProductRepository extends JpaRepository<Product, Long>{
+    @Query("SELECT p FROM Product p WHERE p.updated > :updated OR (p.updated = :updated AND p.id > :id)"
+            + " ORDER BY p.updated, p.id")
+    public List<Product> findChangedSince(@Param("updated") LocalDateTime updated, @Param("id") Long id,
+            Pageable pageable);
+
+    /**
+     * Reads rows stamped at or after {@code from} up to and including the
+     * cursor, newest first, for the change feed's overlap replay.
+     */
+    @Query("SELECT p FROM Product p WHERE p.updated >= :from"
+            + " AND (p.updated < :updated OR (p.updated = :updated AND p.id <= :id))"
+            + " ORDER BY p.updated DESC, p.id DESC")
+    public List<Product> findChangedBetween(@Param("from") LocalDateTime from,
+            @Param("updated") LocalDateTime updated, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Takes {@code quantity} units if at least that many are in stock. The
+     * check and the decrement are one statement, so the row is only locked
+     * for the duration of the update when called outside a transaction.
+     *
+     * @return 1 if the stock was reserved, 0 if the product does not exist,
+     *         does not track stock or has too few units
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity WHERE p.id = :id AND p.stock >= :quantity")
+    public int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Returns {@code quantity} units taken by {@link #reserveStock}.
+     *
+     * @return 1 if the stock was released, 0 if the product does not track stock
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity WHERE p.id = :id AND p.stock IS NOT NULL")
+    public int releaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Sets the units on hand, for an explicit stock change by an
+     * administrator. A full-row save never writes stock.
+     *
+     * @return 1 if the product exists, otherwise 0
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = :stock WHERE p.id = :id")
+    public int setStock(@Param("id") Long id, @Param("stock") Integer stock);
 }
@@ -0,0 +1,26 @@
+package com.splawrence.ecommercepro.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.splawrence.ecommercepro.model.Tombstone;
+
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+    @Query("SELECT t FROM Tombstone t WHERE t.entityType = :entityType"
+            + " AND (t.deleted > :updated OR (t.deleted = :updated AND t.entityId > :id))"
+            + " ORDER BY t.deleted, t.entityId")
+    public List<Tombstone> findChangedSince(@Param("entityType") String entityType,
+            @Param("updated") LocalDateTime updated, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT t FROM Tombstone t WHERE t.entityType = :entityType AND t.deleted >= :from"
+            + " AND (t.deleted < :updated OR (t.deleted = :updated AND t.entityId <= :id))"
+            + " ORDER BY t.deleted DESC, t.entityId DESC")
+    public List<Tombstone> findChangedBetween(@Param("entityType") String entityType,
+            @Param("from") LocalDateTime from, @Param("updated") LocalDateTime updated, @Param("id") Long id,
+            Pageable pageable);
+}
@@ -0,0 +1,173 @@
+package com.splawrence.ecommercepro.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.splawrence.ecommercepro.model.ChangeCursor;
+import com.splawrence.ecommercepro.model.Product;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads and writes the binary catalog snapshot.
+ * <p>
+ * Layout, big-endian: a header of magic, version and the change cursor the
+ * snapshot is consistent up to, then one fixed-prefix record per product (id,
+ * unscaled price and scale, created and updated as epoch seconds and nanos,
+ * stock or -1, description length and UTF-8 bytes), then the product count
+ * and a CRC32 of everything before it. The count trails the records so a
+ * store can be streamed out without collecting it first. A file is written
+ * to a temporary sibling and moved into place, so readers only ever see a
+ * complete snapshot.
+ * <p>
+ * A product whose price does not fit the record is left out with a warning
+ * rather than failing the whole snapshot. It is read from the database until
+ * a later change brings it back into the cache.
+ */
+@Slf4j
+final class CatalogSnapshotFile {
+    static final int MAGIC = 0x45435053; // "ECPS"
+    static final int VERSION = 2;
+
+    private static final int NO_STOCK = -1;
+
+    private CatalogSnapshotFile() {
+    }
+
+    /**
+     * Writes the products and the cursor they are consistent up to.
+     *
+     * @param products hands every product to write to the consumer it is given
+     */
+    static void write(Path path, ChangeCursor cursor, Consumer<Consumer<Product>> products) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temp);
+                    DataOutputStream out = new DataOutputStream(
+                            new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeTimestamp(out, cursor.getUpdated());
+                out.writeLong(cursor.getId());
+                int[] count = { 0 };
+                products.accept(product -> {
+                    if (!encodable(product)) {
+                        log.warn("CatalogSnapshotFile skipping Product {} with price {} that does not fit a record",
+                                product.getId(), product.getPrice());
+                        return;
+                    }
+                    try {
+                        writeProduct(out, product);
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                out.writeInt(count[0]);
+                out.flush();
+                // the checksum covers everything written so far and is not part of itself
+                new DataOutputStream(file).writeLong(crc.getValue());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps the snapshot read-only and hands each product to the consumer.
+     *
+     * @return the cursor the snapshot is consistent up to
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    static ChangeCursor read(Path path, Consumer<Product> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Integer.BYTES + Long.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Catalog snapshot has an invalid size: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyLength = (int) size - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, bodyLength));
+            if (crc.getValue() != buffer.getLong(bodyLength)) {
+                throw new IOException("Catalog snapshot checksum mismatch");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " catalog snapshot");
+            }
+            ChangeCursor cursor = new ChangeCursor(readTimestamp(buffer), buffer.getLong());
+            int count = buffer.getInt(bodyLength - Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                consumer.accept(readProduct(buffer));
+            }
+            return cursor;
+        }
+    }
+
+    private static boolean encodable(Product product) {
+        BigDecimal price = product.getPrice();
+        return price != null && price.unscaledValue().bitLength() < Long.SIZE
+                && price.scale() >= Byte.MIN_VALUE && price.scale() <= Byte.MAX_VALUE;
+    }
+
+    private static void writeProduct(DataOutputStream out, Product product) throws IOException {
+        out.writeLong(product.getId());
+        out.writeLong(product.getPrice().unscaledValue().longValueExact());
+        out.writeByte(product.getPrice().scale());
+        writeTimestamp(out, product.getCreated());
+        writeTimestamp(out, product.getUpdated());
+        out.writeInt(product.getStock() != null ? product.getStock() : NO_STOCK);
+        byte[] description = product.getDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(description.length);
+        out.write(description);
+    }
+
+    private static Product readProduct(ByteBuffer buffer) {
+        Product product = new Product();
+        product.setId(buffer.getLong());
+        long unscaledPrice = buffer.getLong();
+        product.setPrice(new BigDecimal(BigInteger.valueOf(unscaledPrice), buffer.get()));
+        product.setCreated(readTimestamp(buffer));
+        product.setUpdated(readTimestamp(buffer));
+        int stock = buffer.getInt();
+        product.setStock(stock != NO_STOCK ? stock : null);
+        byte[] description = new byte[buffer.getInt()];
+        buffer.get(description);
+        product.setDescription(new String(description, StandardCharsets.UTF_8));
+        return product;
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(ByteBuffer buffer) {
+        long epochSecond = buffer.getLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(), ZoneOffset.UTC);
+    }
+}
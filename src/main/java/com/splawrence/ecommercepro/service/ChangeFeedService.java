@@ -0,0 +1,208 @@
+package com.splawrence.ecommercepro.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import com.splawrence.ecommercepro.model.Auditable;
+import com.splawrence.ecommercepro.model.ChangeCursor;
+import com.splawrence.ecommercepro.model.ChangeSet;
+import com.splawrence.ecommercepro.model.Tombstone;
+import com.splawrence.ecommercepro.repository.TombstoneRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds incremental "changed since" pages for the list endpoints and records
+ * the tombstones that make deletes visible to them.
+ * <p>
+ * {@code updated} and tombstone timestamps come from the application clock
+ * and are set before the transaction commits, so a slow transaction can
+ * commit a row behind a cursor a client has already moved past. Each cursor
+ * therefore also records when its page was read, and the next page re-sends
+ * the rows and tombstones stamped between {@code overlap} before that read
+ * and the cursor: anything older had committed by the time of the read and
+ * was sent then. The replay is read from the cursor end, nearest first, and
+ * takes at most half of the page, so a page never exceeds its limit and
+ * always moves the cursor forward.
+ * <p>
+ * Delivery is at least once: a row whose transaction commits within
+ * {@code overlap} of its timestamp is never missed unless more than half a
+ * page of rows were stamped in the window ahead of it, and clients must apply
+ * changes by id, keeping the newest {@code updated}. Rows are only re-sent
+ * until {@code overlap} has passed since they were first read.
+ */
+@Service
+@Slf4j
+public class ChangeFeedService {
+    public static final String PRODUCTS = "products";
+    public static final String ORDERS = "orders";
+    public static final String ORDER_ITEMS = "order_items";
+
+    /**
+     * Looks up rows changed after a cursor, in (updated, id) order.
+     */
+    @FunctionalInterface
+    public interface ChangeQuery<T> {
+        List<T> findChangedSince(LocalDateTime updated, Long id, Pageable pageable);
+    }
+
+    /**
+     * Looks up rows stamped at or after a time up to and including a cursor,
+     * in descending (updated, id) order.
+     */
+    @FunctionalInterface
+    public interface ReplayQuery<T> {
+        List<T> findChangedBetween(LocalDateTime from, LocalDateTime updated, Long id, Pageable pageable);
+    }
+
+    private final TombstoneRepository tombstoneRepository;
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final Duration overlap;
+
+    public ChangeFeedService(TombstoneRepository tombstoneRepository,
+            @Value("${ecommercepro.changes.default-limit:100}") int defaultLimit,
+            @Value("${ecommercepro.changes.max-limit:1000}") int maxLimit,
+            @Value("${ecommercepro.changes.overlap:5s}") Duration overlap) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.overlap = overlap;
+    }
+
+    /**
+     * Records that a row has been deleted.
+     *
+     * @param entityType the table the row belonged to
+     * @param id         the id of the deleted row
+     */
+    public void recordDeletion(String entityType, Long id) {
+        tombstoneRepository.save(new Tombstone(entityType, id, LocalDateTime.now()));
+    }
+
+    /**
+     * Returns the rows changed and deleted after the given cursor.
+     * <p>
+     * Changed rows and tombstones are merged into a single stream ordered by
+     * (timestamp, id), so the returned cursor resumes both of them. Rows and
+     * tombstones replayed from the overlap before the cursor come first and
+     * count towards the limit.
+     *
+     * @param entityType the table to read tombstones for
+     * @param since      the cursor to resume from, or null to start at the beginning
+     * @param limit      the requested page size, capped at the configured maximum
+     * @param query      the repository query for changed rows
+     * @param replay     the repository query for rows in the overlap before the cursor
+     * @return the next page of the change feed
+     * @throws BadRequestException if the cursor or limit is invalid
+     */
+    public <T extends Auditable> ChangeSet<T> changesSince(String entityType, String since, Integer limit,
+            ChangeQuery<T> query, ReplayQuery<T> replay) throws BadRequestException {
+        ChangeCursor cursor = ChangeCursor.parse(since);
+        int pageSize = resolveLimit(limit);
+        // rows stamped before this had committed when the page was read, so the next page need not replay them
+        LocalDateTime read = LocalDateTime.now();
+
+        List<T> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        if (!overlap.isZero() && !cursor.equals(ChangeCursor.START)) {
+            replayOverlap(entityType, cursor, pageSize / 2, replay, changed, deleted);
+        }
+        int replayed = changed.size() + deleted.size();
+
+        // fetch one extra row from each side so we can tell whether more remain
+        Pageable page = PageRequest.of(0, pageSize - replayed + 1);
+        List<T> rows = query.findChangedSince(cursor.getUpdated(), cursor.getId(), page);
+        List<Tombstone> tombstones = tombstoneRepository.findChangedSince(entityType, cursor.getUpdated(),
+                cursor.getId(), page);
+
+        ChangeCursor next = cursor;
+        int r = 0;
+        int t = 0;
+        while (changed.size() + deleted.size() < pageSize && (r < rows.size() || t < tombstones.size())) {
+            boolean takeRow = t >= tombstones.size()
+                    || (r < rows.size() && compare(rows.get(r), tombstones.get(t)) <= 0);
+            if (takeRow) {
+                T row = rows.get(r++);
+                changed.add(row);
+                next = new ChangeCursor(row.getUpdated(), row.getId());
+            } else {
+                Tombstone tombstone = tombstones.get(t++);
+                deleted.add(tombstone.getEntityId());
+                next = new ChangeCursor(tombstone.getDeleted(), tombstone.getEntityId());
+            }
+        }
+        boolean hasMore = r < rows.size() || t < tombstones.size();
+        log.debug("ChangeFeedService.changesSince {} from {}: {} changed, {} deleted, {} replayed", entityType,
+                cursor, changed.size(), deleted.size(), replayed);
+        return new ChangeSet<>(changed, deleted,
+                new ChangeCursor(next.getUpdated(), next.getId(), read).toString(), hasMore);
+    }
+
+    /**
+     * Adds up to {@code budget} of the rows and tombstones stamped within the
+     * overlap before the cursor, taking those nearest the cursor first and
+     * returning them in ascending order.
+     */
+    private <T extends Auditable> void replayOverlap(String entityType, ChangeCursor cursor, int budget,
+            ReplayQuery<T> replay, List<T> changed, List<Long> deleted) {
+        LocalDateTime from = cursor.getUpdated().minus(overlap);
+        if (cursor.getRead() != null && cursor.getRead().minus(overlap).isAfter(from)) {
+            from = cursor.getRead().minus(overlap);
+        }
+        if (budget == 0 || from.isAfter(cursor.getUpdated())) {
+            return;
+        }
+        Pageable window = PageRequest.of(0, budget);
+        List<T> rows = replay.findChangedBetween(from, cursor.getUpdated(), cursor.getId(), window);
+        List<Tombstone> tombstones = tombstoneRepository.findChangedBetween(entityType, from, cursor.getUpdated(),
+                cursor.getId(), window);
+
+        List<T> replayedRows = new ArrayList<>();
+        List<Long> replayedDeletions = new ArrayList<>();
+        int r = 0;
+        int t = 0;
+        while (replayedRows.size() + replayedDeletions.size() < budget
+                && (r < rows.size() || t < tombstones.size())) {
+            boolean takeRow = t >= tombstones.size()
+                    || (r < rows.size() && compare(rows.get(r), tombstones.get(t)) >= 0);
+            if (takeRow) {
+                replayedRows.add(rows.get(r++));
+            } else {
+                replayedDeletions.add(tombstones.get(t++).getEntityId());
+            }
+        }
+        if (r < rows.size() || t < tombstones.size()) {
+            log.debug("ChangeFeedService.replayOverlap {} window from {} holds more than {} entries", entityType,
+                    from, budget);
+        }
+        Collections.reverse(replayedRows);
+        Collections.reverse(replayedDeletions);
+        changed.addAll(replayedRows);
+        deleted.addAll(replayedDeletions);
+    }
+
+    private int resolveLimit(Integer limit) throws BadRequestException {
+        if (limit == null) {
+            return Math.min(defaultLimit, maxLimit);
+        }
+        if (limit < 1) {
+            throw new BadRequestException("limit must be at least 1");
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    private static int compare(Auditable row, Tombstone tombstone) {
+        int byTime = row.getUpdated().compareTo(tombstone.getDeleted());
+        return byTime != 0 ? byTime : row.getId().compareTo(tombstone.getEntityId());
+    }
+}
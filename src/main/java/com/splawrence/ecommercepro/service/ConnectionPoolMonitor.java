@@ -0,0 +1,210 @@
+package com.splawrence.ecommercepro.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Samples the Hikari connection pool, resizes it within bounds and takes the
+ * instance out of readiness while it is saturated.
+ * <p>
+ * Each sample compares the mean connection acquire time since the previous
+ * sample and the recent {@code usage-percentile} of the time connections were
+ * held, read from the {@code hikaricp.connections.*} timers, with their
+ * targets. A percentile rather than the mean, so a few connections held for
+ * minutes by imports and backfills do not read as a slow database. When
+ * requests wait for connections the pool grows by roughly its square root,
+ * unless connections are held for longer than {@code tolerance} times their
+ * long-term level: the database itself is then the bottleneck and more
+ * connections would only queue inside it, so the pool keeps its size. It
+ * never shrinks while requests wait; once none do, a slow database or a pool
+ * that is less than half used shrinks it by one, and the surplus connections
+ * are closed once idle for {@code spring.datasource.hikari.idle-timeout}.
+ * <p>
+ * The pool is saturated when every connection is in use, requests are
+ * waiting and the pool is not growing. Readiness is then set to
+ * {@code REFUSING_TRAFFIC}, so the load balancer sends new requests to other
+ * instances, and back to {@code ACCEPTING_TRAFFIC} once the pool is
+ * unsaturated. Either change needs {@code readiness-samples} samples in a
+ * row, so a pool hovering at its limit does not flap readiness every interval.
+ */
+@Service
+@Slf4j
+public class ConnectionPoolMonitor {
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+    private static final String USAGE_TIMER = "hikaricp.connections.usage";
+    private static final double BASELINE_SMOOTHING = 0.05;
+
+    private record Reading(long count, double totalNanos) {
+        static final Reading NONE = new Reading(0, 0);
+
+        /**
+         * @return the mean of the samples recorded since the previous reading,
+         *         or NaN if there were none
+         */
+        double meanSince(Reading previous) {
+            long samples = count - previous.count;
+            return samples > 0 ? (totalNanos - previous.totalNanos) / samples : Double.NaN;
+        }
+    }
+
+    private final HikariDataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean adaptiveSizing;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTargetNanos;
+    private final double tolerance;
+    private final double usagePercentile;
+    private final int readinessSamples;
+    private final Counter grown;
+    private final Counter shrunk;
+    private Reading acquire = Reading.NONE;
+    private Reading usage = Reading.NONE;
+    private double baselineUsageNanos;
+    private volatile boolean saturated;
+    // samples in a row that disagreed with the readiness state
+    private int readinessChangeSamples;
+
+    public ConnectionPoolMonitor(DataSource dataSource, MeterRegistry meterRegistry,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${ecommercepro.connection-pool.adaptive-sizing:false}") boolean adaptiveSizing,
+            @Value("${ecommercepro.connection-pool.min-size:5}") int minSize,
+            @Value("${ecommercepro.connection-pool.max-size:30}") int maxSize,
+            @Value("${ecommercepro.connection-pool.acquire-target:5ms}") Duration acquireTarget,
+            @Value("${ecommercepro.connection-pool.tolerance:2.0}") double tolerance,
+            @Value("${ecommercepro.connection-pool.usage-percentile:0.5}") double usagePercentile,
+            @Value("${ecommercepro.connection-pool.readiness-samples:3}") int readinessSamples) {
+        this.dataSource = dataSource instanceof HikariDataSource hikari ? hikari : null;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        this.adaptiveSizing = adaptiveSizing;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTargetNanos = acquireTarget.toNanos();
+        this.tolerance = tolerance;
+        this.usagePercentile = usagePercentile;
+        this.readinessSamples = Math.max(1, readinessSamples);
+        this.grown = Counter.builder("ecommercepro.connection-pool.resizes")
+                .description("Changes to the connection pool's maximum size")
+                .tag("direction", "grow")
+                .register(meterRegistry);
+        this.shrunk = Counter.builder("ecommercepro.connection-pool.resizes")
+                .description("Changes to the connection pool's maximum size")
+                .tag("direction", "shrink")
+                .register(meterRegistry);
+        Gauge.builder("ecommercepro.connection-pool.saturated", this, monitor -> monitor.saturated ? 1 : 0)
+                .description("1 while the connection pool is saturated and the instance is not ready")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${ecommercepro.connection-pool.interval-ms:5000}")
+    public void sample() {
+        // the pool starts with the first connection
+        HikariPoolMXBean pool = dataSource == null ? null : dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return;
+        }
+        HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+        int size = config.getMaximumPoolSize();
+        int active = pool.getActiveConnections();
+        int waiting = pool.getThreadsAwaitingConnection();
+
+        Reading acquireNow = read(ACQUIRE_TIMER);
+        Reading usageNow = read(USAGE_TIMER);
+        double acquireNanos = acquireNow.meanSince(acquire);
+        // only connections returned since the previous sample say anything new
+        double usageNanos = usageNow.count() > usage.count() ? usagePercentileNanos() : Double.NaN;
+        acquire = acquireNow;
+        usage = usageNow;
+
+        boolean databaseSlow = false;
+        if (!Double.isNaN(usageNanos)) {
+            databaseSlow = baselineUsageNanos > 0 && usageNanos > baselineUsageNanos * tolerance;
+            baselineUsageNanos = baselineUsageNanos == 0 ? usageNanos
+                    : baselineUsageNanos * (1 - BASELINE_SMOOTHING) + usageNanos * BASELINE_SMOOTHING;
+        }
+        int next = size;
+        if (waiting > 0 || acquireNanos > acquireTargetNanos) {
+            // shrinking now would only lengthen the wait, so a slow database holds the size
+            if (!databaseSlow) {
+                next = size + (int) Math.ceil(Math.sqrt(size));
+            }
+        } else if (databaseSlow || active < size / 2) {
+            next = size - 1;
+        }
+        next = Math.max(minSize, Math.min(maxSize, next));
+        if (adaptiveSizing && next != size) {
+            config.setMaximumPoolSize(next);
+            (next > size ? grown : shrunk).increment();
+            log.info("ConnectionPoolMonitor resized pool from {} to {}: {} waiting, acquire {} ms, usage p{} {} ms",
+                    size, next, waiting, millis(acquireNanos), Math.round(usagePercentile * 100), millis(usageNanos));
+        }
+
+        boolean nowSaturated = waiting > 0 && active >= size && (!adaptiveSizing || next <= size);
+        if (nowSaturated == saturated) {
+            readinessChangeSamples = 0;
+        } else if (++readinessChangeSamples >= readinessSamples) {
+            readinessChangeSamples = 0;
+            saturated = nowSaturated;
+            if (nowSaturated) {
+                log.warn("ConnectionPoolMonitor pool saturated: {} active of {}, {} waiting, refusing traffic",
+                        active, size, waiting);
+            } else {
+                log.info("ConnectionPoolMonitor pool recovered, accepting traffic");
+            }
+            AvailabilityChangeEvent.publish(eventPublisher, this,
+                    nowSaturated ? ReadinessState.REFUSING_TRAFFIC : ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    public boolean isSaturated() {
+        return saturated;
+    }
+
+    private Reading read(String timerName) {
+        Timer timer = meterRegistry.find(timerName).tag("pool", dataSource.getPoolName()).timer();
+        return timer == null ? Reading.NONE : new Reading(timer.count(), timer.totalTime(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * @return the configured percentile of the recent connection usage times,
+     *         or NaN if the usage timer does not publish it
+     */
+    private double usagePercentileNanos() {
+        Timer timer = meterRegistry.find(USAGE_TIMER).tag("pool", dataSource.getPoolName()).timer();
+        if (timer == null) {
+            return Double.NaN;
+        }
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == usagePercentile) {
+                return value.value(TimeUnit.NANOSECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String millis(double nanos) {
+        return Double.isNaN(nanos) ? "-" : String.format("%.1f", nanos / 1_000_000);
+    }
+}
@@ -0,0 +1,47 @@
+package com.splawrence.ecommercepro.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.splawrence.ecommercepro.model.Product;
+
+/**
+ * Keeps products as entities in a {@link ConcurrentHashMap}. Reads return the
+ * stored instance without copying.
+ */
+public class HeapProductStore implements ProductStore {
+    private final Map<Long, Product> products = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Product> get(long id) {
+        return Optional.ofNullable(products.get(id));
+    }
+
+    @Override
+    public void put(Product product) {
+        products.merge(product.getId(), product,
+                (stored, incoming) -> incoming.getUpdated().isBefore(stored.getUpdated()) ? stored : incoming);
+    }
+
+    @Override
+    public void remove(long id) {
+        products.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return products.size();
+    }
+
+    @Override
+    public void clear() {
+        products.clear();
+    }
+
+    @Override
+    public void forEach(Consumer<Product> consumer) {
+        products.values().forEach(consumer);
+    }
+}
@@ -0,0 +1,274 @@
+package com.splawrence.ecommercepro.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.splawrence.ecommercepro.exception.IdempotencyConflictException;
+import com.splawrence.ecommercepro.exception.IdempotencyKeyReusedException;
+import com.splawrence.ecommercepro.model.IdempotencyRecord;
+import com.splawrence.ecommercepro.repository.IdempotencyRecordRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Deduplicates retried POST requests that carry an Idempotency-Key header.
+ * <p>
+ * The first request for a key runs and its response is kept in a bounded,
+ * expiring in-memory store. Retries replay that response without touching the
+ * repositories, and concurrent duplicates wait on the same in-flight
+ * execution.
+ * <p>
+ * When the durable store is enabled, the first request also claims the key by
+ * inserting a pending row into the idempotency_keys table, and only runs if
+ * the claim succeeds; its response is then written to that row. Duplicates on
+ * other instances find the claim and wait for the response, or get a conflict
+ * once the wait times out, so a retry that lands on another instance neither
+ * runs the request again nor races the first one. A claim left pending longer
+ * than the claim timeout, e.g. because its instance died, can be taken over.
+ * <p>
+ * Each endpoint has its own scope, so the same key sent to two endpoints runs
+ * both. A key is stored with a hash of its request body, and a key reused with
+ * a different body, or whose stored response is of a different type than the
+ * endpoint returns, is rejected rather than replayed.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String PRODUCTS = "products";
+    public static final String ORDERS = "orders";
+    public static final String ORDERS_WITH_ITEMS = "orders-with-items";
+    public static final String ORDER_ITEMS = "order_items";
+    private static final int MAX_KEY_LENGTH = 200;
+    private static final long CLAIM_POLL_MILLIS = 50;
+
+    private final Cache<String, Execution> responses;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean durable;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration claimTimeout;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, ObjectMapper objectMapper,
+            @Value("${ecommercepro.idempotency.max-entries:10000}") long maxEntries,
+            @Value("${ecommercepro.idempotency.ttl:24h}") Duration ttl,
+            @Value("${ecommercepro.idempotency.wait-timeout:10s}") Duration waitTimeout,
+            @Value("${ecommercepro.idempotency.claim-timeout:1m}") Duration claimTimeout,
+            @Value("${ecommercepro.idempotency.durable:false}") boolean durable) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.durable = durable;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.claimTimeout = claimTimeout;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs the action once per idempotency key and replays its result for
+     * retries of the same key.
+     *
+     * @param scope   the endpoint the key belongs to, one of the scope constants, so keys do
+     *                not collide across endpoints
+     * @param key     the Idempotency-Key header value, or null to run the action unconditionally
+     * @param request the request body, hashed so a key reused with a different body is rejected
+     * @param type    the response type, used to replay responses from the durable store
+     * @param action  the request handling to run on the first call
+     * @return the response of the first execution for this key
+     * @throws BadRequestException           if the key is blank or too long
+     * @throws IdempotencyKeyReusedException if the key was used with a different request body, or
+     *                                       its response is not a {@code type}
+     * @throws IdempotencyConflictException  if the first request for the key is still running
+     *                                       after the wait timeout
+     */
+    public <T> T execute(String scope, String key, Object request, Class<T> type, Supplier<T> action)
+            throws BadRequestException {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String cacheKey = scope + ":" + key;
+        String requestHash = hash(request);
+
+        Execution execution = new Execution(requestHash, new CompletableFuture<>());
+        Execution existing = responses.asMap().putIfAbsent(cacheKey, execution);
+        if (existing != null) {
+            log.debug("IdempotencyService.execute replaying {}", cacheKey);
+            if (!existing.requestHash().equals(requestHash)) {
+                throw reused(cacheKey);
+            }
+            return cast(cacheKey, await(cacheKey, existing.response()), type);
+        }
+
+        boolean claimed = false;
+        try {
+            Optional<T> stored = claimDurable(cacheKey, requestHash, type);
+            T result;
+            if (stored.isPresent()) {
+                result = stored.get();
+            } else {
+                claimed = durable;
+                result = action.get();
+                completeDurable(cacheKey, result);
+            }
+            execution.response().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            // let the client retry a failed request with the same key
+            if (claimed) {
+                idempotencyRecordRepository.release(cacheKey);
+            }
+            responses.asMap().remove(cacheKey, execution);
+            execution.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes durable records older than the TTL.
+     */
+    @Scheduled(fixedDelayString = "${ecommercepro.idempotency.cleanup-interval-ms:3600000}",
+            initialDelayString = "${ecommercepro.idempotency.cleanup-interval-ms:3600000}")
+    public void evictExpired() {
+        if (!durable) {
+            return;
+        }
+        int removed = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        log.debug("IdempotencyService.evictExpired removed {} records", removed);
+    }
+
+    private Object await(String cacheKey, CompletableFuture<Object> execution) {
+        try {
+            return execution.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with " + HEADER + " " + cacheKey
+                    + " is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Interrupted waiting for " + HEADER + " " + cacheKey);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Claims the key in the durable store, or waits for the response of the
+     * request that holds the claim.
+     *
+     * @return the stored response, or empty if this request holds the claim and should run
+     */
+    private <T> Optional<T> claimDurable(String cacheKey, String requestHash, Class<T> type) {
+        if (!durable) {
+            return Optional.empty();
+        }
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            if (idempotencyRecordRepository.claim(cacheKey, LocalDateTime.now(), requestHash, type.getName()) == 1) {
+                return Optional.empty();
+            }
+            Optional<IdempotencyRecord> found = idempotencyRecordRepository.findById(cacheKey);
+            if (found.isEmpty()) {
+                // released by a failed request or evicted between the claim and the read
+                continue;
+            }
+            IdempotencyRecord idempotencyRecord = found.get();
+            // rows stored before the hash or type was recorded are trusted
+            if (idempotencyRecord.getRequestHash() != null && !idempotencyRecord.getRequestHash().equals(requestHash)
+                    || idempotencyRecord.getResponseType() != null
+                            && !idempotencyRecord.getResponseType().equals(type.getName())) {
+                throw reused(cacheKey);
+            }
+            if (idempotencyRecord.getResponse() != null) {
+                return Optional.of(read(idempotencyRecord.getResponse(), type));
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (idempotencyRecord.getCreated().isBefore(now.minus(claimTimeout))
+                    && idempotencyRecordRepository.reclaim(cacheKey, now, idempotencyRecord.getCreated()) == 1) {
+                log.warn("IdempotencyService took over {} from a request that did not finish", cacheKey);
+                return Optional.empty();
+            }
+            if (System.nanoTime() >= deadline) {
+                throw new IdempotencyConflictException("A request with " + HEADER + " " + cacheKey
+                        + " is still being processed");
+            }
+            try {
+                Thread.sleep(CLAIM_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyConflictException("Interrupted waiting for " + HEADER + " " + cacheKey);
+            }
+        }
+    }
+
+    private static <T> T cast(String cacheKey, Object response, Class<T> type) {
+        if (response != null && !type.isInstance(response)) {
+            throw reused(cacheKey);
+        }
+        return type.cast(response);
+    }
+
+    private static IdempotencyKeyReusedException reused(String cacheKey) {
+        return new IdempotencyKeyReusedException(HEADER + " " + cacheKey
+                + " was already used for a different request");
+    }
+
+    private void completeDurable(String cacheKey, Object result) {
+        if (!durable) {
+            return;
+        }
+        try {
+            idempotencyRecordRepository.complete(cacheKey, objectMapper.writeValueAsString(result));
+        } catch (JsonProcessingException e) {
+            // free the key rather than leave duplicates waiting on a response that never comes
+            idempotencyRecordRepository.release(cacheKey);
+            log.warn("IdempotencyService could not store the response for {}", cacheKey, e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> type) {
+        try {
+            return objectMapper.readValue(response, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for " + HEADER + " is unreadable", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash the request for " + HEADER, e);
+        }
+    }
+
+    private record Execution(String requestHash, CompletableFuture<Object> response) {
+    }
+}
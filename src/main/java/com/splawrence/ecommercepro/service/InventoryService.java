@@ -0,0 +1,68 @@
+package com.splawrence.ecommercepro.service;
+
+import org.springframework.stereotype.Service;
+
+import com.splawrence.ecommercepro.exception.InsufficientStockException;
+import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.ProductRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reserves product stock for order items without overselling.
+ * <p>
+ * A reservation is a single conditional {@code UPDATE ... WHERE stock >=
+ * quantity} in its own short transaction, instead of {@code SELECT ... FOR
+ * UPDATE} followed by an update. Concurrent buyers of one product still queue
+ * on its row, but only for the few microseconds the statement runs rather than
+ * for a whole checkout, and the database stays the single source of truth
+ * across instances. The update leaves {@code updated} and every indexed column
+ * alone, so Postgres can apply it as a HOT update.
+ * <p>
+ * Products whose stock is null do not track stock and are always available.
+ */
+@Service
+@Slf4j
+public class InventoryService {
+    private final ProductRepository productRepository;
+
+    public InventoryService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Takes {@code quantity} units of the product. Callers that fail after
+     * reserving must give the units back with {@link #release(Long, int)}.
+     *
+     * @throws IllegalArgumentException   if the quantity is not positive
+     * @throws ResourceNotFoundException  if the product does not exist
+     * @throws InsufficientStockException if fewer than {@code quantity} units are in stock
+     */
+    public void reserve(Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (productRepository.reserveStock(productId, quantity) == 1) {
+            return;
+        }
+        // the update matched nothing: find out why, off the hot path
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found for Product Id: ", productId));
+        if (product.getStock() != null) {
+            log.debug("InventoryService.reserve rejected {} units of Product {} with {} in stock", quantity,
+                    productId, product.getStock());
+            throw new InsufficientStockException("Only " + product.getStock() + " in stock for Product Id: "
+                    + productId);
+        }
+    }
+
+    /**
+     * Gives back units taken by {@link #reserve(Long, int)}.
+     */
+    public void release(Long productId, int quantity) {
+        if (quantity > 0) {
+            productRepository.releaseStock(productId, quantity);
+        }
+    }
+}
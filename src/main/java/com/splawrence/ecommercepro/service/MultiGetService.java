@@ -0,0 +1,69 @@
+package com.splawrence.ecommercepro.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.splawrence.ecommercepro.model.Auditable;
+import com.splawrence.ecommercepro.model.MultiGetResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves a list of ids with one batched query for the multi-get endpoints.
+ */
+@Service
+@Slf4j
+public class MultiGetService {
+    private final int maxBatchSize;
+
+    public MultiGetService(@Value("${ecommercepro.multi-get.max-batch-size:100}") int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Looks up the requested ids in one query and returns them in request
+     * order. Duplicate ids are returned once.
+     *
+     * @param ids    the requested ids
+     * @param finder the batched lookup, typically a repository's findAllById
+     * @return the found rows in request order and the ids that were not found
+     * @throws BadRequestException if no ids or more than the maximum batch size are requested
+     */
+    public <T extends Auditable> MultiGetResult<T> findAll(List<Long> ids, Function<Iterable<Long>, List<T>> finder)
+            throws BadRequestException {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.isEmpty()) {
+            throw new BadRequestException("At least one id must be supplied");
+        }
+        if (requested.size() > maxBatchSize) {
+            throw new BadRequestException("At most " + maxBatchSize + " ids may be requested at once");
+        }
+
+        Map<Long, T> byId = new HashMap<>();
+        for (T row : finder.apply(requested)) {
+            byId.put(row.getId(), row);
+        }
+        List<T> found = new ArrayList<>(byId.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            T row = byId.get(id);
+            if (row != null) {
+                found.add(row);
+            } else {
+                missing.add(id);
+            }
+        }
+        log.debug("MultiGetService.findAll found {} of {} ids", found.size(), requested.size());
+        return new MultiGetResult<>(found, missing);
+    }
+}
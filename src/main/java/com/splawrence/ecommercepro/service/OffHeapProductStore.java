@@ -0,0 +1,368 @@
+package com.splawrence.ecommercepro.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.splawrence.ecommercepro.model.Product;
+
+/**
+ * Keeps products outside the Java heap, for catalogs too large to hold as
+ * entities.
+ * <p>
+ * Each product is a fixed 48-byte record in direct buffers: id, price in
+ * cents, created and updated in epoch milliseconds (UTC), the location and
+ * length of its description and its stock. Descriptions are UTF-8 bytes
+ * appended to a shared arena of direct buffers, which is compacted once more
+ * than half of it is left over from updated and removed products. Ids map to
+ * record slots through an open-addressing table of two primitive arrays, so
+ * the collector has no per-product objects to trace however large the
+ * catalog grows. Reads decode a fresh {@link Product}, which dies young.
+ * <p>
+ * Timestamps lose their sub-millisecond part, and products whose price has
+ * more than two decimal places are not stored.
+ */
+public class OffHeapProductStore implements ProductStore {
+    private static final int RECORD_BYTES = 48;
+    private static final int ID = 0;
+    private static final int PRICE_CENTS = 8;
+    private static final int CREATED = 16;
+    private static final int UPDATED = 24;
+    private static final int DESCRIPTION = 32;
+    private static final int DESCRIPTION_LENGTH = 40;
+    private static final int STOCK = 44;
+    private static final int NO_STOCK = Integer.MIN_VALUE;
+    // 64Ki records, 3 MiB, per record buffer
+    private static final int SLOT_SHIFT = 16;
+    private static final int SLOTS_PER_CHUNK = 1 << SLOT_SHIFT;
+    private static final int ARENA_CHUNK_BYTES = 1 << 24;
+    private static final int FOR_EACH_BATCH = 4096;
+    // ids are positive, so 0 marks an empty table entry and a free record
+    private static final long EMPTY = 0L;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<ByteBuffer> records = new ArrayList<>();
+    private List<ByteBuffer> arena = new ArrayList<>();
+    private int arenaPosition = ARENA_CHUNK_BYTES;
+    private long arenaLive;
+    private long arenaWasted;
+    private int nextSlot;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private long[] keys = new long[1024];
+    private int[] slots = new int[1024];
+    private int size;
+
+    @Override
+    public Optional<Product> get(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = find(id);
+            return slot < 0 ? Optional.empty() : Optional.of(read(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Product product) {
+        long id = product.getId();
+        if (id <= EMPTY) {
+            throw new IllegalArgumentException("Product Id must be positive: " + id);
+        }
+        long priceCents;
+        try {
+            priceCents = product.getPrice().setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            remove(id);
+            return;
+        }
+        byte[] description = product.getDescription().getBytes(StandardCharsets.UTF_8);
+        long updated = toMillis(product.getUpdated());
+
+        lock.writeLock().lock();
+        try {
+            int slot = find(id);
+            if (slot >= 0) {
+                if (updated < record(slot).getLong(offset(slot) + UPDATED)) {
+                    return;
+                }
+                releaseDescription(slot);
+            } else {
+                slot = allocateSlot();
+                insert(id, slot);
+            }
+            ByteBuffer record = record(slot);
+            int offset = offset(slot);
+            record.putLong(offset + ID, id);
+            record.putLong(offset + PRICE_CENTS, priceCents);
+            record.putLong(offset + CREATED, toMillis(product.getCreated()));
+            record.putLong(offset + UPDATED, updated);
+            record.putLong(offset + DESCRIPTION, append(description));
+            record.putInt(offset + DESCRIPTION_LENGTH, description.length);
+            record.putInt(offset + STOCK, product.getStock() != null ? product.getStock() : NO_STOCK);
+            if (arenaWasted > ARENA_CHUNK_BYTES && arenaWasted > arenaLive) {
+                compactArena();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(id);
+            if (index < 0) {
+                return;
+            }
+            int slot = slots[index];
+            deleteEntry(index);
+            releaseDescription(slot);
+            record(slot).putLong(offset(slot) + ID, EMPTY);
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            records.clear();
+            arena = new ArrayList<>();
+            arenaPosition = ARENA_CHUNK_BYTES;
+            arenaLive = 0;
+            arenaWasted = 0;
+            nextSlot = 0;
+            freeCount = 0;
+            keys = new long[1024];
+            slots = new int[1024];
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visits records in slot order a batch at a time, so writers are only
+     * held up for one batch rather than the whole catalog.
+     */
+    @Override
+    public void forEach(Consumer<Product> consumer) {
+        List<Product> batch = new ArrayList<>(FOR_EACH_BATCH);
+        boolean more = true;
+        for (int start = 0; more; start += FOR_EACH_BATCH) {
+            lock.readLock().lock();
+            try {
+                int end = Math.min(start + FOR_EACH_BATCH, nextSlot);
+                for (int slot = start; slot < end; slot++) {
+                    if (record(slot).getLong(offset(slot) + ID) != EMPTY) {
+                        batch.add(read(slot));
+                    }
+                }
+                more = end < nextSlot;
+            } finally {
+                lock.readLock().unlock();
+            }
+            batch.forEach(consumer);
+            batch.clear();
+        }
+    }
+
+    @Override
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) records.size() * SLOTS_PER_CHUNK * RECORD_BYTES + (long) arena.size() * ARENA_CHUNK_BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Product read(int slot) {
+        ByteBuffer record = record(slot);
+        int offset = offset(slot);
+        Product product = new Product();
+        product.setId(record.getLong(offset + ID));
+        product.setPrice(BigDecimal.valueOf(record.getLong(offset + PRICE_CENTS), 2));
+        product.setCreated(fromMillis(record.getLong(offset + CREATED)));
+        product.setUpdated(fromMillis(record.getLong(offset + UPDATED)));
+        product.setDescription(new String(readDescription(record.getLong(offset + DESCRIPTION),
+                record.getInt(offset + DESCRIPTION_LENGTH)), StandardCharsets.UTF_8));
+        int stock = record.getInt(offset + STOCK);
+        product.setStock(stock != NO_STOCK ? stock : null);
+        return product;
+    }
+
+    private ByteBuffer record(int slot) {
+        return records.get(slot >>> SLOT_SHIFT);
+    }
+
+    private static int offset(int slot) {
+        return (slot & (SLOTS_PER_CHUNK - 1)) * RECORD_BYTES;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == records.size() * SLOTS_PER_CHUNK) {
+            records.add(ByteBuffer.allocateDirect(SLOTS_PER_CHUNK * RECORD_BYTES));
+        }
+        return nextSlot++;
+    }
+
+    private long append(byte[] bytes) {
+        if (bytes.length > ARENA_CHUNK_BYTES) {
+            throw new IllegalArgumentException("Description too long: " + bytes.length + " bytes");
+        }
+        if (arenaPosition + bytes.length > ARENA_CHUNK_BYTES) {
+            arena.add(ByteBuffer.allocateDirect(ARENA_CHUNK_BYTES));
+            arenaPosition = 0;
+        }
+        int chunk = arena.size() - 1;
+        arena.get(chunk).put(arenaPosition, bytes);
+        long location = ((long) chunk << 32) | arenaPosition;
+        arenaPosition += bytes.length;
+        arenaLive += bytes.length;
+        return location;
+    }
+
+    private byte[] readDescription(long location, int length) {
+        byte[] bytes = new byte[length];
+        arena.get((int) (location >>> 32)).get((int) location, bytes);
+        return bytes;
+    }
+
+    private void releaseDescription(int slot) {
+        int length = record(slot).getInt(offset(slot) + DESCRIPTION_LENGTH);
+        arenaLive -= length;
+        arenaWasted += length;
+    }
+
+    private void compactArena() {
+        List<ByteBuffer> old = arena;
+        arena = new ArrayList<>();
+        arenaPosition = ARENA_CHUNK_BYTES;
+        arenaLive = 0;
+        arenaWasted = 0;
+        for (int slot = 0; slot < nextSlot; slot++) {
+            ByteBuffer record = record(slot);
+            int offset = offset(slot);
+            if (record.getLong(offset + ID) == EMPTY) {
+                continue;
+            }
+            long location = record.getLong(offset + DESCRIPTION);
+            byte[] bytes = new byte[record.getInt(offset + DESCRIPTION_LENGTH)];
+            old.get((int) (location >>> 32)).get((int) location, bytes);
+            record.putLong(offset + DESCRIPTION, append(bytes));
+        }
+    }
+
+    private int find(long id) {
+        int index = indexOf(id);
+        return index < 0 ? -1 : slots[index];
+    }
+
+    private int indexOf(long id) {
+        int mask = keys.length - 1;
+        for (int index = home(id, mask); keys[index] != EMPTY; index = (index + 1) & mask) {
+            if (keys[index] == id) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long id, int slot) {
+        // keep the table at most 70% full
+        if ((long) (size + 1) * 10 > (long) keys.length * 7) {
+            rehash(keys.length * 2);
+        }
+        put(keys, slots, id, slot);
+        size++;
+    }
+
+    private void rehash(int capacity) {
+        long[] newKeys = new long[capacity];
+        int[] newSlots = new int[capacity];
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != EMPTY) {
+                put(newKeys, newSlots, keys[index], slots[index]);
+            }
+        }
+        keys = newKeys;
+        slots = newSlots;
+    }
+
+    private static void put(long[] keys, int[] slots, long id, int slot) {
+        int mask = keys.length - 1;
+        int index = home(id, mask);
+        while (keys[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = id;
+        slots[index] = slot;
+    }
+
+    /**
+     * Removes a table entry, shifting later entries of the same probe run
+     * back so lookups never stop early at the gap.
+     */
+    private void deleteEntry(int index) {
+        int mask = keys.length - 1;
+        int gap = index;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = home(keys[next], mask);
+            boolean homeInRange = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+            if (!homeInRange) {
+                keys[gap] = keys[next];
+                slots[gap] = slots[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    private static int home(long id, int mask) {
+        // spread sequential ids across the table
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), (int) Math.floorMod(millis, 1000L) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+}
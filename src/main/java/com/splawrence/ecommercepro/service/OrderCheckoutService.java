@@ -0,0 +1,195 @@
+package com.splawrence.ecommercepro.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.splawrence.ecommercepro.exception.InsufficientStockException;
+import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderDetail;
+import com.splawrence.ecommercepro.model.OrderItem;
+import com.splawrence.ecommercepro.model.OrderStatusEvent;
+import com.splawrence.ecommercepro.model.OrderWithItemsRequest;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.OrderItemRepository;
+import com.splawrence.ecommercepro.repository.OrderRepository;
+import com.splawrence.ecommercepro.repository.ProductRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates an order and all of its items in one request and one transaction,
+ * instead of one {@code POST /api/orders} followed by a
+ * {@code POST /api/order-items} per item. Either everything is saved or
+ * nothing is, so a failed checkout leaves no order without items behind.
+ * <p>
+ * Stock is reserved per product in id order, so concurrent checkouts of the
+ * same products always take their row locks in the same order and cannot
+ * deadlock. The products are then read with one query, and the order and its
+ * items are inserted as JDBC batches.
+ * <p>
+ * Changing an item's quantity or deleting it reserves or releases the
+ * difference in the same transaction, so stock always matches the items.
+ */
+@Service
+@Slf4j
+public class OrderCheckoutService {
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderStatusPublisher orderStatusPublisher;
+    private final int maxItems;
+
+    public OrderCheckoutService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
+            ProductRepository productRepository, InventoryService inventoryService,
+            TransactionTemplate transactionTemplate, OrderStatusPublisher orderStatusPublisher,
+            @Value("${ecommercepro.checkout.max-items:500}") int maxItems) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.productRepository = productRepository;
+        this.inventoryService = inventoryService;
+        this.transactionTemplate = transactionTemplate;
+        this.orderStatusPublisher = orderStatusPublisher;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Checks the request before any work is done, so it can be rejected with
+     * a 400 outside the idempotency and transaction wrappers.
+     *
+     * @throws BadRequestException if the status or any line item is missing
+     *                             or invalid, or there are too many items
+     */
+    public void validate(OrderWithItemsRequest request) throws BadRequestException {
+        if (request.getStatus() == null || request.getStatus().isBlank()) {
+            throw new BadRequestException("status must be supplied");
+        }
+        List<OrderWithItemsRequest.Line> items = request.getItems();
+        if (items == null || items.isEmpty() || items.size() > maxItems) {
+            throw new BadRequestException("Between 1 and " + maxItems + " items must be supplied");
+        }
+        for (OrderWithItemsRequest.Line line : items) {
+            if (line.getProductId() == null) {
+                throw new BadRequestException("productId must be supplied for every item");
+            }
+            if (line.getQuantity() <= 0) {
+                throw new BadRequestException("Quantity must be positive");
+            }
+        }
+    }
+
+    /**
+     * Reserves stock for, and saves, the order and its items in one
+     * transaction. Call {@link #validate(OrderWithItemsRequest)} first.
+     *
+     * @return the saved order and items with their totals
+     * @throws ResourceNotFoundException  if a product does not exist
+     * @throws InsufficientStockException if a product is short of stock
+     */
+    public OrderDetail create(OrderWithItemsRequest request) {
+        OrderDetail detail = transactionTemplate.execute(transaction -> {
+            // reserve in product id order, one statement per product however many lines name it
+            Map<Long, Integer> quantities = request.getItems().stream()
+                    .collect(Collectors.toMap(OrderWithItemsRequest.Line::getProductId,
+                            OrderWithItemsRequest.Line::getQuantity, Integer::sum, TreeMap::new));
+            quantities.forEach(inventoryService::reserve);
+
+            // read after reserving so the returned products show the stock left
+            Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            List<Long> missing = quantities.keySet().stream().filter(id -> !products.containsKey(id)).toList();
+            if (!missing.isEmpty()) {
+                throw new ResourceNotFoundException("Products not found for Product Ids: " + missing);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Order order = new Order();
+            order.setStatus(request.getStatus());
+            order.setCreated(now);
+            order.setUpdated(now);
+            Order savedOrder = orderRepository.save(order);
+
+            List<OrderItem> items = new ArrayList<>(request.getItems().size());
+            for (OrderWithItemsRequest.Line line : request.getItems()) {
+                OrderItem item = new OrderItem();
+                item.setOrder(savedOrder);
+                item.snapshotProduct(products.get(line.getProductId()));
+                item.setQuantity(line.getQuantity());
+                item.setCreated(now);
+                item.setUpdated(now);
+                items.add(item);
+            }
+            return OrderDetail.of(savedOrder, orderItemRepository.saveAll(items));
+        });
+        log.debug("OrderCheckoutService.create saved Order {} with {} items", detail.getOrder().getId(),
+                detail.getItems().size());
+        // only notify subscribers once the order is committed
+        orderStatusPublisher.publish(OrderStatusEvent.of(detail.getOrder()));
+        return detail;
+    }
+
+    /**
+     * Changes an item's quantity and reserves or releases the difference
+     * against its product in one transaction. The item keeps its order,
+     * product and the price it was sold at.
+     *
+     * @return the saved item
+     * @throws ResourceNotFoundException  if the item does not exist
+     * @throws InsufficientStockException if the product is short of the extra units
+     */
+    public OrderItem changeQuantity(Long orderItemId, int quantity) {
+        return transactionTemplate.execute(transaction -> {
+            OrderItem item = lockItem(orderItemId);
+            int difference = quantity - item.getQuantity();
+            if (item.getProduct() != null) {
+                Long productId = item.getProduct().getId();
+                if (difference > 0) {
+                    inventoryService.reserve(productId, difference);
+                } else {
+                    inventoryService.release(productId, -difference);
+                }
+            }
+            item.setQuantity(quantity);
+            item.setUpdated(LocalDateTime.now());
+            log.debug("OrderCheckoutService.changeQuantity changed OrderItem {} by {} units", orderItemId,
+                    difference);
+            return orderItemRepository.save(item);
+        });
+    }
+
+    /**
+     * Deletes an item and gives its quantity back to its product's stock in
+     * one transaction.
+     *
+     * @return the deleted item
+     * @throws ResourceNotFoundException if the item does not exist
+     */
+    public OrderItem deleteItem(Long orderItemId) {
+        return transactionTemplate.execute(transaction -> {
+            OrderItem item = lockItem(orderItemId);
+            if (item.getProduct() != null) {
+                inventoryService.release(item.getProduct().getId(), item.getQuantity());
+            }
+            orderItemRepository.delete(item);
+            return item;
+        });
+    }
+
+    private OrderItem lockItem(Long orderItemId) {
+        return orderItemRepository.findByIdForUpdate(orderItemId)
+                .orElseThrow(() -> new ResourceNotFoundException("OrderItem not found for OrderItem Id: ",
+                        orderItemId));
+    }
+}
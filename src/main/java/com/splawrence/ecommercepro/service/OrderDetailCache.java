@@ -0,0 +1,118 @@
+package com.splawrence.ecommercepro.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderDetail;
+import com.splawrence.ecommercepro.model.OrderItem;
+import com.splawrence.ecommercepro.repository.OrderItemRepository;
+import com.splawrence.ecommercepro.repository.OrderRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches each order's items and totals for the order page reads.
+ * <p>
+ * Entries are weighed by their item count and the cache is bounded by the
+ * total number of items it holds, so a few very large orders cannot push out
+ * many small ones; orders with more than {@code max-items-per-order} items
+ * are not kept at all. Every write through this instance to an order or its
+ * items invalidates that order's entry once the write is done, and a miss
+ * loads with the same {@code findByOrderId} the endpoint used before, so
+ * concurrent reads of one order share one query. Writes through other
+ * instances are only seen once the entry expires after {@code ttl}.
+ * <p>
+ * Hits, misses and evictions are published as {@code cache.*} metrics tagged
+ * {@code cache=order-detail}, with the hit ratio as
+ * {@code ecommercepro.order-detail-cache.hit-ratio}.
+ */
+@Service
+@Slf4j
+public class OrderDetailCache {
+    private final Cache<Long, OrderDetail> details;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final boolean enabled;
+    private final int maxItemsPerOrder;
+
+    public OrderDetailCache(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
+            MeterRegistry meterRegistry,
+            @Value("${ecommercepro.order-detail-cache.enabled:true}") boolean enabled,
+            @Value("${ecommercepro.order-detail-cache.max-items:100000}") long maxItems,
+            @Value("${ecommercepro.order-detail-cache.max-items-per-order:1000}") int maxItemsPerOrder,
+            @Value("${ecommercepro.order-detail-cache.ttl:60s}") Duration ttl) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.enabled = enabled;
+        this.maxItemsPerOrder = maxItemsPerOrder;
+        this.details = Caffeine.newBuilder()
+                .maximumWeight(maxItems)
+                .weigher((Long id, OrderDetail detail) -> 1 + detail.getItems().size())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, details, "order-detail");
+        Gauge.builder("ecommercepro.order-detail-cache.hit-ratio", details, cache -> cache.stats().hitRate())
+                .description("Share of order detail reads served from the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the order with its items and totals, or empty if the order does
+     *         not exist
+     */
+    public Optional<OrderDetail> get(Long orderId) {
+        if (!enabled) {
+            return load(orderId);
+        }
+        OrderDetail detail = details.get(orderId, id -> load(id).orElse(null));
+        if (detail != null && detail.getItems().size() > maxItemsPerOrder) {
+            // too large to be worth the space; only drop it if it has not been replaced meanwhile
+            details.asMap().remove(orderId, detail);
+        }
+        return Optional.ofNullable(detail);
+    }
+
+    /**
+     * @return the order's items, or an empty list if the order does not exist
+     */
+    public List<OrderItem> getItems(Long orderId) {
+        return get(orderId).map(OrderDetail::getItems).orElse(List.of());
+    }
+
+    /**
+     * Drops the order's entry. Call after the write to the order or one of
+     * its items has completed, so the next read loads the new state.
+     */
+    public void invalidate(Long orderId) {
+        if (orderId != null) {
+            details.invalidate(orderId);
+        }
+    }
+
+    /**
+     * Drops the entries of all the orders.
+     */
+    public void invalidateAll(Iterable<Long> orderIds) {
+        details.invalidateAll(orderIds);
+    }
+
+    private Optional<OrderDetail> load(Long orderId) {
+        List<OrderItem> items = orderItemRepository.findByOrderId(orderId);
+        // the items already carry their order, so only an order without items needs its own query
+        Optional<Order> order = items.isEmpty() ? orderRepository.findById(orderId)
+                : Optional.ofNullable(items.get(0).getOrder());
+        log.debug("OrderDetailCache.load read Order {} with {} items", orderId, items.size());
+        return order.map(found -> OrderDetail.of(found, items));
+    }
+}
@@ -0,0 +1,163 @@
+package com.splawrence.ecommercepro.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderStatus;
+import com.splawrence.ecommercepro.model.OrderStatusEvent;
+import com.splawrence.ecommercepro.repository.OrderRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves orders through the {@link OrderStatus} states in the background.
+ * <p>
+ * Each worker repeatedly claims a batch of orders with
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED}, advances each one a single
+ * state and commits the whole batch in one transaction. Locked rows are
+ * skipped rather than waited on, so workers on this and other instances never
+ * process the same order twice and throughput scales with the worker count.
+ * Orders with free-text statuses outside the state machine are left alone,
+ * as are orders whose status is still in this instance's write-behind buffer,
+ * which are advanced from that status once it is written.
+ */
+@Service
+@Slf4j
+public class OrderFulfillmentPipeline {
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderStatusPublisher orderStatusPublisher;
+    private final OrderDetailCache orderDetailCache;
+    private final OrderStatusWriteBehind orderStatusWriteBehind;
+    private final boolean enabled;
+    private final int workers;
+    private final int batchSize;
+    private final Duration stepDelay;
+    private final Duration idleDelay;
+    private final Map<OrderStatus, Counter> transitions = new EnumMap<>(OrderStatus.class);
+    private ExecutorService workerPool;
+    private volatile boolean running;
+
+    public OrderFulfillmentPipeline(OrderRepository orderRepository, TransactionTemplate transactionTemplate,
+            OrderStatusPublisher orderStatusPublisher, OrderDetailCache orderDetailCache,
+            OrderStatusWriteBehind orderStatusWriteBehind, MeterRegistry meterRegistry,
+            @Value("${ecommercepro.fulfillment.enabled:false}") boolean enabled,
+            @Value("${ecommercepro.fulfillment.workers:4}") int workers,
+            @Value("${ecommercepro.fulfillment.batch-size:100}") int batchSize,
+            @Value("${ecommercepro.fulfillment.step-delay:30s}") Duration stepDelay,
+            @Value("${ecommercepro.fulfillment.idle-delay:1s}") Duration idleDelay) {
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.orderStatusPublisher = orderStatusPublisher;
+        this.orderDetailCache = orderDetailCache;
+        this.orderStatusWriteBehind = orderStatusWriteBehind;
+        this.enabled = enabled;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.stepDelay = stepDelay;
+        this.idleDelay = idleDelay;
+        for (OrderStatus status : OrderStatus.values()) {
+            transitions.put(status, Counter.builder("ecommercepro.fulfillment.transitions")
+                    .description("Orders moved into a status by the fulfillment pipeline")
+                    .tag("status", status.getLabel())
+                    .register(meterRegistry));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers,
+                runnable -> new Thread(runnable, "order-fulfillment-" + threadNumber.incrementAndGet()));
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::runWorker);
+        }
+        log.info("OrderFulfillmentPipeline started {} workers with batch size {}", workers, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+            workerPool.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Claims one batch of orders, advances each a single state and commits.
+     *
+     * @return the number of orders advanced
+     */
+    public int processBatch() {
+        List<Order> advanced = transactionTemplate.execute(transaction -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Order> claimed = orderRepository.claimBatch(OrderStatus.pendingLabels(), now.minus(stepDelay),
+                    batchSize);
+            List<Order> moved = new ArrayList<>(claimed.size());
+            for (Order order : claimed) {
+                // the stored status is stale while a newer one waits to be written
+                if (orderStatusWriteBehind.buffered(order.getId()).isPresent()) {
+                    continue;
+                }
+                OrderStatus.fromLabel(order.getStatus()).flatMap(OrderStatus::next).ifPresent(next -> {
+                    order.setStatus(next.getLabel());
+                    order.setUpdated(now);
+                    moved.add(order);
+                });
+            }
+            return orderRepository.saveAll(moved);
+        });
+        if (advanced == null) {
+            return 0;
+        }
+        // only notify subscribers once the transitions are committed
+        orderDetailCache.invalidateAll(advanced.stream().map(Order::getId).toList());
+        for (Order order : advanced) {
+            OrderStatus.fromLabel(order.getStatus()).ifPresent(status -> transitions.get(status).increment());
+            orderStatusPublisher.publish(OrderStatusEvent.of(order));
+        }
+        return advanced.size();
+    }
+
+    private void runWorker() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                if (processBatch() < batchSize) {
+                    Thread.sleep(idleDelay.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("OrderFulfillmentPipeline batch failed, retrying after {}", idleDelay, e);
+                try {
+                    Thread.sleep(idleDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.splawrence.ecommercepro.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records the unit price and description on order items created before they
+ * were captured at order time, using the product's current values.
+ * <p>
+ * Runs once in the background after startup and walks the unpriced rows in id
+ * order, one chunk per statement and autocommitted transaction, pausing
+ * between chunks so row locks are short and the database is not saturated.
+ * Each chunk only touches rows that are still unpriced, so instances started
+ * together, or a run interrupted by a restart, never overwrite a recorded
+ * price, and once every row is priced a run is a single empty index lookup.
+ * {@code updated} is left alone, so the change feed does not replay the
+ * backfilled rows.
+ */
+@Service
+@Slf4j
+public class OrderItemPriceBackfill {
+    private static final String NEXT_CHUNK = "SELECT id FROM order_items WHERE unit_price IS NULL AND id > ?"
+            + " ORDER BY id LIMIT ?";
+
+    private static final String PRICE_CHUNK = "UPDATE order_items oi SET unit_price = p.price,"
+            + " description = p.description FROM products p"
+            + " WHERE p.id = oi.product_id AND oi.id > ? AND oi.id <= ? AND oi.unit_price IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final Duration pause;
+    private final Counter backfilled;
+    private Thread worker;
+
+    public OrderItemPriceBackfill(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${ecommercepro.order-item-price-backfill.enabled:true}") boolean enabled,
+            @Value("${ecommercepro.order-item-price-backfill.chunk-size:1000}") int chunkSize,
+            @Value("${ecommercepro.order-item-price-backfill.pause:100ms}") Duration pause) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.backfilled = Counter.builder("ecommercepro.order-item-price-backfill.rows")
+                .description("Order items given the unit price and description of their product")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        worker = new Thread(() -> {
+            try {
+                run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("OrderItemPriceBackfill failed, the remaining rows are retried on the next start", e);
+            }
+        }, "order-item-price-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Prices every unpriced order item whose product still exists.
+     *
+     * @return the number of order items priced
+     */
+    public long run() throws InterruptedException {
+        long start = System.nanoTime();
+        long total = 0;
+        long afterId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> ids = jdbcTemplate.queryForList(NEXT_CHUNK, Long.class, afterId, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            long lastId = ids.get(ids.size() - 1);
+            int priced = jdbcTemplate.update(PRICE_CHUNK, afterId, lastId);
+            backfilled.increment(priced);
+            total += priced;
+            // items without a product stay unpriced, so move past them rather than select them again
+            afterId = lastId;
+            if (ids.size() < chunkSize) {
+                break;
+            }
+            Thread.sleep(pause.toMillis());
+        }
+        if (total > 0) {
+            log.info("OrderItemPriceBackfill priced {} order items in {} ms", total,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,385 @@
+package com.splawrence.ecommercepro.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import com.splawrence.ecommercepro.model.OrderStatusEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes order status changes to Server-Sent Events subscribers.
+ * <p>
+ * A subscriber is registered before the current statuses are read, and events
+ * published in between are held until those statuses are sent, then sent
+ * after them if they are newer, so no change is missed.
+ * <p>
+ * Publishing never blocks the writing request: each event is queued on the
+ * subscribers of that order and a small sender pool drains the queues. Every
+ * subscriber has a bounded queue; when a slow client falls behind, its oldest
+ * events are dropped, because only the latest status matters. Idle
+ * connections hold no thread, and a periodic heartbeat detects dead ones.
+ * <p>
+ * A send that blocks for longer than {@code send-timeout}, because the client
+ * stopped reading, drops that subscriber and completes its emitter, which ends
+ * the async request. Its sender thread stays blocked until the socket write
+ * fails, so the pool gets a replacement thread meanwhile, up to
+ * {@code max-stalled-sends}, and the other subscribers keep receiving events.
+ */
+@Service
+@Slf4j
+public class OrderStatusPublisher {
+    public static final String STATUS_EVENT = "order-status";
+
+    private final Map<Long, Set<Subscription>> subscriptionsByOrder = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Executor sender;
+    // completing an emitter can wait for its blocked send, so it never runs on the stall check thread
+    private final ExecutorService closer = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "order-status-closer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int bufferSize;
+    private final Duration timeout;
+    private final int senderThreads;
+    private final long sendTimeoutNanos;
+    private final int maxStalledSends;
+    private final AtomicInteger stalledSends = new AtomicInteger();
+    private final Counter droppedEvents;
+    private final Counter stalledSubscribers;
+
+    @Autowired
+    public OrderStatusPublisher(MeterRegistry meterRegistry,
+            @Value("${ecommercepro.order-status-stream.sender-threads:4}") int senderThreads,
+            @Value("${ecommercepro.order-status-stream.buffer-size:16}") int bufferSize,
+            @Value("${ecommercepro.order-status-stream.timeout:30m}") Duration timeout,
+            @Value("${ecommercepro.order-status-stream.send-timeout:5s}") Duration sendTimeout,
+            @Value("${ecommercepro.order-status-stream.max-stalled-sends:64}") int maxStalledSends) {
+        this(meterRegistry, new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "order-status-sender");
+                    thread.setDaemon(true);
+                    return thread;
+                }), bufferSize, timeout, sendTimeout, maxStalledSends);
+    }
+
+    OrderStatusPublisher(MeterRegistry meterRegistry, Executor sender, int bufferSize, Duration timeout,
+            Duration sendTimeout, int maxStalledSends) {
+        this.sender = sender;
+        this.senderThreads = sender instanceof ThreadPoolExecutor pool ? pool.getCorePoolSize() : 0;
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.maxStalledSends = maxStalledSends;
+        this.droppedEvents = Counter.builder("ecommercepro.order-status-stream.dropped")
+                .description("Events dropped because a subscriber's buffer was full")
+                .register(meterRegistry);
+        this.stalledSubscribers = Counter.builder("ecommercepro.order-status-stream.stalled")
+                .description("Subscribers dropped because a send blocked for longer than the send timeout")
+                .register(meterRegistry);
+        Gauge.builder("ecommercepro.order-status-stream.subscribers", subscriptions, Set::size)
+                .description("Open order status stream connections")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of status changes for the given orders.
+     *
+     * @param orderIds the orders to watch
+     * @param current  reads the current status of those orders, sent first; it is called once the
+     *                 subscriber is registered, so no change is missed
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(Collection<Long> orderIds, Supplier<List<OrderStatusEvent>> current) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        subscribe(orderIds, current, emitter);
+        return emitter;
+    }
+
+    void subscribe(Collection<Long> orderIds, Supplier<List<OrderStatusEvent>> current, SseEmitter emitter) {
+        Subscription subscription = new Subscription(emitter, Set.copyOf(orderIds));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        subscriptions.add(subscription);
+        for (Long orderId : subscription.orderIds) {
+            // compute keeps this atomic with the removal of empty sets in close
+            subscriptionsByOrder.compute(orderId, (id, watchers) -> {
+                Set<Subscription> updated = watchers != null ? watchers : ConcurrentHashMap.newKeySet();
+                updated.add(subscription);
+                return updated;
+            });
+        }
+        try {
+            subscription.start(current.get());
+        } catch (RuntimeException e) {
+            subscription.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Queues a status change for every subscriber of the order. Returns
+     * immediately; delivery happens on the sender pool.
+     *
+     * @param event the new status of the order
+     */
+    public void publish(OrderStatusEvent event) {
+        Set<Subscription> watchers = subscriptionsByOrder.get(event.getOrderId());
+        if (watchers == null || watchers.isEmpty()) {
+            return;
+        }
+        for (Subscription subscription : watchers) {
+            subscription.publish(event);
+        }
+    }
+
+    /**
+     * Sends a comment to every subscriber so proxies keep idle connections
+     * open and broken connections are detected and removed.
+     */
+    @Scheduled(fixedDelayString = "${ecommercepro.order-status-stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(() -> SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    /**
+     * Drops subscribers whose current send has been blocked for longer than
+     * the send timeout, and gives the sender pool a thread in place of each
+     * blocked one.
+     */
+    @Scheduled(fixedDelayString = "${ecommercepro.order-status-stream.stall-check-interval-ms:1000}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            long started = subscription.sendStartedNanos;
+            if (started != 0 && now - started > sendTimeoutNanos) {
+                log.debug("OrderStatusPublisher dropping subscriber stalled for {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(now - started));
+                stalledSubscribers.increment();
+                subscription.close();
+                closer.execute(() -> subscription.emitter.completeWithError(
+                        new IOException("Order status send blocked for longer than the send timeout")));
+                if (stalledSends.get() < maxStalledSends && subscription.stalled.compareAndSet(false, true)) {
+                    resizeSender(stalledSends.incrementAndGet());
+                    // the send may have returned before it was marked, leaving no one to give the thread back
+                    if (subscription.sendStartedNanos != started && subscription.stalled.compareAndSet(true, false)) {
+                        resizeSender(stalledSends.decrementAndGet());
+                    }
+                }
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        if (sender instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+        closer.shutdown();
+    }
+
+    private void resizeSender(int stalled) {
+        if (sender instanceof ThreadPoolExecutor pool) {
+            synchronized (pool) {
+                int threads = senderThreads + Math.max(0, stalled);
+                // the maximum must never drop below the core size
+                if (threads > pool.getMaximumPoolSize()) {
+                    pool.setMaximumPoolSize(threads);
+                    pool.setCorePoolSize(threads);
+                } else {
+                    pool.setCorePoolSize(threads);
+                    pool.setMaximumPoolSize(threads);
+                }
+            }
+        }
+    }
+
+    private static SseEventBuilder statusEvent(OrderStatusEvent event) {
+        return SseEmitter.event()
+                .id(event.getOrderId() + ":" + event.getUpdated())
+                .name(STATUS_EVENT)
+                .data(event);
+    }
+
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final Set<Long> orderIds;
+        private final Queue<Supplier<SseEventBuilder>> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // events published before the current statuses were sent, or null once they have been
+        private List<OrderStatusEvent> held = new ArrayList<>();
+        // set once the stall check has replaced this subscriber's blocked sender thread
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        private volatile long sendStartedNanos;
+        private volatile boolean closed;
+
+        private Subscription(SseEmitter emitter, Set<Long> orderIds) {
+            this.emitter = emitter;
+            this.orderIds = orderIds;
+        }
+
+        /**
+         * Queues the current statuses, then the held events that are newer
+         * than them, and starts delivering published events directly.
+         */
+        private void start(List<OrderStatusEvent> current) {
+            Map<Long, LocalDateTime> sent = new HashMap<>();
+            synchronized (buffer) {
+                if (held == null) {
+                    // closed while the current statuses were read
+                    return;
+                }
+                for (OrderStatusEvent event : current) {
+                    enqueue(event);
+                    sent.put(event.getOrderId(), event.getUpdated());
+                }
+                for (OrderStatusEvent event : held) {
+                    LocalDateTime snapshot = sent.get(event.getOrderId());
+                    if (snapshot == null || event.getUpdated() == null || event.getUpdated().isAfter(snapshot)) {
+                        enqueue(event);
+                    }
+                }
+                held = null;
+            }
+            scheduleDrain();
+        }
+
+        private void publish(OrderStatusEvent event) {
+            if (closed) {
+                return;
+            }
+            synchronized (buffer) {
+                if (held != null) {
+                    held.add(event);
+                    return;
+                }
+                enqueue(event);
+            }
+            scheduleDrain();
+        }
+
+        private void offer(Supplier<SseEventBuilder> event) {
+            if (closed) {
+                return;
+            }
+            synchronized (buffer) {
+                enqueue(event);
+            }
+            scheduleDrain();
+        }
+
+        private void enqueue(OrderStatusEvent event) {
+            // a builder renders into itself when sent, so every subscriber gets its own
+            enqueue(() -> statusEvent(event));
+        }
+
+        private void enqueue(Supplier<SseEventBuilder> event) {
+            if (buffer.size() >= bufferSize) {
+                buffer.poll();
+                droppedEvents.increment();
+            }
+            buffer.add(event);
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Supplier<SseEventBuilder> event;
+                while (!closed && (event = next()) != null) {
+                    sendStartedNanos = System.nanoTime();
+                    emitter.send(event.get());
+                    sendStartedNanos = 0;
+                }
+            } catch (IOException | RuntimeException e) {
+                // any failure, not just a broken connection, must drop the subscriber rather than reach the pool
+                log.debug("OrderStatusPublisher dropping subscriber: {}", e.getMessage());
+                emitter.completeWithError(e);
+                close();
+            } finally {
+                sendStartedNanos = 0;
+                if (stalled.compareAndSet(true, false)) {
+                    resizeSender(stalledSends.decrementAndGet());
+                }
+                draining.set(false);
+            }
+            // an event may have arrived after the last poll but before draining was cleared
+            if (!closed && hasBuffered()) {
+                scheduleDrain();
+            }
+        }
+
+        private Supplier<SseEventBuilder> next() {
+            synchronized (buffer) {
+                return buffer.poll();
+            }
+        }
+
+        private boolean hasBuffered() {
+            synchronized (buffer) {
+                return !buffer.isEmpty();
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (buffer) {
+                buffer.clear();
+                held = null;
+            }
+            subscriptions.remove(this);
+            for (Long orderId : orderIds) {
+                subscriptionsByOrder.computeIfPresent(orderId, (id, watchers) -> {
+                    watchers.remove(this);
+                    return watchers.isEmpty() ? null : watchers;
+                });
+            }
+        }
+    }
+}
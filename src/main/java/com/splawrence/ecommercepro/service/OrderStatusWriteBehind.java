@@ -0,0 +1,244 @@
+package com.splawrence.ecommercepro.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.splawrence.ecommercepro.model.Order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Opt-in write-behind buffer for order status updates.
+ * <p>
+ * When enabled, {@code PUT /api/orders/{id}} stores the new status here
+ * instead of saving it. Updates to the same order are coalesced so only the
+ * latest is written, and a scheduled flush writes all buffered orders in one
+ * JDBC batch. An entry stays buffered until its write succeeds.
+ * <p>
+ * Writes are conditional: a buffered status is only written if the row has
+ * not been updated since it was buffered, e.g. by the fulfillment pipeline or
+ * another instance, and is dropped otherwise. A written row is stamped with
+ * the time of the flush, so a flush that is retried after failing never moves
+ * {@code updated} backwards or behind change feed cursors.
+ * <p>
+ * Reads of this instance see buffered statuses. Point reads, multi-gets,
+ * list and paged reads, order details and the status stream overlay buffered
+ * values. The change feed, which pages by the {@code updated} timestamp the
+ * flush writes, and {@code ?fields=} projections flush the buffer before
+ * reading instead; point reads of this kind, like the items of an order,
+ * write only the entry for their order. Reads through other instances, and
+ * order-item reads that embed their order, see a status once it is flushed,
+ * at most one flush interval later. If a flush fails, reads that flush first
+ * serve the stored status until a later flush succeeds.
+ * <p>
+ * Durability: at most one flush interval of updates is lost if the process
+ * dies, a full buffer is flushed by the writing request before it returns, and
+ * the buffer is flushed synchronously on shutdown.
+ */
+@Service
+@Slf4j
+public class OrderStatusWriteBehind {
+    private static final String UPDATE_STATUS = "UPDATE orders SET status = ?, updated = ? WHERE id = ? AND updated <= ?";
+
+    private final Map<Long, Order> pending = new ConcurrentHashMap<>();
+    // orders a buffered update against the flush times stamped on written rows
+    private final Object stampLock = new Object();
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderDetailCache orderDetailCache;
+    private final boolean enabled;
+    private final int maxBuffered;
+    private final Counter coalesced;
+    private final Counter flushed;
+    private final Counter superseded;
+    private final Counter failedFlushes;
+
+    public OrderStatusWriteBehind(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            OrderDetailCache orderDetailCache,
+            @Value("${ecommercepro.order-status-write-behind.enabled:false}") boolean enabled,
+            @Value("${ecommercepro.order-status-write-behind.max-buffered:10000}") int maxBuffered) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderDetailCache = orderDetailCache;
+        this.enabled = enabled;
+        this.maxBuffered = maxBuffered;
+        this.coalesced = Counter.builder("ecommercepro.order-status-write-behind.coalesced")
+                .description("Buffered status updates replaced by a later update before being written")
+                .register(meterRegistry);
+        this.flushed = Counter.builder("ecommercepro.order-status-write-behind.flushed")
+                .description("Buffered status updates written to the database")
+                .register(meterRegistry);
+        this.superseded = Counter.builder("ecommercepro.order-status-write-behind.superseded")
+                .description("Buffered status updates dropped because the order was updated after they were buffered")
+                .register(meterRegistry);
+        this.failedFlushes = Counter.builder("ecommercepro.order-status-write-behind.failed-flushes")
+                .description("Flushes that failed and were left buffered for the next attempt")
+                .register(meterRegistry);
+        Gauge.builder("ecommercepro.order-status-write-behind.buffered", pending, Map::size)
+                .description("Status updates waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true if status updates should be buffered rather than saved
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffers the order's status, stamping it updated now and replacing any
+     * update for the same order that has not been written yet.
+     */
+    public void buffer(Order order) {
+        Order replaced;
+        synchronized (stampLock) {
+            order.setUpdated(LocalDateTime.now());
+            replaced = pending.put(order.getId(), order);
+        }
+        if (replaced != null) {
+            coalesced.increment();
+        }
+        if (pending.size() >= maxBuffered) {
+            log.debug("OrderStatusWriteBehind buffer reached {} orders, flushing", maxBuffered);
+            flush();
+        }
+    }
+
+    /**
+     * @return the buffered order, if it has an update that is not written yet
+     */
+    public Optional<Order> buffered(Long id) {
+        return Optional.ofNullable(pending.get(id));
+    }
+
+    /**
+     * @return the buffered version of the order if there is one, otherwise the order itself
+     */
+    public Order overlay(Order order) {
+        return pending.getOrDefault(order.getId(), order);
+    }
+
+    /**
+     * @return the orders with buffered versions substituted, in the same order
+     */
+    public List<Order> overlay(List<Order> orders) {
+        if (pending.isEmpty()) {
+            return orders;
+        }
+        return orders.stream().map(this::overlay).toList();
+    }
+
+    /**
+     * Writes the buffer first if it holds any update, for reads that cannot
+     * overlay buffered values.
+     */
+    public void flushBeforeRead() {
+        if (!pending.isEmpty()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the order's buffered update first, if it has one, leaving the
+     * rest of the buffer to the scheduled flush.
+     */
+    public void flushBeforeRead(Long id) {
+        LocalDateTime now;
+        Order order;
+        synchronized (stampLock) {
+            now = LocalDateTime.now();
+            order = pending.get(id);
+        }
+        if (order != null) {
+            write(List.of(order), now);
+        }
+    }
+
+    /**
+     * Drops any buffered update, e.g. because the order was deleted.
+     */
+    public void discard(Long id) {
+        pending.remove(id);
+    }
+
+    /**
+     * Writes every buffered update in one batch. Entries replaced while the
+     * batch runs stay buffered for the next flush; if the batch fails, all
+     * entries stay buffered.
+     *
+     * @return the number of updates written
+     */
+    @Scheduled(fixedDelayString = "${ecommercepro.order-status-write-behind.flush-interval-ms:200}")
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        // take the stamp before the batch so an update buffered after it is never older than the row it follows
+        LocalDateTime now;
+        List<Order> batch;
+        synchronized (stampLock) {
+            now = LocalDateTime.now();
+            batch = new ArrayList<>(pending.values());
+        }
+        return write(batch, now);
+    }
+
+    private int write(List<Order> batch, LocalDateTime now) {
+        // ascending ids so concurrent flushes from several instances lock rows in the same order
+        batch.sort(Comparator.comparing(Order::getId));
+        Timestamp stamp = Timestamp.valueOf(now);
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (Order order : batch) {
+            args.add(new Object[] { order.getStatus(), stamp, order.getId(), Timestamp.valueOf(order.getUpdated()) });
+        }
+        int[] rows;
+        try {
+            rows = jdbcTemplate.batchUpdate(UPDATE_STATUS, args);
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            log.warn("OrderStatusWriteBehind failed to write {} buffered updates, retrying on the next flush",
+                    batch.size(), e);
+            return 0;
+        }
+        int written = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Order order = batch.get(i);
+            // a newer update, or a deleted order, leaves nothing for the buffered one to write
+            if (rows[i] == 0) {
+                superseded.increment();
+                log.debug("OrderStatusWriteBehind dropped buffered update for Order Id {} superseded by a newer write",
+                        order.getId());
+            } else {
+                written++;
+            }
+            pending.remove(order.getId(), order);
+        }
+        orderDetailCache.invalidateAll(batch.stream().map(Order::getId).toList());
+        flushed.increment(written);
+        log.debug("OrderStatusWriteBehind wrote {} buffered updates", written);
+        return written;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        int remaining = pending.size();
+        if (remaining > 0) {
+            log.info("OrderStatusWriteBehind flushing {} buffered updates on shutdown", remaining);
+            flush();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.splawrence.ecommercepro.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.splawrence.ecommercepro.model.ChangeCursor;
+import com.splawrence.ecommercepro.model.ChangeSet;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.ProductRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Opt-in in-memory copy of the product catalog for by-id reads, kept warm
+ * across restarts by a snapshot file.
+ * <p>
+ * When enabled, the catalog is written to {@code path} periodically and on
+ * shutdown. On startup the snapshot is memory-mapped and loaded, and the
+ * products feed is replayed from the snapshot's cursor to pick up whatever
+ * changed while the process was down, so a new pod serves point reads from
+ * memory instead of sending every first lookup to Postgres. Without a
+ * snapshot the first catch-up reads the whole catalog a page at a time.
+ * <p>
+ * Writes through this instance update the cache directly. Writes through
+ * other instances are picked up by a catch-up every
+ * {@code catch-up-interval-ms}, which starts {@code catch-up-overlap} before
+ * the last cursor so rows committed late with an earlier {@code updated} are
+ * not missed. Reads may therefore lag other instances by up to one interval.
+ * Bulk imports and reprices through this instance trigger a catch-up in the
+ * background once they commit.
+ * <p>
+ * Stock reservations do not move {@code updated}, so products that track
+ * stock are never cached and always read from the database.
+ * <p>
+ * Products are kept as entities on the heap by default. With
+ * {@code store: off-heap} they are kept in an {@link OffHeapProductStore}
+ * instead, which keeps very large catalogs out of the collector's way.
+ */
+@Service
+@Slf4j
+public class ProductCatalogCache {
+    private final ProductStore products;
+    private final ProductRepository productRepository;
+    private final ChangeFeedService changeFeedService;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration catchUpOverlap;
+    private final Counter hits;
+    private final Counter misses;
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private volatile ChangeCursor cursor = ChangeCursor.START;
+    private volatile boolean ready;
+
+    public ProductCatalogCache(ProductRepository productRepository, ChangeFeedService changeFeedService,
+            MeterRegistry meterRegistry,
+            @Value("${ecommercepro.catalog-snapshot.enabled:false}") boolean enabled,
+            @Value("${ecommercepro.catalog-snapshot.path:catalog-snapshot.bin}") Path path,
+            @Value("${ecommercepro.catalog-snapshot.catch-up-overlap:5s}") Duration catchUpOverlap,
+            @Value("${ecommercepro.catalog-snapshot.store:heap}") String store) {
+        this.productRepository = productRepository;
+        this.changeFeedService = changeFeedService;
+        this.enabled = enabled;
+        this.path = path;
+        this.catchUpOverlap = catchUpOverlap;
+        this.products = switch (store) {
+            case "heap" -> new HeapProductStore();
+            case "off-heap" -> new OffHeapProductStore();
+            default -> throw new IllegalArgumentException("Unknown catalog store: " + store);
+        };
+        this.hits = Counter.builder("ecommercepro.catalog-cache.hits")
+                .description("Product reads served from the catalog cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ecommercepro.catalog-cache.misses")
+                .description("Product reads the catalog cache could not serve")
+                .register(meterRegistry);
+        Gauge.builder("ecommercepro.catalog-cache.size", products, ProductStore::size)
+                .description("Products held by the catalog cache")
+                .register(meterRegistry);
+        Gauge.builder("ecommercepro.catalog-cache.off-heap", products, ProductStore::offHeapBytes)
+                .description("Memory held outside the Java heap by the catalog cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the cached product, or empty if the cache is disabled, still
+     *         warming up or does not hold it
+     */
+    public Optional<Product> get(Long id) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        Optional<Product> product = products.get(id);
+        (product.isPresent() ? hits : misses).increment();
+        return product;
+    }
+
+    /**
+     * Looks up many products at once, serving what the cache holds and
+     * reading only the rest with {@code loader}, whose results are cached.
+     *
+     * @param ids    the ids to look up
+     * @param loader the batched lookup for the misses, typically
+     *               {@code productRepository::findAllById}
+     * @return the products found, in no particular order
+     */
+    public List<Product> getAll(Iterable<Long> ids, Function<Iterable<Long>, List<Product>> loader) {
+        if (!ready) {
+            return loader.apply(ids);
+        }
+        List<Product> found = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            products.get(id).ifPresentOrElse(found::add, () -> missing.add(id));
+        }
+        hits.increment(found.size());
+        misses.increment(missing.size());
+        if (!missing.isEmpty()) {
+            for (Product product : loader.apply(missing)) {
+                found.add(put(product));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Caches a product just saved or read, unless a newer copy is already
+     * cached or the product tracks stock.
+     *
+     * @return the product passed in
+     */
+    public Product put(Product product) {
+        if (enabled) {
+            apply(product);
+        }
+        return product;
+    }
+
+    /**
+     * Drops a deleted product.
+     */
+    public void evict(Long id) {
+        if (enabled) {
+            products.remove(id);
+        }
+    }
+
+    /**
+     * Loads the snapshot, if there is one, then catches up with the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        if (Files.exists(path)) {
+            long start = System.nanoTime();
+            try {
+                cursor = CatalogSnapshotFile.read(path, this::apply);
+                log.info("ProductCatalogCache loaded {} products from {} in {} ms up to {}", products.size(), path,
+                        Duration.ofNanos(System.nanoTime() - start).toMillis(), cursor);
+            } catch (IOException | RuntimeException e) {
+                log.warn("ProductCatalogCache ignoring unreadable snapshot {}", path, e);
+                products.clear();
+                cursor = ChangeCursor.START;
+            }
+        }
+        catchUp();
+    }
+
+    /**
+     * Catches up once a bulk import or reprice has committed, on the cache's
+     * own thread so the request that made the changes does not wait for it.
+     * Events arriving while a catch-up is still queued share it.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (!enabled || !refreshQueued.compareAndSet(false, true)) {
+            return;
+        }
+        log.debug("ProductCatalogCache catching up after {} changed {} products", event.source(), event.changed());
+        refresher.execute(() -> {
+            refreshQueued.set(false);
+            catchUp();
+        });
+    }
+
+    /**
+     * Applies every product change and deletion since the last catch-up. The
+     * cache starts serving reads once the first catch-up completes.
+     */
+    @Scheduled(fixedDelayString = "${ecommercepro.catalog-snapshot.catch-up-interval-ms:5000}")
+    public synchronized void catchUp() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ChangeCursor from = rewind(cursor);
+            int changed = 0;
+            int deleted = 0;
+            ChangeSet<Product> page;
+            do {
+                page = changeFeedService.changesSince(ChangeFeedService.PRODUCTS, from.toString(),
+                        Integer.MAX_VALUE, productRepository::findChangedSince,
+                        productRepository::findChangedBetween);
+                page.getChanged().forEach(this::apply);
+                page.getDeleted().forEach(products::remove);
+                changed += page.getChanged().size();
+                deleted += page.getDeleted().size();
+                from = ChangeCursor.parse(page.getNextCursor());
+            } while (page.isHasMore());
+            // the overlap replays rows already seen, so never move the cursor backwards
+            if (compare(from, cursor) > 0) {
+                cursor = from;
+            }
+            if (!ready) {
+                ready = true;
+                log.info("ProductCatalogCache serving {} products", products.size());
+            }
+            log.debug("ProductCatalogCache.catchUp applied {} changed and {} deleted up to {}", changed, deleted,
+                    cursor);
+        } catch (BadRequestException | RuntimeException e) {
+            log.warn("ProductCatalogCache catch-up failed, will retry", e);
+        }
+    }
+
+    /**
+     * Writes the cached catalog to the snapshot file.
+     */
+    @Scheduled(fixedDelayString = "${ecommercepro.catalog-snapshot.write-interval-ms:300000}",
+            initialDelayString = "${ecommercepro.catalog-snapshot.write-interval-ms:300000}")
+    @PreDestroy
+    public void writeSnapshot() {
+        if (!enabled || !ready) {
+            return;
+        }
+        // take the cursor first: every cached product is at least as new as it
+        ChangeCursor snapshotCursor = cursor;
+        long start = System.nanoTime();
+        try {
+            CatalogSnapshotFile.write(path, snapshotCursor, products::forEach);
+            log.info("ProductCatalogCache wrote {} products to {} in {} ms", products.size(), path,
+                    Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (IOException | RuntimeException e) {
+            log.warn("ProductCatalogCache failed to write snapshot {}", path, e);
+        }
+    }
+
+    private void apply(Product product) {
+        if (product.getStock() != null) {
+            products.remove(product.getId());
+            return;
+        }
+        products.put(product);
+    }
+
+    private ChangeCursor rewind(ChangeCursor from) {
+        if (from.equals(ChangeCursor.START)) {
+            return from;
+        }
+        return new ChangeCursor(from.getUpdated().minus(catchUpOverlap), 0L);
+    }
+
+    private static int compare(ChangeCursor a, ChangeCursor b) {
+        int byTime = a.getUpdated().compareTo(b.getUpdated());
+        return byTime != 0 ? byTime : a.getId().compareTo(b.getId());
+    }
+}
@@ -0,0 +1,11 @@
+package com.splawrence.ecommercepro.service;
+
+/**
+ * Published once after a bulk operation changes many products, so anything
+ * caching products can drop its entries in one go instead of per row.
+ *
+ * @param source  what changed the products, e.g. {@code "import"}
+ * @param changed the number of products inserted or updated
+ */
+public record ProductCatalogChangedEvent(String source, long changed) {
+}
@@ -0,0 +1,192 @@
+package com.splawrence.ecommercepro.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.coyote.BadRequestException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splawrence.ecommercepro.model.ProductImportFormat;
+
+/**
+ * Parses and validates one line of a bulk product import at a time, without
+ * building entities, and renders valid rows as CSV for {@code COPY}.
+ */
+class ProductImportParser {
+    static final int MAX_DESCRIPTION_LENGTH = 255;
+    static final int PRICE_SCALE = 2;
+
+    /**
+     * A validated input row. The id is null for new products.
+     */
+    record Row(Long id, String description, BigDecimal price) {
+    }
+
+    private final ProductImportFormat format;
+    private final ObjectMapper objectMapper;
+    private int idColumn = -1;
+    private int descriptionColumn = -1;
+    private int priceColumn = -1;
+
+    ProductImportParser(ProductImportFormat format, ObjectMapper objectMapper) {
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return true if the format starts with a header line that must be
+     *         passed to {@link #readHeader(String)} first
+     */
+    boolean hasHeader() {
+        return format == ProductImportFormat.CSV;
+    }
+
+    /**
+     * Reads the CSV header, which names the id, description and price columns
+     * in any order. The id column is optional.
+     *
+     * @throws BadRequestException if the header is missing a required column
+     */
+    void readHeader(String header) throws BadRequestException {
+        if (header == null) {
+            throw new BadRequestException("Import is empty, expected a header with description and price");
+        }
+        List<String> columns = splitCsv(header);
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "id" -> idColumn = i;
+                case "description" -> descriptionColumn = i;
+                case "price" -> priceColumn = i;
+                default -> {
+                    // other columns are ignored
+                }
+            }
+        }
+        if (descriptionColumn < 0 || priceColumn < 0) {
+            throw new BadRequestException("Import header must name description and price columns: " + header);
+        }
+    }
+
+    /**
+     * @param line one input line, not blank
+     * @return the validated row
+     * @throws IllegalArgumentException describing why the row is invalid
+     */
+    Row parse(String line) {
+        return format == ProductImportFormat.CSV ? parseCsv(line) : parseJson(line);
+    }
+
+    /**
+     * Renders a row as a CSV line for {@code COPY ... (line, id, description,
+     * price) FROM STDIN WITH (FORMAT csv)}. An empty id is read as NULL.
+     */
+    static void appendCopyLine(StringBuilder out, long lineNumber, Row row) {
+        out.append(lineNumber).append(',');
+        if (row.id() != null) {
+            out.append(row.id());
+        }
+        out.append(",\"").append(row.description().replace("\"", "\"\"")).append("\",")
+                .append(row.price().toPlainString()).append('\n');
+    }
+
+    private Row parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        return validate(field(fields, idColumn), field(fields, descriptionColumn), field(fields, priceColumn));
+    }
+
+    private Row parseJson(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return validate(text(node.get("id")), text(node.get("description")), text(node.get("price")));
+    }
+
+    private static Row validate(String id, String description, String price) {
+        Long parsedId = null;
+        if (id != null && !id.isBlank()) {
+            try {
+                parsedId = Long.valueOf(id.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid id: " + id);
+            }
+            if (parsedId <= 0) {
+                throw new IllegalArgumentException("Id must be positive: " + id);
+            }
+        }
+        if (description == null || description.isBlank()) {
+            throw new IllegalArgumentException("Description is required");
+        }
+        if (description.length() > MAX_DESCRIPTION_LENGTH) {
+            throw new IllegalArgumentException("Description is longer than " + MAX_DESCRIPTION_LENGTH + " characters");
+        }
+        if (price == null || price.isBlank()) {
+            throw new IllegalArgumentException("Price is required");
+        }
+        BigDecimal parsedPrice;
+        try {
+            parsedPrice = new BigDecimal(price.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: " + price);
+        }
+        if (parsedPrice.signum() < 0) {
+            throw new IllegalArgumentException("Price must not be negative: " + price);
+        }
+        if (parsedPrice.stripTrailingZeros().scale() > PRICE_SCALE) {
+            throw new IllegalArgumentException("Price has more than " + PRICE_SCALE + " decimal places: " + price);
+        }
+        return new Row(parsedId, description, parsedPrice);
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields with {@code ""}
+     * escapes. Fields spanning several lines are not supported.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
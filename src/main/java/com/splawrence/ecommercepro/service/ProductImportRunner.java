@@ -0,0 +1,72 @@
+package com.splawrence.ecommercepro.service;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import com.splawrence.ecommercepro.model.ProductImportFormat;
+import com.splawrence.ecommercepro.model.ProductImportResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Command line mode for the bulk product import. Started with
+ * {@code --import-products=<file>} (repeatable), it imports each .csv or
+ * .ndjson file, prints the result and exits with status 1 if any row was
+ * rejected. Without the option the application starts normally.
+ */
+@Component
+@Slf4j
+public class ProductImportRunner implements ApplicationRunner {
+    public static final String OPTION = "import-products";
+
+    private final ProductImportService productImportService;
+    private final ConfigurableApplicationContext applicationContext;
+
+    public ProductImportRunner(@Lazy ProductImportService productImportService,
+            ConfigurableApplicationContext applicationContext) {
+        this.productImportService = productImportService;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> files = args.getOptionValues(OPTION);
+        if (files == null) {
+            return;
+        }
+        int exitCode = importAll(files);
+        System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+    }
+
+    /**
+     * @return 0 if every row of every file was imported, otherwise 1
+     */
+    int importAll(List<String> files) throws Exception {
+        int exitCode = 0;
+        for (String file : files) {
+            log.info("ProductImportRunner importing {}", file);
+            ProductImportResult result;
+            try (InputStream input = Files.newInputStream(Path.of(file))) {
+                result = productImportService.importProducts(input, ProductImportFormat.fromFileName(file));
+            }
+            System.out.printf("%s: %d inserted, %d updated, %d rejected in %d ms%n", file, result.getInserted(),
+                    result.getUpdated(), result.getRejected(), result.getDurationMillis());
+            for (ProductImportResult.RowError error : result.getErrors()) {
+                System.out.printf("  line %d: %s%n", error.getLine(), error.getMessage());
+            }
+            if (result.getRejected() > 0) {
+                exitCode = 1;
+            }
+        }
+        return exitCode;
+    }
+}
@@ -0,0 +1,241 @@
+package com.splawrence.ecommercepro.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+import org.apache.coyote.BadRequestException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splawrence.ecommercepro.model.ProductImportFormat;
+import com.splawrence.ecommercepro.model.ProductImportResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads products in bulk with the Postgres {@code COPY} protocol.
+ * <p>
+ * Input is parsed and validated a line at a time and streamed into a
+ * temporary staging table, so memory use does not grow with the input and no
+ * entities are built. Invalid rows are reported and skipped. The staging
+ * table is then merged into {@code products} in two set-based statements:
+ * rows with an id are upserted, rows without one are inserted with ids drawn
+ * from {@code products_seq} in the same blocks Hibernate uses. Everything
+ * runs in one transaction, so a failed import changes nothing.
+ */
+@Service
+@Lazy
+@Slf4j
+public class ProductImportService {
+    /** Matches the increment of products_seq and Hibernate's default allocation size. */
+    static final int ID_BLOCK_SIZE = 50;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String CREATE_STAGING = "CREATE TEMP TABLE product_import"
+            + " (line bigint NOT NULL, id bigint, description varchar(255) NOT NULL, price numeric(38,2) NOT NULL)"
+            + " ON COMMIT DROP";
+
+    private static final String COPY_STAGING = "COPY product_import (line, id, description, price)"
+            + " FROM STDIN WITH (FORMAT csv)";
+
+    // the last line wins when an id appears more than once
+    private static final String UPSERT_WITH_ID = "WITH upserted AS ("
+            + " INSERT INTO products (id, created, description, price, updated)"
+            + " SELECT DISTINCT ON (id) id, ?, description, price, ? FROM product_import"
+            + " WHERE id IS NOT NULL ORDER BY id, line DESC"
+            + " ON CONFLICT (id) DO UPDATE SET description = EXCLUDED.description, price = EXCLUDED.price,"
+            + " updated = EXCLUDED.updated"
+            + " RETURNING xmax = 0 AS inserted)"
+            + " SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted";
+
+    // each sequence value v reserves ids v-49..v, as Hibernate's pooled optimizer
+    // does; the initial value 1 is skipped because its block would start below 1
+    private static final String INSERT_WITHOUT_ID = "WITH new_rows AS ("
+            + " SELECT description, price, row_number() OVER (ORDER BY line) - 1 AS n"
+            + " FROM product_import WHERE id IS NULL),"
+            + " blocks AS (SELECT row_number() OVER (ORDER BY hi) - 1 AS block, hi FROM"
+            + " (SELECT nextval('products_seq') AS hi FROM generate_series(0, ?)) allocated WHERE hi > 1)"
+            + " INSERT INTO products (id, created, description, price, updated)"
+            + " SELECT blocks.hi - " + (ID_BLOCK_SIZE - 1) + " + new_rows.n % " + ID_BLOCK_SIZE
+            + ", ?, description, price, ?"
+            + " FROM new_rows JOIN blocks ON blocks.block = new_rows.n / " + ID_BLOCK_SIZE;
+
+    // keep ids imported explicitly out of the blocks handed out afterwards
+    private static final String ADVANCE_SEQUENCE = "SELECT setval('products_seq', max_id + " + (ID_BLOCK_SIZE - 1)
+            + ") FROM (SELECT max(id) AS max_id FROM products) p"
+            + " WHERE max_id + " + (ID_BLOCK_SIZE - 1) + " > (SELECT last_value FROM products_seq)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+    private final int maxErrors;
+    private final long progressInterval;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+            @Value("${ecommercepro.product-import.max-errors:100}") int maxErrors,
+            @Value("${ecommercepro.product-import.progress-interval:10000}") long progressInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.importedRows = Counter.builder("ecommercepro.product-import.rows")
+                .description("Rows processed by the bulk product import")
+                .tag("outcome", "imported")
+                .register(meterRegistry);
+        this.rejectedRows = Counter.builder("ecommercepro.product-import.rows")
+                .description("Rows processed by the bulk product import")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+        this.maxErrors = maxErrors;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Imports products from the input, which is read to the end but not closed.
+     *
+     * @return the inserted, updated and rejected counts
+     * @throws BadRequestException if the input has no usable CSV header
+     * @throws IOException         if the input cannot be read before the import starts
+     */
+    public ProductImportResult importProducts(InputStream input, ProductImportFormat format)
+            throws BadRequestException, IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ProductImportParser parser = new ProductImportParser(format, objectMapper);
+        long firstLine = 1;
+        if (parser.hasHeader()) {
+            parser.readHeader(reader.readLine());
+            firstLine = 2;
+        }
+        long firstDataLine = firstLine;
+
+        ProductImportResult result = transactionTemplate.execute(transaction -> jdbcTemplate.execute(
+                (ConnectionCallback<ProductImportResult>) connection -> load(connection, reader, parser,
+                        firstDataLine)));
+
+        result.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        importedRows.increment(result.getInserted() + result.getUpdated());
+        rejectedRows.increment(result.getRejected());
+        log.info("ProductImportService imported {} new and {} updated Products, rejected {} rows in {} ms",
+                result.getInserted(), result.getUpdated(), result.getRejected(), result.getDurationMillis());
+        if (result.getInserted() + result.getUpdated() > 0) {
+            eventPublisher.publishEvent(
+                    new ProductCatalogChangedEvent("import", result.getInserted() + result.getUpdated()));
+        }
+        return result;
+    }
+
+    private ProductImportResult load(Connection connection, BufferedReader reader, ProductImportParser parser,
+            long firstLine) throws SQLException {
+        ProductImportResult result = new ProductImportResult();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING);
+        }
+        long withoutId = copy(connection, reader, parser, firstLine, result);
+
+        LocalDateTime now = LocalDateTime.now();
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_WITH_ID)) {
+            statement.setObject(1, now);
+            statement.setObject(2, now);
+            try (ResultSet counts = statement.executeQuery()) {
+                counts.next();
+                result.setInserted(counts.getLong(1));
+                result.setUpdated(counts.getLong(2));
+            }
+        }
+        if (withoutId > 0) {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_WITHOUT_ID)) {
+                // one spare block in case the sequence hands out its initial value
+                statement.setLong(1, (withoutId + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE);
+                statement.setObject(2, now);
+                statement.setObject(3, now);
+                result.setInserted(result.getInserted() + statement.executeUpdate());
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(ADVANCE_SEQUENCE);
+        }
+        return result;
+    }
+
+    /**
+     * Streams the valid rows into the staging table.
+     *
+     * @return the number of rows copied without an id
+     */
+    private long copy(Connection connection, BufferedReader reader, ProductImportParser parser, long firstLine,
+            ProductImportResult result) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+        StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE + 1024);
+        long copied = 0;
+        long withoutId = 0;
+        long lineNumber = firstLine;
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNumber++) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    ProductImportParser.Row row = parser.parse(line);
+                    ProductImportParser.appendCopyLine(buffer, lineNumber, row);
+                    copied++;
+                    if (row.id() == null) {
+                        withoutId++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    result.setRejected(result.getRejected() + 1);
+                    if (result.getErrors().size() < maxErrors) {
+                        result.getErrors().add(new ProductImportResult.RowError(lineNumber, e.getMessage()));
+                    }
+                }
+                if (buffer.length() >= COPY_BUFFER_SIZE) {
+                    write(copyIn, buffer);
+                }
+                if ((lineNumber - firstLine + 1) % progressInterval == 0) {
+                    log.info("ProductImportService read {} lines, {} valid, {} rejected",
+                            lineNumber - firstLine + 1, copied, result.getRejected());
+                }
+            }
+            write(copyIn, buffer);
+            copyIn.endCopy();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        return withoutId;
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
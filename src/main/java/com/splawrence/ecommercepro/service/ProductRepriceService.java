@@ -0,0 +1,188 @@
+package com.splawrence.ecommercepro.service;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.splawrence.ecommercepro.model.ProductRepriceRequest;
+import com.splawrence.ecommercepro.model.ProductRepriceResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reprices products with set-based {@code UPDATE} statements instead of a
+ * read and full-row save per product. Only {@code price} and {@code updated}
+ * are written, so {@code created} is left alone and the change feed sees
+ * every repriced product. Each repricing runs in one transaction.
+ */
+@Service
+@Lazy
+@Slf4j
+public class ProductRepriceService {
+    /** Ids per UPDATE for an explicit price map, keeping the bound arrays small. */
+    static final int CHUNK_SIZE = 5000;
+
+    // rows are locked in id order before the update, whatever join the planner picks for it
+    private static final String UPDATE_PRICES = "WITH v AS (SELECT * FROM unnest(?::bigint[], ?::numeric[]) AS v(id, price)),"
+            + " locked AS (SELECT p.id FROM products p JOIN v ON v.id = p.id ORDER BY p.id FOR UPDATE OF p)"
+            + " UPDATE products p SET price = v.price, updated = ? FROM v JOIN locked ON locked.id = v.id"
+            + " WHERE p.id = v.id RETURNING p.id";
+
+    private static final String UPDATE_BY_RULE = "UPDATE products SET price = round(price * (100 + ?) / 100, "
+            + ProductImportParser.PRICE_SCALE + "), updated = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxPrices;
+    private final BigDecimal maxPercent;
+
+    public ProductRepriceService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${ecommercepro.product-reprice.max-prices:100000}") int maxPrices,
+            @Value("${ecommercepro.product-reprice.max-percent:1000}") BigDecimal maxPercent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.maxPrices = maxPrices;
+        this.maxPercent = maxPercent;
+    }
+
+    /**
+     * Applies the explicit prices or the rule of the request.
+     *
+     * @return the number of products updated and the ids that do not exist
+     * @throws BadRequestException if the request does not hold exactly one
+     *                             valid price map or rule
+     */
+    public ProductRepriceResult reprice(ProductRepriceRequest request) throws BadRequestException {
+        boolean hasPrices = request.getPrices() != null;
+        boolean hasRule = request.getRule() != null;
+        if (hasPrices == hasRule) {
+            throw new BadRequestException("Exactly one of prices and rule must be supplied");
+        }
+        long start = System.nanoTime();
+        ProductRepriceResult result;
+        if (hasPrices) {
+            validatePrices(request.getPrices());
+            result = transactionTemplate.execute(transaction -> updatePrices(request.getPrices()));
+        } else {
+            validateRule(request.getRule());
+            result = transactionTemplate.execute(transaction -> updateByRule(request.getRule()));
+        }
+        result.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        log.info("ProductRepriceService repriced {} Products in {} ms", result.getUpdated(),
+                result.getDurationMillis());
+        if (result.getUpdated() > 0) {
+            eventPublisher.publishEvent(new ProductCatalogChangedEvent("reprice", result.getUpdated()));
+        }
+        return result;
+    }
+
+    private void validatePrices(Map<Long, BigDecimal> prices) throws BadRequestException {
+        if (prices.isEmpty()) {
+            throw new BadRequestException("At least one price must be supplied");
+        }
+        if (prices.size() > maxPrices) {
+            throw new BadRequestException("At most " + maxPrices + " prices may be supplied at once");
+        }
+        for (Map.Entry<Long, BigDecimal> entry : prices.entrySet()) {
+            BigDecimal price = entry.getValue();
+            if (price == null || price.signum() < 0) {
+                throw new BadRequestException("Price must not be empty or negative for Product Id: " + entry.getKey());
+            }
+            if (price.stripTrailingZeros().scale() > ProductImportParser.PRICE_SCALE) {
+                throw new BadRequestException("Price has more than " + ProductImportParser.PRICE_SCALE
+                        + " decimal places for Product Id: " + entry.getKey());
+            }
+        }
+    }
+
+    private void validateRule(ProductRepriceRequest.Rule rule) throws BadRequestException {
+        if (rule.getPercent() == null) {
+            throw new BadRequestException("Rule percent must be supplied");
+        }
+        // prices are never negative, so a cut of at most 100% keeps them at or above zero
+        if (rule.getPercent().compareTo(BigDecimal.valueOf(-100)) < 0 || rule.getPercent().compareTo(maxPercent) > 0) {
+            throw new BadRequestException("Rule percent must be between -100 and " + maxPercent.toPlainString()
+                    + ": " + rule.getPercent().toPlainString());
+        }
+        if (rule.getMinId() != null && rule.getMaxId() != null && rule.getMinId() > rule.getMaxId()) {
+            throw new BadRequestException("Rule minId must not be greater than maxId");
+        }
+    }
+
+    private ProductRepriceResult updatePrices(Map<Long, BigDecimal> prices) {
+        LocalDateTime now = LocalDateTime.now();
+        // lock in product id order across chunks, as checkout reserves stock, so two repricings cannot deadlock
+        List<Long> ids = new ArrayList<>(prices.keySet());
+        Collections.sort(ids);
+        Set<Long> updated = new HashSet<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            Object[] chunkIds = chunk.toArray();
+            Object[] chunkPrices = chunk.stream().map(prices::get).toArray();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(UPDATE_PRICES);
+                statement.setArray(1, connection.createArrayOf("bigint", chunkIds));
+                statement.setArray(2, connection.createArrayOf("numeric", chunkPrices));
+                statement.setObject(3, now);
+                return statement;
+            }, resultSet -> {
+                updated.add(resultSet.getLong(1));
+            });
+        }
+        ProductRepriceResult result = new ProductRepriceResult();
+        result.setUpdated(updated.size());
+        for (Long id : ids) {
+            if (!updated.contains(id)) {
+                result.getMissing().add(id);
+            }
+        }
+        return result;
+    }
+
+    private ProductRepriceResult updateByRule(ProductRepriceRequest.Rule rule) {
+        StringBuilder sql = new StringBuilder(UPDATE_BY_RULE);
+        List<Object> args = new ArrayList<>();
+        args.add(rule.getPercent());
+        args.add(LocalDateTime.now());
+        List<String> conditions = new ArrayList<>();
+        if (rule.getMinId() != null) {
+            conditions.add("id >= ?");
+            args.add(rule.getMinId());
+        }
+        if (rule.getMaxId() != null) {
+            conditions.add("id <= ?");
+            args.add(rule.getMaxId());
+        }
+        if (rule.getDescriptionContains() != null && !rule.getDescriptionContains().isEmpty()) {
+            conditions.add("description ILIKE ? ESCAPE '\\'");
+            args.add("%" + escapeLike(rule.getDescriptionContains()) + "%");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        ProductRepriceResult result = new ProductRepriceResult();
+        result.setUpdated(jdbcTemplate.update(sql.toString(), args.toArray()));
+        return result;
+    }
+
+    static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,43 @@
+package com.splawrence.ecommercepro.service;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.splawrence.ecommercepro.model.Product;
+
+/**
+ * Holds the products cached by {@link ProductCatalogCache}. Implementations
+ * are safe for concurrent use.
+ */
+public interface ProductStore {
+
+    /**
+     * @return the stored product, or empty if it is not stored
+     */
+    Optional<Product> get(long id);
+
+    /**
+     * Stores the product unless a copy with a later {@code updated} is
+     * already stored.
+     */
+    void put(Product product);
+
+    void remove(long id);
+
+    int size();
+
+    void clear();
+
+    /**
+     * Visits every stored product. Products changed during the visit may or
+     * may not be seen.
+     */
+    void forEach(Consumer<Product> consumer);
+
+    /**
+     * @return the bytes held outside the Java heap
+     */
+    default long offHeapBytes() {
+        return 0;
+    }
+}
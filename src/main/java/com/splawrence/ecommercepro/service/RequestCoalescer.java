@@ -0,0 +1,110 @@
+package com.splawrence.ecommercepro.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.splawrence.ecommercepro.exception.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Coalesces concurrent lookups of the same key into a single call.
+ * <p>
+ * The first caller for a key runs the lookup; callers that arrive while it is
+ * in flight wait for and share its result. Nothing is kept once the lookup
+ * finishes, so a result is never older than the lookup that produced it, but
+ * a caller that joins may get data read before its own request arrived: a
+ * write committed after the lookup started, even by that same caller just
+ * before, is not seen. Only coalesce reads that can tolerate being that
+ * stale, at most the lookup time or {@code ecommercepro.coalescing.timeout}.
+ */
+@Service
+@Slf4j
+public class RequestCoalescer {
+    private record Key(String name, Object id) {
+    }
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Duration timeout;
+    private final int retryAfterSeconds;
+
+    public RequestCoalescer(MeterRegistry meterRegistry,
+            @Value("${ecommercepro.coalescing.timeout:5s}") Duration timeout,
+            @Value("${ecommercepro.admission.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.timeout = timeout;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Runs the lookup, or joins one already in flight for the same name and id.
+     *
+     * @param name   the kind of lookup, used to separate keys and tag metrics
+     * @param id     the key being looked up
+     * @param lookup the lookup to run if none is in flight
+     * @return the lookup result
+     * @throws ServiceOverloadedException if a shared lookup does not finish within the timeout
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object id, Supplier<T> lookup) {
+        Key key = new Key(name, id);
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, call);
+        counter(name, existing == null ? "leader" : "shared").increment();
+        if (existing != null) {
+            return (T) await(key, existing);
+        }
+
+        try {
+            T result = lookup.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private Object await(Key key, CompletableFuture<Object> call) {
+        try {
+            return call.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            counter(key.name(), "timeout").increment();
+            log.debug("RequestCoalescer timed out waiting for {}", key);
+            throw new ServiceOverloadedException("Timed out waiting for " + key.name() + " " + key.id(),
+                    retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Interrupted waiting for " + key.name() + " " + key.id(),
+                    retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Counter counter(String name, String outcome) {
+        // the registry caches meters, so this is a map lookup after the first call
+        return Counter.builder("ecommercepro.coalescing.requests")
+                .description("Coalesced lookups by outcome; shared / (leader + shared) is the coalescing ratio")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
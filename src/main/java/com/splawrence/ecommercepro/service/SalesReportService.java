@@ -0,0 +1,263 @@
+package com.splawrence.ecommercepro.service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.splawrence.ecommercepro.model.DailyRevenue;
+import com.splawrence.ecommercepro.model.ProductSales;
+import com.splawrence.ecommercepro.model.SalesMetric;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Computes sales reports over {@code order_items}.
+ * <p>
+ * By default the database aggregates with {@code GROUP BY} and only the
+ * result rows are returned. In streaming mode the raw rows are read through a
+ * cursor and summed here with {@code long} cent accumulators, so no
+ * {@code BigDecimal} is built per row; this moves the aggregation off a busy
+ * database for large scans. Both modes give the same results.
+ * <p>
+ * A report covers order items created from the start of {@code from} to the
+ * end of {@code to}. Revenue is quantity times the unit price recorded on each
+ * item when it was ordered, so reports read {@code order_items} alone and
+ * repricing does not rewrite past revenue. Items created before unit prices
+ * were recorded count once {@link OrderItemPriceBackfill} has priced them.
+ */
+@Service
+@Lazy
+@Slf4j
+public class SalesReportService {
+    private static final int CENTS_SCALE = 2;
+
+    // aggregate order_items alone and only look up the descriptions of the rows returned
+    private static final String TOP_PRODUCTS = "SELECT t.id, p.description, t.quantity, t.revenue"
+            + " FROM (SELECT oi.product_id AS id, sum(oi.quantity) AS quantity,"
+            + " coalesce(sum(oi.quantity * oi.unit_price), 0.00) AS revenue"
+            + " FROM order_items oi"
+            + " WHERE oi.created >= ? AND oi.created < ? AND oi.product_id IS NOT NULL"
+            + " GROUP BY oi.product_id ORDER BY %1$s DESC, oi.product_id LIMIT ?) t"
+            + " JOIN products p ON p.id = t.id ORDER BY t.%1$s DESC, t.id";
+
+    private static final String DAILY_REVENUE = "SELECT oi.created::date AS day, sum(oi.quantity) AS quantity,"
+            + " coalesce(sum(oi.quantity * oi.unit_price), 0.00) AS revenue"
+            + " FROM order_items oi"
+            + " WHERE oi.created >= ? AND oi.created < ? AND oi.product_id IS NOT NULL"
+            + " GROUP BY 1 ORDER BY 1";
+
+    // one narrow row per order item; prices are numeric(38,2), so cents are exact
+    private static final String SCAN = "SELECT oi.product_id, oi.quantity,"
+            + " coalesce((oi.unit_price * 100)::bigint, 0) AS price_cents, oi.created::date - ?::date AS day"
+            + " FROM order_items oi"
+            + " WHERE oi.created >= ? AND oi.created < ? AND oi.product_id IS NOT NULL";
+
+    private static final String DESCRIPTIONS = "SELECT id, description FROM products WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxLimit;
+    private final int maxDays;
+    private final int fetchSize;
+
+    public SalesReportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${ecommercepro.reports.max-limit:100}") int maxLimit,
+            @Value("${ecommercepro.reports.max-days:366}") int maxDays,
+            @Value("${ecommercepro.reports.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Postgres only honours the fetch size, and so streams, inside a transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxLimit = maxLimit;
+        this.maxDays = maxDays;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @param metric    what to rank by
+     * @param limit     how many products to return
+     * @param from      the first day of the report
+     * @param to        the last day of the report
+     * @param streaming aggregate here instead of in the database
+     * @return the best selling products, best first, ties broken by id
+     * @throws BadRequestException if the limit or date range is out of bounds
+     */
+    public List<ProductSales> topProducts(SalesMetric metric, int limit, LocalDate from, LocalDate to,
+            boolean streaming) throws BadRequestException {
+        if (limit < 1 || limit > maxLimit) {
+            throw new BadRequestException("Limit must be between 1 and " + maxLimit);
+        }
+        validateRange(from, to);
+        long start = System.nanoTime();
+        List<ProductSales> result = streaming
+                ? readOnlyTransaction.execute(transaction -> streamTopProducts(metric, limit, from, to))
+                : jdbcTemplate.query(String.format(TOP_PRODUCTS, metric.name().toLowerCase()),
+                        (resultSet, rowNum) -> new ProductSales(resultSet.getLong("id"),
+                                resultSet.getString("description"), resultSet.getLong("quantity"),
+                                resultSet.getBigDecimal("revenue")),
+                        startOf(from), startOf(to.plusDays(1)), limit);
+        log.debug("SalesReportService.topProducts by {} from {} to {} took {} ms", metric, from, to,
+                (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * @param from      the first day of the report
+     * @param to        the last day of the report
+     * @param streaming aggregate here instead of in the database
+     * @return one entry per day from {@code from} to {@code to}, including days without sales
+     * @throws BadRequestException if the date range is out of bounds
+     */
+    public List<DailyRevenue> dailyRevenue(LocalDate from, LocalDate to, boolean streaming)
+            throws BadRequestException {
+        validateRange(from, to);
+        long start = System.nanoTime();
+        List<DailyRevenue> result;
+        if (streaming) {
+            result = readOnlyTransaction.execute(transaction -> streamDailyRevenue(from, to));
+        } else {
+            Map<LocalDate, DailyRevenue> byDay = new HashMap<>();
+            jdbcTemplate.query(DAILY_REVENUE, resultSet -> {
+                LocalDate day = resultSet.getDate("day").toLocalDate();
+                byDay.put(day, new DailyRevenue(day, resultSet.getLong("quantity"),
+                        resultSet.getBigDecimal("revenue")));
+            }, startOf(from), startOf(to.plusDays(1)));
+            result = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                result.add(byDay.getOrDefault(day, new DailyRevenue(day, 0, BigDecimal.ZERO.setScale(CENTS_SCALE))));
+            }
+        }
+        log.debug("SalesReportService.dailyRevenue from {} to {} took {} ms", from, to,
+                (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) throws BadRequestException {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("From must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new BadRequestException("A report may cover at most " + maxDays + " days");
+        }
+    }
+
+    private List<ProductSales> streamTopProducts(SalesMetric metric, int limit, LocalDate from, LocalDate to) {
+        ProductTotals totals = new ProductTotals();
+        scan(from, to, (productId, quantity, priceCents, day) -> totals.add(productId, quantity, priceCents));
+        List<ProductSales> top = totals.top(metric, limit);
+        if (!top.isEmpty()) {
+            Map<Long, String> descriptions = new HashMap<>();
+            Object[] ids = top.stream().map(ProductSales::getProductId).toArray();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(DESCRIPTIONS);
+                statement.setArray(1, connection.createArrayOf("bigint", ids));
+                return statement;
+            }, resultSet -> {
+                descriptions.put(resultSet.getLong("id"), resultSet.getString("description"));
+            });
+            top.forEach(sales -> sales.setDescription(descriptions.get(sales.getProductId())));
+        }
+        return top;
+    }
+
+    private List<DailyRevenue> streamDailyRevenue(LocalDate from, LocalDate to) {
+        DailyTotals totals = new DailyTotals((int) ChronoUnit.DAYS.between(from, to) + 1);
+        scan(from, to, (productId, quantity, priceCents, day) -> totals.add(day, quantity, priceCents));
+        return totals.toList(from);
+    }
+
+    private void scan(LocalDate from, LocalDate to, RowConsumer consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SCAN);
+            statement.setFetchSize(fetchSize);
+            statement.setDate(1, Date.valueOf(from));
+            statement.setTimestamp(2, startOf(from));
+            statement.setTimestamp(3, startOf(to.plusDays(1)));
+            return statement;
+        }, resultSet -> {
+            consumer.accept(resultSet.getLong(1), resultSet.getInt(2), resultSet.getLong(3), resultSet.getInt(4));
+        });
+    }
+
+    private static Timestamp startOf(LocalDate day) {
+        return Timestamp.valueOf(day.atStartOfDay());
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, CENTS_SCALE);
+    }
+
+    @FunctionalInterface
+    interface RowConsumer {
+        void accept(long productId, int quantity, long priceCents, int day);
+    }
+
+    /**
+     * Quantity and revenue in cents per product.
+     */
+    static class ProductTotals {
+        private final Map<Long, long[]> totals = new HashMap<>();
+
+        void add(long productId, int quantity, long priceCents) {
+            long[] total = totals.computeIfAbsent(productId, id -> new long[2]);
+            total[0] += quantity;
+            total[1] = Math.addExact(total[1], Math.multiplyExact(quantity, priceCents));
+        }
+
+        /**
+         * @return the best products by the metric, best first, ties broken by id
+         */
+        List<ProductSales> top(SalesMetric metric, int limit) {
+            int index = metric == SalesMetric.QUANTITY ? 0 : 1;
+            Comparator<Map.Entry<Long, long[]>> byMetric = Comparator.comparingLong(entry -> entry.getValue()[index]);
+            return totals.entrySet().stream()
+                    .sorted(byMetric.reversed().thenComparingLong(Map.Entry::getKey))
+                    .limit(limit)
+                    .map(entry -> new ProductSales(entry.getKey(), null, entry.getValue()[0],
+                            fromCents(entry.getValue()[1])))
+                    .toList();
+        }
+    }
+
+    /**
+     * Quantity and revenue in cents per day, indexed by days since the first day.
+     */
+    static class DailyTotals {
+        private final long[] quantities;
+        private final long[] cents;
+
+        DailyTotals(int days) {
+            this.quantities = new long[days];
+            this.cents = new long[days];
+        }
+
+        void add(int day, int quantity, long priceCents) {
+            quantities[day] += quantity;
+            cents[day] = Math.addExact(cents[day], Math.multiplyExact(quantity, priceCents));
+        }
+
+        List<DailyRevenue> toList(LocalDate from) {
+            List<DailyRevenue> result = new ArrayList<>(quantities.length);
+            for (int day = 0; day < quantities.length; day++) {
+                result.add(new DailyRevenue(from.plusDays(day), quantities[day], fromCents(cents[day])));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.splawrence.ecommercepro.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.splawrence.ecommercepro.model.CountMode;
+import com.splawrence.ecommercepro.model.TotalCount;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pages and row counts for the paged list endpoints and their
+ * {@code X-Total-Count} header.
+ * <p>
+ * A {@code COUNT(*)} on a large table reads every row, so besides exact
+ * counts this offers a cached exact count, recomputed in the background once
+ * it is older than {@code cached-refresh} while the stale value keeps being
+ * served, and the planner's estimate: {@code pg_class.reltuples} scaled by the
+ * table's current size, as the planner itself does. It costs one catalog
+ * lookup and is as accurate as the table's last vacuum or analyze. The
+ * default, {@code auto}, counts exactly below {@code exact-threshold}
+ * estimated rows and estimates above it.
+ */
+@Service
+@Slf4j
+public class TotalCountService {
+    public static final String HEADER = "X-Total-Count";
+    public static final String MODE_HEADER = "X-Total-Count-Mode";
+
+    // only tables named here are ever interpolated into SQL
+    private static final Set<String> TABLES = Set.of(ChangeFeedService.ORDERS, ChangeFeedService.ORDER_ITEMS,
+            ChangeFeedService.PRODUCTS);
+
+    // reltuples is -1 until the table is first vacuumed or analyzed
+    private static final String ESTIMATE = "SELECT CASE WHEN c.reltuples < 0 THEN -1"
+            + " WHEN c.relpages = 0 THEN c.reltuples::bigint"
+            + " ELSE (c.reltuples / c.relpages * (pg_relation_size(c.oid) / current_setting('block_size')::int))::bigint"
+            + " END FROM pg_class c WHERE c.oid = ?::regclass";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadingCache<String, Long> cachedCounts;
+    private final long exactThreshold;
+    private final int maxPageSize;
+    private final Map<CountMode, Counter> counts = new EnumMap<>(CountMode.class);
+
+    public TotalCountService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${ecommercepro.total-count.exact-threshold:100000}") long exactThreshold,
+            @Value("${ecommercepro.total-count.cached-refresh:60s}") Duration cachedRefresh,
+            @Value("${ecommercepro.total-count.max-page-size:1000}") int maxPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.exactThreshold = exactThreshold;
+        this.maxPageSize = maxPageSize;
+        this.cachedCounts = Caffeine.newBuilder()
+                .refreshAfterWrite(cachedRefresh)
+                .build(this::exactCount);
+        for (CountMode mode : CountMode.values()) {
+            if (mode != CountMode.AUTO) {
+                counts.put(mode, Counter.builder("ecommercepro.total-count.counts")
+                        .description("Total counts worked out for paged lists")
+                        .tag("mode", mode.getLabel())
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    /**
+     * @return a request for the page, ordered by id so pages do not overlap
+     * @throws BadRequestException if the page is negative or the size is out
+     *                             of bounds
+     */
+    public PageRequest page(int page, int size) throws BadRequestException {
+        if (page < 0) {
+            throw new BadRequestException("Page must not be negative");
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new BadRequestException("Size must be between 1 and " + maxPageSize);
+        }
+        return PageRequest.of(page, size, Sort.by("id"));
+    }
+
+    /**
+     * @param table one of the {@link ChangeFeedService} table names
+     * @return the number of rows in the table and how it was worked out
+     */
+    public TotalCount count(String table, CountMode mode) {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("Counts are not supported for table: " + table);
+        }
+        TotalCount result = switch (mode) {
+            case EXACT -> new TotalCount(exactCount(table), CountMode.EXACT);
+            case CACHED -> new TotalCount(cachedCounts.get(table), CountMode.CACHED);
+            case ESTIMATE -> estimateOrCached(table);
+            case AUTO -> {
+                long estimate = estimate(table);
+                yield estimate >= exactThreshold ? new TotalCount(estimate, CountMode.ESTIMATE)
+                        : new TotalCount(exactCount(table), CountMode.EXACT);
+            }
+        };
+        counts.get(result.getMode()).increment();
+        log.debug("TotalCountService.count {} {} rows by {}", table, result.getCount(), result.getMode());
+        return result;
+    }
+
+    private TotalCount estimateOrCached(String table) {
+        long estimate = estimate(table);
+        // never analyzed, so there is nothing to estimate from yet
+        return estimate >= 0 ? new TotalCount(estimate, CountMode.ESTIMATE)
+                : new TotalCount(cachedCounts.get(table), CountMode.CACHED);
+    }
+
+    private long estimate(String table) {
+        Long estimate = jdbcTemplate.queryForObject(ESTIMATE, Long.class, table);
+        return estimate == null ? -1 : estimate;
+    }
+
+    private long exactCount(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+        return count == null ? 0 : count;
+    }
+}
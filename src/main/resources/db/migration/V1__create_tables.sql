@@ -1,3 +1,6 @@
+-- Schema as previously created by init.sql and hibernate.ddl-auto. Every
+-- statement is guarded so existing databases can be baselined onto it.
+
 CREATE TABLE IF NOT EXISTS orders
 (
     id bigint NOT NULL,
@@ -36,26 +39,25 @@ CREATE TABLE IF NOT EXISTS order_items
         ON DELETE NO ACTION
 );
 
-INSERT INTO products(
-    id, created, description, price, updated)
-    VALUES (2, NOW(), 'Off-brand Product', 50.00, NOW());
-    
-INSERT INTO products(
-    id, created, description, price, updated)
-    VALUES (3, NOW(), 'Designer Product', 75.00, NOW());
-    
-INSERT INTO orders(
-    id, created, status, updated)
-    VALUES (2, NOW(), 'Processing', NOW());
-    
-INSERT INTO orders(
-    id, created, status, updated)
-    VALUES (3, NOW(), 'Completed', NOW());
-    
-INSERT INTO order_items(
-    id, created, quantity, updated, order_id, product_id)
-    VALUES (2, NOW(), 2, NOW(), 2, 2);
-    
-INSERT INTO order_items(
-    id, created, quantity, updated, order_id, product_id)
-    VALUES (3, NOW(), 3, NOW(), 3, 3);
+CREATE TABLE IF NOT EXISTS tombstones
+(
+    id bigint NOT NULL,
+    entity_type character varying(255) COLLATE pg_catalog."default" NOT NULL,
+    entity_id bigint NOT NULL,
+    deleted timestamp(6) without time zone NOT NULL,
+    CONSTRAINT pk_tombstones PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS idempotency_keys
+(
+    idempotency_key character varying(255) COLLATE pg_catalog."default" NOT NULL,
+    response text COLLATE pg_catalog."default" NOT NULL,
+    created timestamp(6) without time zone NOT NULL,
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (idempotency_key)
+);
+
+-- Id sequences used by @GeneratedValue(strategy = GenerationType.AUTO)
+CREATE SEQUENCE IF NOT EXISTS orders_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS products_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS tombstones_seq START WITH 1 INCREMENT BY 50;
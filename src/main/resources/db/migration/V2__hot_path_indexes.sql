@@ -0,0 +1,18 @@
+-- Foreign keys. OrderItemRepository.findByOrderId reads every order_items
+-- column, so the order_id index covers them all and the items of an order
+-- come from an index-only scan; orders and products are then joined by key.
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items (order_id, id)
+    INCLUDE (product_id, quantity, created, updated);
+CREATE INDEX IF NOT EXISTS idx_order_items_product_id ON order_items (product_id);
+
+-- Change feeds page through (updated, id)
+CREATE INDEX IF NOT EXISTS idx_orders_updated_id ON orders (updated, id);
+CREATE INDEX IF NOT EXISTS idx_products_updated_id ON products (updated, id);
+CREATE INDEX IF NOT EXISTS idx_order_items_updated_id ON order_items (updated, id);
+CREATE INDEX IF NOT EXISTS idx_tombstones_type_deleted_entity ON tombstones (entity_type, deleted, entity_id);
+
+-- Fulfillment pipeline claims pending orders oldest first
+CREATE INDEX IF NOT EXISTS idx_orders_status_updated ON orders (status, updated);
+
+-- Expired Idempotency-Key eviction
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created ON idempotency_keys (created);
@@ -0,0 +1,4 @@
+-- Sales reports scan order items by creation date and only need the product
+-- and quantity, so the range scan is index-only.
+CREATE INDEX IF NOT EXISTS idx_order_items_created ON order_items (created)
+    INCLUDE (product_id, quantity);
@@ -0,0 +1,6 @@
+-- Units on hand per product. NULL means stock is not tracked and the product
+-- can always be ordered, which keeps existing products orderable.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS stock integer;
+
+ALTER TABLE products DROP CONSTRAINT IF EXISTS ck_products_stock;
+ALTER TABLE products ADD CONSTRAINT ck_products_stock CHECK (stock >= 0);
@@ -0,0 +1,20 @@
+-- The unit price and description of the product when the item was ordered,
+-- so totals and reports read order_items alone and are unaffected by later
+-- repricing. NULL until the row is backfilled by OrderItemPriceBackfill.
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS unit_price numeric(38,2);
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS description character varying(255) COLLATE pg_catalog."default";
+
+-- Rows still to backfill. The index empties as the backfill runs, so finding
+-- the next chunk, and checking there is none left, stays cheap.
+CREATE INDEX IF NOT EXISTS idx_order_items_unpriced ON order_items (id) WHERE unit_price IS NULL;
+
+-- Sales reports now sum quantity times unit_price, so keep their range scan
+-- index-only.
+CREATE INDEX IF NOT EXISTS idx_order_items_created_priced ON order_items (created)
+    INCLUDE (product_id, quantity, unit_price);
+DROP INDEX IF EXISTS idx_order_items_created;
+
+-- findByOrderId stays an index-only scan with the new columns
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id_priced ON order_items (order_id, id)
+    INCLUDE (product_id, quantity, created, updated, unit_price, description);
+DROP INDEX IF EXISTS idx_order_items_order_id;
@@ -0,0 +1,4 @@
+-- The class of the stored response, so a key reused on an endpoint with a
+-- different response type is rejected instead of replayed as the wrong type.
+-- NULL for rows stored before the column existed.
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS response_type character varying(255) COLLATE pg_catalog."default";
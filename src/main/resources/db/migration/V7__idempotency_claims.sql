@@ -0,0 +1,8 @@
+-- Keys are claimed with a pending row before the request runs, so duplicates
+-- on other instances wait for it instead of running again. The response is
+-- NULL until the claiming request finishes.
+ALTER TABLE idempotency_keys ALTER COLUMN response DROP NOT NULL;
+
+-- SHA-256 of the request body, so a key reused with a different body is
+-- rejected instead of replayed. NULL for rows stored before the column existed.
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS request_hash character varying(64) COLLATE pg_catalog."default";
@@ -0,0 +1,33 @@
+-- Sample data for local development, applied only when classpath:db/seed is
+-- on spring.flyway.locations.
+-- Rows that already exist, e.g. from the old init.sql, are kept.
+
+INSERT INTO products(
+    id, created, description, price, updated)
+    VALUES (2, NOW(), 'Off-brand Product', 50.00, NOW())
+    ON CONFLICT (id) DO NOTHING;
+    
+INSERT INTO products(
+    id, created, description, price, updated)
+    VALUES (3, NOW(), 'Designer Product', 75.00, NOW())
+    ON CONFLICT (id) DO NOTHING;
+    
+INSERT INTO orders(
+    id, created, status, updated)
+    VALUES (2, NOW(), 'Processing', NOW())
+    ON CONFLICT (id) DO NOTHING;
+    
+INSERT INTO orders(
+    id, created, status, updated)
+    VALUES (3, NOW(), 'Completed', NOW())
+    ON CONFLICT (id) DO NOTHING;
+    
+INSERT INTO order_items(
+    id, created, quantity, updated, order_id, product_id)
+    VALUES (2, NOW(), 2, NOW(), 2, 2)
+    ON CONFLICT (id) DO NOTHING;
+    
+INSERT INTO order_items(
+    id, created, quantity, updated, order_id, product_id)
+    VALUES (3, NOW(), 3, NOW(), 3, 3)
+    ON CONFLICT (id) DO NOTHING;
@@ -0,0 +1,80 @@
+package com.splawrence.ecommercepro.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+  @Test
+  void givenLimitReached_whenTryAcquire_thenReject() {
+    // arrange
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0);
+
+    // act & assert
+    assertTrue(limit.tryAcquire());
+    assertTrue(limit.tryAcquire());
+    assertFalse(limit.tryAcquire());
+    assertEquals(2, limit.getInFlight());
+  }
+
+  @Test
+  void givenLatencyIncrease_whenRelease_thenShrinkLimit() {
+    // arrange
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(40, 2, 100, 2.0);
+    saturate(limit, FAST, 50);
+    int before = limit.getLimit();
+
+    // act
+    saturate(limit, SLOW, 2);
+
+    // assert
+    assertTrue(limit.getLimit() < before, limit.getLimit() + " should be below " + before);
+    assertTrue(limit.getLimit() >= 2);
+  }
+
+  @Test
+  void givenSteadyLatencyUnderLoad_whenRelease_thenGrowToMax() {
+    // arrange
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(5, 1, 20, 2.0);
+
+    // act
+    saturate(limit, FAST, 200);
+
+    // assert
+    assertEquals(20, limit.getLimit());
+  }
+
+  @Test
+  void givenIdleService_whenRelease_thenKeepLimit() {
+    // arrange
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 2.0);
+
+    // act
+    for (int i = 0; i < 100; i++) {
+      limit.tryAcquire();
+      limit.release(FAST);
+    }
+
+    // assert
+    assertEquals(10, limit.getLimit());
+  }
+
+  private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int rounds) {
+    for (int round = 0; round < rounds; round++) {
+      int acquired = 0;
+      while (limit.tryAcquire()) {
+        acquired++;
+      }
+      for (int i = 0; i < acquired; i++) {
+        limit.release(rttNanos);
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.splawrence.ecommercepro.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.splawrence.ecommercepro.config.AdmissionControlProperties;
+import com.splawrence.ecommercepro.controller.ProductController;
+import com.splawrence.ecommercepro.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+class AdmissionControlInterceptorTest {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private AdmissionControlInterceptor interceptor;
+
+  @BeforeEach
+  void setup() {
+    AdmissionControlProperties properties = new AdmissionControlProperties();
+    AdmissionControlProperties.Limits listLimits = new AdmissionControlProperties.Limits();
+    listLimits.setInitialLimit(1);
+    listLimits.setMinLimit(1);
+    listLimits.setMaxLimit(1);
+    properties.getGroups().put(BulkheadGroup.LIST.key(), listLimits);
+    meterRegistry = new SimpleMeterRegistry();
+    interceptor = new AdmissionControlInterceptor(properties, meterRegistry);
+  }
+
+  @Test
+  void givenListGroupFull_whenPreHandle_thenRejectListButAdmitPointRead() throws Exception {
+    // arrange
+    HandlerMethod list = handler("getProducts");
+    HandlerMethod pointRead = handler("getProductById", Long.class);
+    interceptor.preHandle(request("GET"), new MockHttpServletResponse(), list);
+
+    // act & assert
+    ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class,
+        () -> interceptor.preHandle(request("GET"), new MockHttpServletResponse(), list));
+    assertEquals(1, exception.getRetryAfterSeconds());
+    assertTrue(interceptor.preHandle(request("GET"), new MockHttpServletResponse(), pointRead));
+    assertEquals(1.0, meterRegistry.get("ecommercepro.admission.rejected").tag("group", "list").counter().count());
+  }
+
+  @Test
+  void givenCompletedRequest_whenAfterCompletion_thenReleaseSlot() throws Exception {
+    // arrange
+    MockHttpServletRequest request = request("GET");
+    HandlerMethod list = handler("getProducts");
+    interceptor.preHandle(request, new MockHttpServletResponse(), list);
+
+    // act
+    interceptor.afterCompletion(request, new MockHttpServletResponse(), list, null);
+
+    // assert
+    assertEquals(0, interceptor.limitFor(BulkheadGroup.LIST).getInFlight());
+    assertTrue(interceptor.preHandle(request("GET"), new MockHttpServletResponse(), list));
+  }
+
+  @Test
+  void givenUnannotatedPost_whenPreHandle_thenUseWriteGroup() throws Exception {
+    // act
+    interceptor.preHandle(request("POST"), new MockHttpServletResponse(), handler("getProducts"));
+
+    // assert
+    assertEquals(1, interceptor.limitFor(BulkheadGroup.WRITE).getInFlight());
+  }
+
+  private static MockHttpServletRequest request(String method) {
+    return new MockHttpServletRequest(method, "/api/products");
+  }
+
+  private static HandlerMethod handler(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+    return new HandlerMethod(new Object(), ProductController.class.getMethod(name, parameterTypes));
+  }
+}
@@ -0,0 +1,110 @@
+package com.splawrence.ecommercepro.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.splawrence.ecommercepro.controller.FastErrorBody;
+import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.model.ErrorMessage;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The not-found path from throw to response bytes: the previous exception,
+ * which captured a stack trace and concatenated its message up front, rendered
+ * through an {@code ErrorMessage} and Jackson, against the stackless
+ * {@code ResourceNotFoundException} written by {@code FastErrorBody}. The
+ * throw happens {@code depth} frames below the catch, standing in for the
+ * servlet, filter and proxy frames above a controller. Run with
+ * {@code -prof gc} to compare bytes allocated per response.
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   "-Dexec.args=-cp %classpath com.splawrence.ecommercepro.benchmark.ErrorPathBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorPathBenchmark {
+  private static final String DETAIL = "Product not found for Product Id: ";
+  private static final String URI = "/api/products/";
+
+  @Param({ "20", "100" })
+  private int depth;
+
+  private ObjectMapper objectMapper;
+  private long id;
+
+  @Setup
+  public void setup() {
+    // match the Spring Boot defaults used by the HTTP message converters
+    objectMapper = new ObjectMapper().findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  @Benchmark
+  public byte[] stackTraceAndJackson() throws Exception {
+    long productId = ++id;
+    try {
+      throwAt(depth, () -> new StackTraceNotFoundException(DETAIL + productId));
+      return null;
+    } catch (StackTraceNotFoundException ex) {
+      ErrorMessage errorMessage = new ErrorMessage(404, LocalDateTime.now(), ex.getMessage(),
+          "uri=" + URI + productId);
+      return objectMapper.writeValueAsBytes(errorMessage);
+    }
+  }
+
+  @Benchmark
+  public byte[] stacklessAndFastBody() throws Exception {
+    long productId = ++id;
+    try {
+      throwAt(depth, () -> new ResourceNotFoundException(DETAIL, productId));
+      return null;
+    } catch (ResourceNotFoundException ex) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+      // the request URI is a string the servlet container already holds
+      FastErrorBody.write(out, 404, ex.getDetail(), ex.getId(), URI);
+      return out.toByteArray();
+    }
+  }
+
+  private static void throwAt(int depth, ExceptionFactory factory) {
+    if (depth == 0) {
+      throw factory.create();
+    }
+    throwAt(depth - 1, factory);
+  }
+
+  private interface ExceptionFactory {
+    RuntimeException create();
+  }
+
+  /** The exception as it was before it stopped capturing a stack trace. */
+  private static class StackTraceNotFoundException extends RuntimeException {
+    StackTraceNotFoundException(String message) {
+      super(message);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(ErrorPathBenchmark.class.getSimpleName()).build()).run();
+  }
+}
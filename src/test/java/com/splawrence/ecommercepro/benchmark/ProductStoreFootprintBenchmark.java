@@ -0,0 +1,122 @@
+package com.splawrence.ecommercepro.benchmark;
+
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.service.HeapProductStore;
+import com.splawrence.ecommercepro.service.OffHeapProductStore;
+import com.splawrence.ecommercepro.service.ProductStore;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the memory footprint of a catalog held by each {@link ProductStore}
+ * and the garbage collection it causes: heap and direct memory retained after
+ * loading, collections and pause time during a read-heavy run, and the pause
+ * of a full collection with the catalog live. This is a whole-heap
+ * measurement, so it does not use JMH; run each store and size in its own
+ * JVM, with a heap large enough for the heap store:
+ *
+ * <pre>
+ * for store in heap off-heap; do for count in 1000000 10000000; do
+ *   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     "-Dexec.args=-Xms16g -Xmx16g -XX:MaxDirectMemorySize=4g -Xlog:gc:file=gc-$store-$count.log -cp %classpath \
+ *     com.splawrence.ecommercepro.benchmark.ProductStoreFootprintBenchmark $store $count"
+ * done; done
+ * </pre>
+ *
+ * The GC log has every individual pause, for percentiles beyond the totals
+ * printed here.
+ */
+public class ProductStoreFootprintBenchmark {
+  private static final Duration READ_DURATION = Duration.ofSeconds(30);
+  private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 4, 4, 40, 16, 123456000);
+
+  public static void main(String[] args) {
+    if (args.length != 2) {
+      System.err.println("Usage: ProductStoreFootprintBenchmark <heap|off-heap> <products>");
+      System.exit(2);
+    }
+    String storeType = args[0];
+    int count = Integer.parseInt(args[1]);
+
+    long heapBefore = usedHeapAfterGc();
+    long directBefore = directMemory();
+    ProductStore store = "off-heap".equals(storeType) ? new OffHeapProductStore() : new HeapProductStore();
+    long loadStart = System.nanoTime();
+    for (long id = 1; id <= count; id++) {
+      store.put(product(id));
+    }
+    long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+    long heap = usedHeapAfterGc() - heapBefore;
+    long direct = directMemory() - directBefore;
+    System.out.printf("%s store, %,d products loaded in %,d ms%n", storeType, store.size(), loadMillis);
+    System.out.printf("  retained heap:   %,d MiB (%,d bytes per product)%n", heap >> 20, heap / count);
+    System.out.printf("  direct memory:   %,d MiB (%,d bytes per product)%n", direct >> 20, direct / count);
+
+    long collectionsBefore = collections();
+    long gcMillisBefore = gcMillis();
+    long reads = 0;
+    long checksum = 0;
+    long deadline = System.nanoTime() + READ_DURATION.toNanos();
+    while (System.nanoTime() < deadline) {
+      for (int i = 0; i < 10_000; i++) {
+        long id = ThreadLocalRandom.current().nextLong(1, count + 1);
+        checksum += store.get(id).map(Product::getDescription).map(String::length).orElse(0);
+      }
+      reads += 10_000;
+    }
+    long collections = collections() - collectionsBefore;
+    long gcMillis = gcMillis() - gcMillisBefore;
+    System.out.printf("  %,d reads in %d s: %,d collections, %,d ms total pause, %.1f ms average pause%n", reads,
+        READ_DURATION.toSeconds(), collections, gcMillis, collections == 0 ? 0.0 : (double) gcMillis / collections);
+
+    long fullStart = System.nanoTime();
+    System.gc();
+    System.out.printf("  full collection with the catalog live: %,d ms%n",
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fullStart));
+    // keep the store and the reads reachable until here
+    System.out.printf("  (checksum %d, %d products)%n", checksum, store.size());
+  }
+
+  private static Product product(long id) {
+    Product product = new Product();
+    product.setId(id);
+    product.setDescription("Product " + id + " in the benchmark catalog");
+    product.setPrice(BigDecimal.valueOf(100 + id % 10_000, 2));
+    product.setCreated(NOW);
+    product.setUpdated(NOW.plusNanos(id * 1000));
+    return product;
+  }
+
+  private static long usedHeapAfterGc() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long directMemory() {
+    return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+        .filter(pool -> "direct".equals(pool.getName()))
+        .mapToLong(BufferPoolMXBean::getMemoryUsed)
+        .sum();
+  }
+
+  private static long collections() {
+    return collectors().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+  }
+
+  private static long gcMillis() {
+    return collectors().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+  }
+
+  private static List<GarbageCollectorMXBean> collectors() {
+    return ManagementFactory.getGarbageCollectorMXBeans();
+  }
+}
@@ -0,0 +1,107 @@
+package com.splawrence.ecommercepro.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderItem;
+import com.splawrence.ecommercepro.model.Product;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares JSON, CBOR and Smile encoding and decoding of an OrderItem list
+ * page, and prints the payload size of each format.
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   "-Dexec.args=-cp %classpath com.splawrence.ecommercepro.benchmark.SerializationFormatBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationFormatBenchmark {
+
+  @Param({ "json", "cbor", "smile" })
+  private String format;
+
+  private ObjectMapper objectMapper;
+  private List<OrderItem> page;
+  private byte[] encoded;
+
+  @Setup
+  public void setup() throws Exception {
+    objectMapper = switch (format) {
+      case "cbor" -> new ObjectMapper(new CBORFactory());
+      case "smile" -> new ObjectMapper(new SmileFactory());
+      default -> new ObjectMapper();
+    };
+    // match the Spring Boot defaults used by the HTTP message converters
+    objectMapper.findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    page = orderItems(100);
+    encoded = objectMapper.writeValueAsBytes(page);
+    System.out.printf("%n%s payload for %d order items: %d bytes%n", format, page.size(), encoded.length);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws Exception {
+    return objectMapper.writeValueAsBytes(page);
+  }
+
+  @Benchmark
+  public OrderItem[] deserialize() throws Exception {
+    return objectMapper.readValue(encoded, OrderItem[].class);
+  }
+
+  static List<OrderItem> orderItems(int count) {
+    LocalDateTime now = LocalDateTime.of(2024, 3, 4, 4, 43, 24, 107156000);
+    List<OrderItem> orderItems = new ArrayList<>(count);
+    for (long id = 1; id <= count; id++) {
+      Order order = new Order();
+      order.setId(id / 3 + 1);
+      order.setStatus("Processing");
+      order.setCreated(now);
+      order.setUpdated(now);
+      Product product = new Product();
+      product.setId(id % 20 + 1);
+      product.setDescription("Designer Product " + product.getId());
+      product.setPrice(new BigDecimal("75.00").add(BigDecimal.valueOf(id, 2)));
+      product.setCreated(now);
+      product.setUpdated(now);
+      OrderItem orderItem = new OrderItem();
+      orderItem.setId(id);
+      orderItem.setQuantity((int) (id % 5) + 1);
+      orderItem.setCreated(now);
+      orderItem.setUpdated(now);
+      orderItem.setOrder(order);
+      orderItem.setProduct(product);
+      orderItems.add(orderItem);
+    }
+    return orderItems;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(SerializationFormatBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,109 @@
+package com.splawrence.ecommercepro.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Measures time to first successful request: from launching the application
+ * until {@code GET /api/products} first answers 200, against a Postgres
+ * container. Each run starts a fresh JVM with the given command, so it covers
+ * JVM start, class loading, context refresh and the first query. This is a
+ * process-level measurement, so it does not use JMH. Needs Docker.
+ *
+ * <p>Compare the plain jar with the fast-startup build (see NotDockerfile.fast-startup):
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   "-Dexec.args=-cp %classpath com.splawrence.ecommercepro.benchmark.StartupBenchmark 5 \
+ *   java -jar target/ecommercepro-1.0.0-SNAPSHOT.jar"
+ *
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   "-Dexec.args=-cp %classpath -Dstartup.dir=/app com.splawrence.ecommercepro.benchmark.StartupBenchmark 5 \
+ *   java @classpath.args -XX:SharedArchiveFile=ecommercepro.jsa -Dspring.aot.enabled=true \
+ *   com.splawrence.ecommercepro.EcommerceProApplication"
+ * </pre>
+ *
+ * {@code startup.dir} is the working directory of the application, here the
+ * unpacked {@code /app} directory copied out of the fast-startup image.
+ */
+public class StartupBenchmark {
+  private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("Usage: StartupBenchmark <runs> <command...>");
+      System.exit(2);
+    }
+    int runs = Integer.parseInt(args[0]);
+    List<String> command = Arrays.asList(args).subList(1, args.length);
+    try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")) {
+      postgres.start();
+      List<Long> millis = new ArrayList<>();
+      for (int run = 1; run <= runs; run++) {
+        long elapsed = timeToFirstRequest(command, postgres);
+        System.out.printf("run %d: %d ms%n", run, elapsed);
+        millis.add(elapsed);
+      }
+      Collections.sort(millis);
+      System.out.printf("time to first successful request over %d runs: min %d ms, median %d ms, max %d ms%n",
+          runs, millis.get(0), millis.get(millis.size() / 2), millis.get(millis.size() - 1));
+    }
+  }
+
+  private static long timeToFirstRequest(List<String> command, PostgreSQLContainer<?> postgres) throws Exception {
+    int port = freePort();
+    ProcessBuilder builder = new ProcessBuilder(command).directory(new File(System.getProperty("startup.dir", ".")))
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    builder.environment().put("SERVER_PORT", String.valueOf(port));
+    builder.environment().put("SPRING_DATASOURCE_URL", postgres.getJdbcUrl());
+    builder.environment().put("SPRING_DATASOURCE_USERNAME", postgres.getUsername());
+    builder.environment().put("SPRING_DATASOURCE_PASSWORD", postgres.getPassword());
+    builder.environment().put("SPRING_FLYWAY_ENABLED", "true");
+    builder.environment().put("SPRING_JPA_HIBERNATE_DDL_AUTO", "validate");
+
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/products"))
+        .timeout(Duration.ofSeconds(5))
+        .build();
+    long start = System.nanoTime();
+    Process process = builder.start();
+    try {
+      while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+        if (!process.isAlive()) {
+          throw new IllegalStateException("Application exited with status " + process.exitValue());
+        }
+        try {
+          if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+          }
+        } catch (IOException e) {
+          // not listening yet
+        }
+        Thread.sleep(10);
+      }
+      throw new IllegalStateException("No successful request within " + TIMEOUT);
+    } finally {
+      process.destroy();
+      process.waitFor(30, TimeUnit.SECONDS);
+    }
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
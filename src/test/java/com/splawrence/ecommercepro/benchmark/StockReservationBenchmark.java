@@ -0,0 +1,145 @@
+package com.splawrence.ecommercepro.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Hundreds of concurrent buyers of one product against a Postgres container,
+ * comparing a {@code SELECT ... FOR UPDATE} then {@code UPDATE} checkout with
+ * the single conditional {@code UPDATE} used by
+ * {@code ProductRepository.reserveStock}. Each reservation runs in its own
+ * transaction with a simulated checkout step while the row is locked, and the
+ * teardown checks that no stock was oversold. Needs Docker.
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   "-Dexec.args=-cp %classpath com.splawrence.ecommercepro.benchmark.StockReservationBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(200)
+@Fork(1)
+public class StockReservationBenchmark {
+  private static final long PRODUCT_ID = 1;
+  private static final int INITIAL_STOCK = 1_000_000_000;
+
+  @Param({ "select-for-update", "conditional-update" })
+  private String strategy;
+
+  /** Work done between reading and writing the stock, e.g. pricing the cart. */
+  @Param({ "1" })
+  private long checkoutMillis;
+
+  private PostgreSQLContainer<?> postgres;
+  private HikariDataSource dataSource;
+
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    postgres = new PostgreSQLContainer<>("postgres:16-alpine").withCommand("postgres", "-c", "max_connections=300");
+    postgres.start();
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl(postgres.getJdbcUrl());
+    config.setUsername(postgres.getUsername());
+    config.setPassword(postgres.getPassword());
+    config.setMaximumPoolSize(200);
+    dataSource = new HikariDataSource(config);
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE products (id bigint PRIMARY KEY, stock integer CHECK (stock >= 0))");
+      statement.execute("INSERT INTO products VALUES (" + PRODUCT_ID + ", " + INITIAL_STOCK + ")");
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT stock FROM products WHERE id = " + PRODUCT_ID)) {
+      resultSet.next();
+      int stock = resultSet.getInt(1);
+      if (stock < 0) {
+        throw new IllegalStateException("Oversold: stock is " + stock);
+      }
+      System.out.printf("%n%s sold %d units%n", strategy, INITIAL_STOCK - stock);
+    } finally {
+      dataSource.close();
+      postgres.stop();
+    }
+  }
+
+  @Benchmark
+  public boolean reserve() throws Exception {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      boolean reserved = "select-for-update".equals(strategy)
+          ? selectForUpdate(connection)
+          : conditionalUpdate(connection);
+      connection.commit();
+      return reserved;
+    }
+  }
+
+  // the row stays locked through the checkout step
+  private boolean selectForUpdate(Connection connection) throws Exception {
+    int stock;
+    try (PreparedStatement select = connection.prepareStatement("SELECT stock FROM products WHERE id = ? FOR UPDATE")) {
+      select.setLong(1, PRODUCT_ID);
+      try (ResultSet resultSet = select.executeQuery()) {
+        resultSet.next();
+        stock = resultSet.getInt(1);
+      }
+    }
+    Thread.sleep(checkoutMillis);
+    if (stock < 1) {
+      return false;
+    }
+    try (PreparedStatement update = connection.prepareStatement("UPDATE products SET stock = ? WHERE id = ?")) {
+      update.setInt(1, stock - 1);
+      update.setLong(2, PRODUCT_ID);
+      update.executeUpdate();
+    }
+    return true;
+  }
+
+  // the checkout step runs first and the row is locked only for the update
+  private boolean conditionalUpdate(Connection connection) throws Exception {
+    Thread.sleep(checkoutMillis);
+    try (PreparedStatement update = connection.prepareStatement(
+        "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?")) {
+      update.setInt(1, 1);
+      update.setLong(2, PRODUCT_ID);
+      update.setInt(3, 1);
+      return update.executeUpdate() == 1;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(StockReservationBenchmark.class.getSimpleName()).build()).run();
+  }
+}
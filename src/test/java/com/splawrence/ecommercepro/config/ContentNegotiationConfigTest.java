@@ -0,0 +1,90 @@
+package com.splawrence.ecommercepro.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.splawrence.ecommercepro.controller.ProductController;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.ProductRepository;
+import com.splawrence.ecommercepro.service.ProductCatalogCache;
+import com.splawrence.ecommercepro.service.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+@ExtendWith(MockitoExtension.class)
+class ContentNegotiationConfigTest {
+
+  @Mock
+  private ProductRepository productRepository;
+
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  void setup() {
+    ContentNegotiationConfig config = new ContentNegotiationConfig();
+    ProductController productController = new ProductController(productRepository, null, null,
+        new RequestCoalescer(new SimpleMeterRegistry(), Duration.ofSeconds(1), 1), null, null, null, null,
+        new ProductCatalogCache(null, null, new SimpleMeterRegistry(), false, Path.of("catalog-snapshot.bin"),
+            Duration.ofSeconds(5), "heap"));
+    mockMvc = MockMvcBuilders.standaloneSetup(productController)
+        .setMessageConverters(
+            new MappingJackson2HttpMessageConverter(new Jackson2ObjectMapperBuilder().build()),
+            config.cborHttpMessageConverter(new Jackson2ObjectMapperBuilder()),
+            config.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder()))
+        .build();
+
+    Product product = new Product();
+    product.setId(1L);
+    product.setDescription("Designer Product");
+    product.setPrice(new BigDecimal("75.00"));
+    product.setCreated(LocalDateTime.of(2024, 3, 4, 4, 40, 16));
+    product.setUpdated(LocalDateTime.of(2024, 3, 4, 4, 40, 16));
+    when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+  }
+
+  @Test
+  void givenCborAccept_whenGetProductById_thenReturnCbor() throws Exception {
+    // act
+    byte[] body = mockMvc.perform(get("/api/products/{id}", 1L).accept("application/cbor"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/cbor"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    // assert
+    Product product = new ObjectMapper(new CBORFactory()).findAndRegisterModules().readValue(body, Product.class);
+    assertEquals("Designer Product", product.getDescription());
+    assertEquals(new BigDecimal("75.00"), product.getPrice());
+  }
+
+  @Test
+  void givenSmileAccept_whenGetProductById_thenReturnSmile() throws Exception {
+    // act
+    byte[] body = mockMvc.perform(get("/api/products/{id}", 1L).accept("application/x-jackson-smile"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-jackson-smile"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    // assert
+    Product product = new ObjectMapper(new SmileFactory()).findAndRegisterModules().readValue(body, Product.class);
+    assertEquals(LocalDateTime.of(2024, 3, 4, 4, 40, 16), product.getCreated());
+  }
+}
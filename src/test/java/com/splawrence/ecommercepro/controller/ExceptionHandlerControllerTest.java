@@ -2,19 +2,30 @@ package com.splawrence.ecommercepro.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splawrence.ecommercepro.exception.InsufficientStockException;
 import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.exception.ServiceOverloadedException;
 import com.splawrence.ecommercepro.model.ErrorMessage;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import org.apache.coyote.BadRequestException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,7 +44,7 @@ class ExceptionHandlerControllerTest {
         private ExceptionHandlerController exceptionHandlerController;
 
         @Test
-        void givenResourceNotFoundException_thenReturnNotFoundMessage() {
+        void givenResourceNotFoundException_thenReturnNotFoundMessage() throws Exception {
                 // arrange
                 String errorMessage = "Resource not found";
                 ErrorMessage expectedErrorMessage = new ErrorMessage(
@@ -57,7 +68,7 @@ class ExceptionHandlerControllerTest {
         }
 
         @Test
-        void givenBadRequestException_thenReturnBadRequestMessage() {
+        void givenBadRequestException_thenReturnBadRequestMessage() throws Exception {
                 // arrange
                 String errorMessage = "Bad request";
                 ErrorMessage expectedErrorMessage = new ErrorMessage(
@@ -79,4 +90,98 @@ class ExceptionHandlerControllerTest {
                 assertEquals(expectedErrorMessage.getDescription(),
                                 ((ErrorMessage) responseEntity.getBody()).getDescription());
         }
+
+        @Test
+        void givenServiceOverloadedException_thenReturnServiceUnavailableWithRetryAfter() {
+                // arrange
+                ServiceOverloadedException exception = new ServiceOverloadedException("Too many requests", 2);
+                when(webRequest.getDescription(false)).thenReturn("uri=/api/products");
+
+                // act
+                ResponseEntity<?> responseEntity = exceptionHandlerController.serviceOverloadedException(
+                                exception,
+                                webRequest);
+
+                // assert
+                assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseEntity.getStatusCode());
+                assertEquals("2", responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                assertEquals("Too many requests", ((ErrorMessage) responseEntity.getBody()).getMessage());
+        }
+
+        @Test
+        void givenInsufficientStockException_thenReturnConflictMessage() {
+                // arrange
+                InsufficientStockException exception = new InsufficientStockException("Only 2 in stock");
+                when(webRequest.getDescription(false)).thenReturn("uri=/api/order-items");
+
+                // act
+                ResponseEntity<?> responseEntity = exceptionHandlerController.insufficientStockException(
+                                exception,
+                                webRequest);
+
+                // assert
+                assertEquals(HttpStatus.CONFLICT, responseEntity.getStatusCode());
+                assertEquals("Only 2 in stock", ((ErrorMessage) responseEntity.getBody()).getMessage());
+        }
+
+        @Test
+        void givenFastErrors_whenResourceNotFound_thenWriteSameJsonFieldsDirectly() throws Exception {
+                // arrange
+                ReflectionTestUtils.setField(exceptionHandlerController, "fast", true);
+                MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/7");
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                ResourceNotFoundException ex = new ResourceNotFoundException("Product not found for Product Id: ", 7L);
+
+                // act
+                ResponseEntity<?> responseEntity = exceptionHandlerController.resourceNotFoundException(ex,
+                                new ServletWebRequest(request, response));
+
+                // assert
+                assertEquals(0, ex.getStackTrace().length);
+                assertNull(responseEntity);
+                assertEquals(404, response.getStatus());
+                assertEquals("application/json", response.getContentType());
+                JsonNode body = new ObjectMapper().readTree(response.getContentAsByteArray());
+                assertEquals(404, body.get("statusCode").asInt());
+                assertEquals("Product not found for Product Id: 7", body.get("message").asText());
+                assertEquals("uri=/api/products/7", body.get("description").asText());
+                LocalDateTime.parse(body.get("timestamp").asText(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+
+        @Test
+        void givenFastErrors_whenBadRequestWithSpecialCharacters_thenEscapeJson() throws Exception {
+                // arrange
+                ReflectionTestUtils.setField(exceptionHandlerController, "fast", true);
+                String message = "Unknown field: \"na\\me\"\t café 😀";
+                MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/é");
+                MockHttpServletResponse response = new MockHttpServletResponse();
+
+                // act
+                exceptionHandlerController.badRequestException(new BadRequestException(message),
+                                new ServletWebRequest(request, response));
+
+                // assert
+                JsonNode body = new ObjectMapper().readTree(response.getContentAsByteArray());
+                assertEquals(400, body.get("statusCode").asInt());
+                assertEquals(message, body.get("message").asText());
+                assertEquals("uri=/api/products/é", body.get("description").asText());
+        }
+
+        @Test
+        void givenFastErrorsAndCborClient_whenResourceNotFound_thenUseErrorMessage() throws Exception {
+                // arrange
+                ReflectionTestUtils.setField(exceptionHandlerController, "fast", true);
+                MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/7");
+                request.addHeader(HttpHeaders.ACCEPT, "application/cbor");
+
+                // act
+                ResponseEntity<?> responseEntity = exceptionHandlerController.resourceNotFoundException(
+                                new ResourceNotFoundException("Product not found for Product Id: ", 7L),
+                                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+                // assert
+                assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
+                assertEquals("Product not found for Product Id: 7",
+                                ((ErrorMessage) responseEntity.getBody()).getMessage());
+        }
 }
@@ -1,34 +1,72 @@
 package com.splawrence.ecommercepro.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.model.ChangeSet;
+import com.splawrence.ecommercepro.model.CountMode;
 import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderDetail;
+import com.splawrence.ecommercepro.model.OrderWithItemsRequest;
+import com.splawrence.ecommercepro.model.OrderStatusEvent;
+import com.splawrence.ecommercepro.model.TotalCount;
+import com.splawrence.ecommercepro.repository.FieldProjectionRepository;
 import com.splawrence.ecommercepro.repository.OrderRepository;
+import com.splawrence.ecommercepro.service.ChangeFeedService;
+import com.splawrence.ecommercepro.service.IdempotencyService;
+import com.splawrence.ecommercepro.service.MultiGetService;
+import com.splawrence.ecommercepro.service.OrderCheckoutService;
+import com.splawrence.ecommercepro.service.OrderDetailCache;
+import com.splawrence.ecommercepro.service.OrderStatusPublisher;
+import com.splawrence.ecommercepro.service.OrderStatusWriteBehind;
+import com.splawrence.ecommercepro.service.RequestCoalescer;
+import com.splawrence.ecommercepro.service.TotalCountService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @ExtendWith(MockitoExtension.class)
 class OrderControllerTest {
@@ -39,6 +77,40 @@ class OrderControllerTest {
   @Mock
   private OrderRepository orderRepository;
 
+  @Mock
+  private ChangeFeedService changeFeedService;
+
+  @Spy
+  private IdempotencyService idempotencyService = new IdempotencyService(
+      null, new ObjectMapper().findAndRegisterModules(), 100, Duration.ofMinutes(1), Duration.ofSeconds(1),
+      Duration.ofMinutes(1), false);
+
+  @Spy
+  private RequestCoalescer requestCoalescer = new RequestCoalescer(
+      new SimpleMeterRegistry(), Duration.ofSeconds(1), 1);
+
+  @Spy
+  private MultiGetService multiGetService = new MultiGetService(100);
+
+  @Mock
+  private FieldProjectionRepository fieldProjectionRepository;
+
+  @Mock
+  private OrderStatusPublisher orderStatusPublisher;
+
+  @Spy
+  private OrderStatusWriteBehind orderStatusWriteBehind = new OrderStatusWriteBehind(
+      null, new SimpleMeterRegistry(), null, false, 100);
+
+  @Mock
+  private OrderCheckoutService orderCheckoutService;
+
+  @Mock
+  private OrderDetailCache orderDetailCache;
+
+  @Mock
+  private TotalCountService totalCountService;
+
   @InjectMocks
   private OrderController orderController;
 
@@ -67,6 +139,30 @@ class OrderControllerTest {
         .andExpect(jsonPath("$.length()").value(2));
   }
 
+  @Test
+  void givenPage_whenGetOrdersPage_thenReturnPageWithTotalCountHeaders() throws Exception {
+    // arrange
+    Order order1 = new Order();
+    order1.setId(3L);
+    Order order2 = new Order();
+    order2.setId(4L);
+    PageRequest pageRequest = PageRequest.of(1, 2);
+
+    when(totalCountService.page(1, 2)).thenReturn(pageRequest);
+    when(orderRepository.findAllBy(pageRequest)).thenReturn(new SliceImpl<>(List.of(order1, order2)));
+    when(totalCountService.count(ChangeFeedService.ORDERS, CountMode.ESTIMATE))
+        .thenReturn(new TotalCount(1_250_000, CountMode.ESTIMATE));
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/orders").param("page", "1").param("size", "2").param("count", "estimate"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(header().string(TotalCountService.HEADER, "1250000"))
+        .andExpect(header().string(TotalCountService.MODE_HEADER, "estimate"));
+    verify(orderRepository, never()).findAll();
+  }
+
   @Test
   void givenOrderId_whenGetOrderById_thenReturnOrder() throws Exception {
     // arrange
@@ -84,6 +180,24 @@ class OrderControllerTest {
         .andExpect(jsonPath("$.id").value(orderId.intValue()));
   }
 
+  @Test
+  void givenOrderId_whenGetOrderDetailById_thenReturnCachedDetail() throws Exception {
+    // arrange
+    Order order = new Order();
+    order.setId(1L);
+    order.setStatus("New");
+
+    when(orderDetailCache.get(1L)).thenReturn(Optional.of(OrderDetail.of(order, List.of())));
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/orders/{id}/detail", 1L))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.order.status").value("New"))
+        .andExpect(jsonPath("$.totalQuantity").value(0));
+    verify(orderRepository, never()).findById(any());
+  }
+
   @Test
   void givenBadOrderId_whenGetOrderById_thenThrowResourceNotFound()
       throws Exception {
@@ -128,6 +242,118 @@ class OrderControllerTest {
         .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("New"));
   }
 
+  @Test
+  void givenOrderWithItems_whenPostOrderWithItems_thenReturnOrderDetail() throws Exception {
+    // arrange
+    OrderWithItemsRequest request = new OrderWithItemsRequest("New",
+        List.of(new OrderWithItemsRequest.Line(3L, 2), new OrderWithItemsRequest.Line(4L, 1)));
+    Order createdOrder = new Order();
+    createdOrder.setId(1L);
+    createdOrder.setStatus("New");
+
+    when(orderCheckoutService.create(request))
+        .thenReturn(new OrderDetail(createdOrder, List.of(), 3, new BigDecimal("25.00")));
+
+    // act & assert
+    mockMvc
+        .perform(
+            post("/api/orders/with-items")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(request)))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.order.id").value(1))
+        .andExpect(jsonPath("$.totalQuantity").value(3))
+        .andExpect(jsonPath("$.total").value(25.00));
+    verify(orderCheckoutService).validate(request);
+  }
+
+  @Test
+  void givenIdempotencyKey_whenPostOrderTwice_thenSaveOnce() throws Exception {
+    // arrange
+    Order createdOrder = new Order();
+    createdOrder.setId(1L);
+    createdOrder.setStatus("New");
+
+    String jsonBody = new ObjectMapper().writeValueAsString(createdOrder);
+
+    when(orderRepository.save(any(Order.class))).thenReturn(createdOrder);
+
+    // act & assert
+    for (int attempt = 0; attempt < 2; attempt++) {
+      mockMvc
+          .perform(
+              post("/api/orders")
+                  .header(IdempotencyService.HEADER, "checkout-42")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(jsonBody))
+          .andExpect(status().isCreated())
+          .andExpect(jsonPath("$.id").value(1));
+    }
+    verify(orderRepository, times(1)).save(any(Order.class));
+  }
+
+  @Test
+  void givenIdempotencyKey_whenPostOrderWithDifferentBody_thenReturnUnprocessable() throws Exception {
+    // arrange
+    Order createdOrder = new Order();
+    createdOrder.setId(1L);
+    createdOrder.setStatus("New");
+    Order otherOrder = new Order();
+    otherOrder.setStatus("Shipped");
+    when(orderRepository.save(any(Order.class))).thenReturn(createdOrder);
+    MockMvc mockMvcWithAdvice = MockMvcBuilders.standaloneSetup(orderController)
+        .setControllerAdvice(new ExceptionHandlerController()).build();
+
+    // act & assert
+    mockMvcWithAdvice
+        .perform(
+            post("/api/orders")
+                .header(IdempotencyService.HEADER, "checkout-43")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(createdOrder)))
+        .andExpect(status().isCreated());
+    mockMvcWithAdvice
+        .perform(
+            post("/api/orders")
+                .header(IdempotencyService.HEADER, "checkout-43")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(otherOrder)))
+        .andExpect(status().isUnprocessableEntity());
+    verify(orderRepository, times(1)).save(any(Order.class));
+  }
+
+  @Test
+  void givenKeyUsedForPostOrder_whenPostOrderWithItems_thenRunInItsOwnScope() throws Exception {
+    // arrange
+    Order createdOrder = new Order();
+    createdOrder.setId(1L);
+    createdOrder.setStatus("New");
+    OrderWithItemsRequest request = new OrderWithItemsRequest("New", List.of(new OrderWithItemsRequest.Line(3L, 2)));
+    when(orderRepository.save(any(Order.class))).thenReturn(createdOrder);
+    when(orderCheckoutService.create(request))
+        .thenReturn(new OrderDetail(createdOrder, List.of(), 2, new BigDecimal("10.00")));
+
+    // act & assert
+    mockMvc
+        .perform(
+            post("/api/orders")
+                .header(IdempotencyService.HEADER, "checkout-42")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(createdOrder)))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.id").value(1));
+    mockMvc
+        .perform(
+            post("/api/orders/with-items")
+                .header(IdempotencyService.HEADER, "checkout-42")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(request)))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.order.id").value(1))
+        .andExpect(jsonPath("$.totalQuantity").value(2));
+    verify(orderCheckoutService).create(request);
+  }
+
   @Test
   void givenOrder_whenPutOrder_thenReturnUpdatedOrder() throws Exception {
     // arrange
@@ -164,6 +390,80 @@ class OrderControllerTest {
             MockMvcResultMatchers
                 .jsonPath("$.status")
                 .value(expectedUpdatedOrder.getStatus()));
+    verify(orderStatusPublisher).publish(OrderStatusEvent.of(expectedUpdatedOrder));
+    verify(orderDetailCache).invalidate(orderId);
+  }
+
+  @Test
+  void givenWriteBehind_whenPutOrderTwice_thenBufferLatestAndServeItToReads() throws Exception {
+    // arrange
+    Order existingOrder = new Order();
+    existingOrder.setId(1L);
+    existingOrder.setStatus("New");
+    OrderStatusWriteBehind writeBehind = new OrderStatusWriteBehind(
+        mock(JdbcTemplate.class), new SimpleMeterRegistry(), orderDetailCache, true, 100);
+    OrderController controller = new OrderController(orderRepository, changeFeedService, idempotencyService,
+        requestCoalescer, multiGetService, fieldProjectionRepository, orderStatusPublisher, writeBehind,
+        orderCheckoutService, orderDetailCache, totalCountService);
+    MockMvc writeBehindMockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+    when(orderRepository.findById(1L)).thenReturn(Optional.of(existingOrder));
+
+    // act
+    for (String status : List.of("Processing", "Shipped")) {
+      writeBehindMockMvc
+          .perform(put("/api/orders/{id}", 1L)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content("{\"status\":\"" + status + "\"}"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.status").value(status));
+    }
+
+    // assert
+    writeBehindMockMvc
+        .perform(get("/api/orders/{id}", 1L))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value("Shipped"));
+    verify(orderRepository, never()).save(any(Order.class));
+    verify(orderRepository, times(2)).findById(1L);
+  }
+
+  @Test
+  void givenBufferedStatus_whenGetOrderChanges_thenFlushBeforeReadingFeed() throws Exception {
+    // arrange
+    Order existingOrder = new Order();
+    existingOrder.setId(1L);
+    existingOrder.setStatus("New");
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    OrderStatusWriteBehind writeBehind = new OrderStatusWriteBehind(
+        jdbcTemplate, new SimpleMeterRegistry(), orderDetailCache, true, 100);
+    OrderController controller = new OrderController(orderRepository, changeFeedService, idempotencyService,
+        requestCoalescer, multiGetService, fieldProjectionRepository, orderStatusPublisher, writeBehind,
+        orderCheckoutService, orderDetailCache, totalCountService);
+    MockMvc writeBehindMockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    Order shipped = new Order();
+    shipped.setId(1L);
+    shipped.setStatus("Shipped");
+
+    when(orderRepository.findById(1L)).thenReturn(Optional.of(existingOrder));
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 1 });
+    when(changeFeedService.<Order>changesSince(eq(ChangeFeedService.ORDERS), any(), any(), any(), any()))
+        .thenReturn(new ChangeSet<>(List.of(shipped), List.of(), "2024-03-04T04:40:16.139115_1", false));
+    writeBehindMockMvc
+        .perform(put("/api/orders/{id}", 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"status\":\"Shipped\"}"))
+        .andExpect(status().isOk());
+
+    // act & assert
+    writeBehindMockMvc
+        .perform(get("/api/orders/changes"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.changed[0].status").value("Shipped"));
+    InOrder reads = inOrder(jdbcTemplate, changeFeedService);
+    reads.verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    reads.verify(changeFeedService).changesSince(eq(ChangeFeedService.ORDERS), any(), any(), any(), any());
+    assertTrue(writeBehind.buffered(1L).isEmpty());
   }
 
   @Test
@@ -228,4 +528,25 @@ class OrderControllerTest {
     // assert
     assertTrue(actualMessage.contains(ORDER_NOT_FOUND_MESSAGE + orderId));
   }
+
+  @Test
+  void givenOrderIds_whenStreamOrderStatus_thenSubscribeWithCurrentStatus() throws Exception {
+    // arrange
+    Order order = new Order();
+    order.setId(2L);
+    order.setStatus("Processing");
+
+    when(orderRepository.findAllById(List.of(2L))).thenReturn(List.of(order));
+    when(orderStatusPublisher.subscribe(eq(List.of(2L)), any())).thenReturn(new SseEmitter());
+
+    // act
+    mockMvc
+        .perform(get("/api/orders/status-stream").param("ids", "2"))
+        .andExpect(request().asyncStarted());
+
+    // assert: the current statuses are read by the publisher, once subscribed
+    ArgumentCaptor<Supplier<List<OrderStatusEvent>>> current = ArgumentCaptor.forClass(Supplier.class);
+    verify(orderStatusPublisher).subscribe(eq(List.of(2L)), current.capture());
+    assertEquals(List.of(OrderStatusEvent.of(order)), current.getValue().get());
+  }
 }
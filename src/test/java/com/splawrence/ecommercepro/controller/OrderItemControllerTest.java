@@ -3,7 +3,11 @@ package com.splawrence.ecommercepro.controller;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -11,9 +15,12 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -21,6 +28,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -30,13 +38,25 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splawrence.ecommercepro.exception.InsufficientStockException;
 import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
 import com.splawrence.ecommercepro.model.Order;
 import com.splawrence.ecommercepro.model.OrderItem;
 import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.FieldProjectionRepository;
 import com.splawrence.ecommercepro.repository.OrderItemRepository;
 import com.splawrence.ecommercepro.repository.OrderRepository;
 import com.splawrence.ecommercepro.repository.ProductRepository;
+import com.splawrence.ecommercepro.service.ChangeFeedService;
+import com.splawrence.ecommercepro.service.IdempotencyService;
+import com.splawrence.ecommercepro.service.InventoryService;
+import com.splawrence.ecommercepro.service.MultiGetService;
+import com.splawrence.ecommercepro.service.OrderCheckoutService;
+import com.splawrence.ecommercepro.service.OrderDetailCache;
+import com.splawrence.ecommercepro.service.OrderStatusWriteBehind;
+import com.splawrence.ecommercepro.service.RequestCoalescer;
+import com.splawrence.ecommercepro.service.TotalCountService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 class OrderItemControllerTest {
@@ -53,6 +73,39 @@ class OrderItemControllerTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private ChangeFeedService changeFeedService;
+
+    @Spy
+    private IdempotencyService idempotencyService = new IdempotencyService(
+        null, new ObjectMapper().findAndRegisterModules(), 100, Duration.ofMinutes(1), Duration.ofSeconds(1),
+        Duration.ofMinutes(1), false);
+
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(
+        new SimpleMeterRegistry(), Duration.ofSeconds(1), 1);
+
+    @Spy
+    private MultiGetService multiGetService = new MultiGetService(100);
+
+    @Mock
+    private FieldProjectionRepository fieldProjectionRepository;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private OrderDetailCache orderDetailCache;
+
+    @Mock
+    private TotalCountService totalCountService;
+
+    @Mock
+    private OrderCheckoutService orderCheckoutService;
+
+    @Mock
+    private OrderStatusWriteBehind orderStatusWriteBehind;
+
     @InjectMocks
     private OrderItemController orderItemController;
 
@@ -124,6 +177,8 @@ class OrderItemControllerTest {
         // arrange
         Optional<Product> product = Optional.of(new Product());
         product.get().setId(1L);
+        product.get().setDescription("Designer Product");
+        product.get().setPrice(new BigDecimal("75.00"));
 
         Optional<Order> order = Optional.of(new Order());
         order.get().setId(1L);
@@ -146,7 +201,38 @@ class OrderItemControllerTest {
         // act & assert
         mockMvc.perform(post("/api/order-items").contentType(MediaType.APPLICATION_JSON).content(jsonBody))
                 .andExpect(status().isCreated()).andExpect(jsonPath("$.quantity").value(1))
-                .andExpect(jsonPath("$.order.id").value(1L)).andExpect(jsonPath("$.product.id").value(1L));
+                .andExpect(jsonPath("$.order.id").value(1L)).andExpect(jsonPath("$.product.id").value(1L))
+                .andExpect(jsonPath("$.unitPrice").value(75.0))
+                .andExpect(jsonPath("$.description").value("Designer Product"));
+
+        verify(inventoryService).reserve(1L, 1);
+        verify(orderDetailCache).invalidate(1L);
+    }
+
+    @Test
+    void givenInsufficientStock_whenPostOrderItem_thenReturnConflictWithoutSaving() throws Exception {
+        // arrange
+        Product product = new Product();
+        product.setId(1L);
+        Order order = new Order();
+        order.setId(1L);
+        OrderItem orderItem = new OrderItem();
+        orderItem.setQuantity(5);
+        orderItem.setOrder(order);
+        orderItem.setProduct(product);
+
+        doThrow(new InsufficientStockException("Only 2 in stock for Product Id: 1"))
+                .when(inventoryService).reserve(1L, 5);
+        MockMvc mockMvcWithAdvice = MockMvcBuilders.standaloneSetup(orderItemController)
+                .setControllerAdvice(new ExceptionHandlerController()).build();
+
+        // act & assert
+        mockMvcWithAdvice.perform(post("/api/order-items").contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(orderItem)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Only 2 in stock for Product Id: 1"));
+
+        verify(orderItemRepository, never()).save(any(OrderItem.class));
     }
 
     @Test
@@ -169,7 +255,7 @@ class OrderItemControllerTest {
                 .writeValueAsString(newOrderItemDetails);
         when(orderItemRepository.findById(orderId))
                 .thenReturn(Optional.of(existingOrderItem));
-        when(orderItemRepository.save(any(OrderItem.class)))
+        when(orderCheckoutService.changeQuantity(orderId, 1))
                 .thenReturn(expectedUpdatedOrderItem);
 
         // act & assert
@@ -177,6 +263,27 @@ class OrderItemControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(expectedUpdatedOrderItem.getId()))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.quantity").value(expectedUpdatedOrderItem.getQuantity()));
+        verify(orderItemRepository, never()).save(any(OrderItem.class));
+    }
+
+    @Test
+    void givenZeroQuantity_whenPutOrderItem_thenReturnBadRequestWithoutChangingStock() throws Exception {
+        // arrange
+        OrderItem existingOrderItem = new OrderItem();
+        existingOrderItem.setId(1L);
+        existingOrderItem.setQuantity(2);
+        OrderItem newOrderItemDetails = new OrderItem();
+        newOrderItemDetails.setQuantity(0);
+        when(orderItemRepository.findById(1L)).thenReturn(Optional.of(existingOrderItem));
+
+        MockMvc mockMvcWithAdvice = MockMvcBuilders.standaloneSetup(orderItemController)
+                .setControllerAdvice(new ExceptionHandlerController()).build();
+
+        // act & assert
+        mockMvcWithAdvice.perform(put("/api/order-items/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(newOrderItemDetails)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(orderCheckoutService, never()).changeQuantity(anyLong(), anyInt());
     }
 
     @Test
@@ -215,6 +322,7 @@ class OrderItemControllerTest {
         // act & assert
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/order-items/{id}", orderId))
                 .andExpect(MockMvcResultMatchers.status().isNoContent());
+        verify(orderCheckoutService).deleteItem(orderId);
     }
 
     @Test
@@ -246,11 +354,27 @@ class OrderItemControllerTest {
         OrderItem order2 = new OrderItem();
         List<OrderItem> expectedOrderItems = Arrays.asList(order1, order2);
 
-        when(orderItemRepository.findByOrderId(orderId)).thenReturn(expectedOrderItems);
+        when(orderDetailCache.getItems(orderId)).thenReturn(expectedOrderItems);
 
         // act & assert
         mockMvc.perform(get("/api/order-items/search/order-id/{id}", orderId))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(2));
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenFields_whenGetOrderItems_thenReturnProjectedRows() throws Exception {
+        // arrange
+        List<Map<String, Object>> rows = List.of(
+                Map.of("id", 1, "quantity", 2, "product", Map.of("description", "Designer Product")));
+
+        when(fieldProjectionRepository.findAll(OrderItem.class, List.of("id", "quantity", "product.description")))
+                .thenReturn(rows);
+
+        // act & assert
+        mockMvc.perform(get("/api/order-items").param("fields", "id,quantity,product.description"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].product.description").value("Designer Product"))
+                .andExpect(jsonPath("$[0].created").doesNotExist());
+    }
+}
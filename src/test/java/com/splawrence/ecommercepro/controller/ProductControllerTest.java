@@ -1,8 +1,12 @@
 package com.splawrence.ecommercepro.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -11,15 +15,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
+import org.apache.coyote.BadRequestException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -30,8 +38,22 @@ import org.springframework.web.context.WebApplicationContext;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.model.ChangeSet;
 import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.model.ProductImportFormat;
+import com.splawrence.ecommercepro.model.ProductImportResult;
+import com.splawrence.ecommercepro.model.ProductRepriceRequest;
+import com.splawrence.ecommercepro.model.ProductRepriceResult;
+import com.splawrence.ecommercepro.repository.FieldProjectionRepository;
 import com.splawrence.ecommercepro.repository.ProductRepository;
+import com.splawrence.ecommercepro.service.ChangeFeedService;
+import com.splawrence.ecommercepro.service.IdempotencyService;
+import com.splawrence.ecommercepro.service.MultiGetService;
+import com.splawrence.ecommercepro.service.ProductCatalogCache;
+import com.splawrence.ecommercepro.service.ProductImportService;
+import com.splawrence.ecommercepro.service.ProductRepriceService;
+import com.splawrence.ecommercepro.service.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 class ProductControllerTest {
@@ -42,6 +64,35 @@ class ProductControllerTest {
   @Mock
   private ProductRepository productRepository;
 
+  @Mock
+  private ChangeFeedService changeFeedService;
+
+  @Spy
+  private IdempotencyService idempotencyService = new IdempotencyService(
+      null, new ObjectMapper().findAndRegisterModules(), 100, Duration.ofMinutes(1), Duration.ofSeconds(1),
+      Duration.ofMinutes(1), false);
+
+  @Spy
+  private RequestCoalescer requestCoalescer = new RequestCoalescer(
+      new SimpleMeterRegistry(), Duration.ofSeconds(1), 1);
+
+  @Spy
+  private MultiGetService multiGetService = new MultiGetService(100);
+
+  @Mock
+  private FieldProjectionRepository fieldProjectionRepository;
+
+  @Mock
+  private ProductImportService productImportService;
+
+  @Mock
+  private ProductRepriceService productRepriceService;
+
+  @Spy
+  private ProductCatalogCache productCatalogCache = new ProductCatalogCache(
+      null, null, new SimpleMeterRegistry(), false, Path.of("catalog-snapshot.bin"), Duration.ofSeconds(5),
+      "heap");
+
   @InjectMocks
   private ProductController productController;
 
@@ -174,6 +225,54 @@ class ProductControllerTest {
                 .value(expectedUpdatedProduct.getPrice()));
   }
 
+  @Test
+  void givenProductWithoutStock_whenPutProduct_thenLeaveStockToReservations() throws Exception {
+    // arrange
+    Product existingProduct = new Product();
+    existingProduct.setId(1L);
+    existingProduct.setStock(5);
+    Product newProductDetails = new Product();
+    newProductDetails.setPrice(BigDecimal.valueOf(20.0));
+    when(productRepository.findById(1L)).thenReturn(Optional.of(existingProduct));
+    when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    productController.putProductById(1L, newProductDetails);
+
+    // assert
+    verify(productRepository, never()).setStock(any(), any());
+  }
+
+  @Test
+  void givenProductWithStock_whenPutProduct_thenSetStockSeparately() throws Exception {
+    // arrange
+    Product existingProduct = new Product();
+    existingProduct.setId(1L);
+    existingProduct.setStock(5);
+    Product newProductDetails = new Product();
+    newProductDetails.setStock(40);
+    when(productRepository.findById(1L)).thenReturn(Optional.of(existingProduct));
+    when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    Product product = productController.putProductById(1L, newProductDetails);
+
+    // assert
+    verify(productRepository).setStock(1L, 40);
+    assertEquals(Integer.valueOf(40), product.getStock());
+  }
+
+  @Test
+  void givenNegativePrice_whenPutProduct_thenThrowBadRequest() {
+    // arrange
+    Product newProductDetails = new Product();
+    newProductDetails.setPrice(new BigDecimal("-0.01"));
+
+    // act & assert
+    assertThrows(BadRequestException.class, () -> productController.putProductById(1L, newProductDetails));
+    verify(productRepository, never()).save(any(Product.class));
+  }
+
   @Test
   void givenBadProductId_whenPutProduct_thenThrowResourceNotFound()
       throws Exception {
@@ -236,4 +335,114 @@ class ProductControllerTest {
     // assert
     assertTrue(actualMessage.contains(PRODUCT_NOT_FOUND_MESSAGE + productId));
   }
+
+  @Test
+  void givenCursor_whenGetProductChanges_thenReturnChangeSet() throws Exception {
+    // arrange
+    Product product = new Product();
+    product.setId(2L);
+    ChangeSet<Product> changeSet = new ChangeSet<>(
+        List.of(product), List.of(3L), "2024-03-04T04:40:16.139115_3", false);
+
+    when(changeFeedService.<Product>changesSince(
+        eq(ChangeFeedService.PRODUCTS), eq("2024-03-04T04:40:16"), eq(50), any(), any()))
+        .thenReturn(changeSet);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/products/changes")
+            .param("since", "2024-03-04T04:40:16")
+            .param("limit", "50"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.changed[0].id").value(2))
+        .andExpect(jsonPath("$.deleted[0]").value(3))
+        .andExpect(jsonPath("$.nextCursor").value("2024-03-04T04:40:16.139115_3"));
+  }
+
+  @Test
+  void givenProductId_whenDeleteProductById_thenRecordTombstone() throws Exception {
+    // arrange
+    Long productId = 1L;
+    Product existingProduct = new Product();
+    existingProduct.setId(productId);
+
+    when(productRepository.findById(productId))
+        .thenReturn(Optional.of(existingProduct));
+
+    // act
+    productController.deleteProductById(productId);
+
+    // assert
+    verify(changeFeedService).recordDeletion(ChangeFeedService.PRODUCTS, productId);
+  }
+
+  @Test
+  void givenIds_whenGetProductsByIds_thenReturnFoundInRequestOrderAndMissing() throws Exception {
+    // arrange
+    Product first = new Product();
+    first.setId(1L);
+    Product third = new Product();
+    third.setId(3L);
+
+    when(productRepository.findAllById(any())).thenReturn(List.of(first, third));
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/products").param("ids", "3,2,1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.found[0].id").value(3))
+        .andExpect(jsonPath("$.found[1].id").value(1))
+        .andExpect(jsonPath("$.missing[0]").value(2));
+  }
+
+  @Test
+  void givenCsvBody_whenImportProducts_thenReturnImportResult() throws Exception {
+    // arrange
+    ProductImportResult result = new ProductImportResult();
+    result.setInserted(2);
+    result.setRejected(1);
+    result.getErrors().add(new ProductImportResult.RowError(3, "Description is required"));
+
+    when(productImportService.importProducts(any(), eq(ProductImportFormat.CSV))).thenReturn(result);
+
+    // act & assert
+    mockMvc
+        .perform(post("/api/products/import")
+            .contentType("text/csv")
+            .content("description,price\nWidget,1\n,2\nGadget,3\n"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.inserted").value(2))
+        .andExpect(jsonPath("$.rejected").value(1))
+        .andExpect(jsonPath("$.errors[0].line").value(3));
+  }
+
+  @Test
+  void givenJsonBody_whenImportProducts_thenReturnUnsupportedMediaType() throws Exception {
+    mockMvc
+        .perform(post("/api/products/import")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[]"))
+        .andExpect(status().isUnsupportedMediaType());
+  }
+
+  @Test
+  void givenRule_whenRepriceProducts_thenReturnRepriceResult() throws Exception {
+    // arrange
+    ProductRepriceResult result = new ProductRepriceResult();
+    result.setUpdated(12);
+
+    when(productRepriceService.reprice(any(ProductRepriceRequest.class))).thenReturn(result);
+
+    // act & assert
+    mockMvc
+        .perform(post("/api/products/reprice")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rule\":{\"percent\":10,\"minId\":1,\"descriptionContains\":\"widget\"}}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.updated").value(12))
+        .andExpect(jsonPath("$.missing.length()").value(0));
+
+    verify(productRepriceService).reprice(new ProductRepriceRequest(null,
+        new ProductRepriceRequest.Rule(BigDecimal.TEN, 1L, null, "widget")));
+  }
 }
@@ -0,0 +1,82 @@
+package com.splawrence.ecommercepro.controller;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.splawrence.ecommercepro.model.DailyRevenue;
+import com.splawrence.ecommercepro.model.ProductSales;
+import com.splawrence.ecommercepro.model.SalesMetric;
+import com.splawrence.ecommercepro.service.SalesReportService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+@ExtendWith(MockitoExtension.class)
+class ReportControllerTest {
+
+  @Mock
+  private SalesReportService salesReportService;
+
+  @InjectMocks
+  private ReportController reportController;
+
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  void setup() {
+    mockMvc = MockMvcBuilders.standaloneSetup(reportController).build();
+  }
+
+  @Test
+  void givenMetricAndRange_whenGetTopProducts_thenReturnProductSales() throws Exception {
+    // arrange
+    LocalDate from = LocalDate.of(2024, 1, 1);
+    LocalDate to = LocalDate.of(2024, 1, 31);
+
+    when(salesReportService.topProducts(SalesMetric.QUANTITY, 5, from, to, true))
+        .thenReturn(List.of(new ProductSales(7L, "Widget", 12, new BigDecimal("120.00"))));
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/reports/top-products?by=quantity&limit=5&from=2024-01-01&to=2024-01-31&streaming=true"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].productId").value(7))
+        .andExpect(jsonPath("$[0].quantity").value(12));
+
+    verify(salesReportService).topProducts(SalesMetric.QUANTITY, 5, from, to, true);
+  }
+
+  @Test
+  void givenRange_whenGetDailyRevenue_thenReturnOneEntryPerDay() throws Exception {
+    // arrange
+    LocalDate day = LocalDate.of(2024, 1, 1);
+
+    when(salesReportService.dailyRevenue(day, day, false))
+        .thenReturn(List.of(new DailyRevenue(day, 3, new BigDecimal("30.00"))));
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/reports/daily-revenue?from=2024-01-01&to=2024-01-01"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].quantity").value(3));
+  }
+
+  @Test
+  void givenMissingRange_whenGetDailyRevenue_thenReturnBadRequest() throws Exception {
+    mockMvc
+        .perform(get("/api/reports/daily-revenue"))
+        .andExpect(status().isBadRequest());
+  }
+}
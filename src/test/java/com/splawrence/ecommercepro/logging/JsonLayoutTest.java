@@ -0,0 +1,36 @@
+package com.splawrence.ecommercepro.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonLayoutTest {
+
+  @Test
+  void givenEventWithMdcAndException_whenDoLayout_thenWriteOneJsonLine() throws Exception {
+    // arrange
+    LoggerContext loggerContext = new LoggerContext();
+    LoggingEvent event = new LoggingEvent(JsonLayoutTest.class.getName(),
+        loggerContext.getLogger("com.splawrence.ecommercepro.controller.ProductController"), Level.DEBUG,
+        "getProductById called with \"id\": {}\nnext line", new IllegalStateException("boom"), new Object[] { 5 });
+    event.setMDCPropertyMap(Map.of(RequestLogSampler.ENDPOINT, "ProductController.getProductById"));
+
+    // act
+    String line = new JsonLayout().doLayout(event);
+
+    // assert
+    assertEquals(1, line.strip().lines().count());
+    JsonNode json = new ObjectMapper().readTree(line);
+    assertEquals("DEBUG", json.get("level").asText());
+    assertEquals("getProductById called with \"id\": 5\nnext line", json.get("message").asText());
+    assertEquals("ProductController.getProductById", json.get(RequestLogSampler.ENDPOINT).asText());
+    assertTrue(json.get("exception").asText().startsWith("java.lang.IllegalStateException: boom"));
+  }
+}
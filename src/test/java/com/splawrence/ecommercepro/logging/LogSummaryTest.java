@@ -0,0 +1,51 @@
+package com.splawrence.ecommercepro.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderItem;
+import com.splawrence.ecommercepro.model.Product;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class LogSummaryTest {
+
+  @Test
+  void givenOrderItem_whenToString_thenSummarizeIdsOnly() {
+    // arrange
+    Order order = new Order();
+    order.setId(3L);
+    order.setStatus("New");
+    Product product = new Product();
+    product.setId(5L);
+    product.setDescription("A very long description that the summary leaves out");
+    product.setPrice(new BigDecimal("9.99"));
+    OrderItem orderItem = new OrderItem();
+    orderItem.setId(7L);
+    orderItem.setOrder(order);
+    orderItem.setProduct(product);
+    orderItem.setQuantity(2);
+
+    // act & assert
+    assertEquals("OrderItem(id=7, orderId=3, productId=5, quantity=2)", LogSummary.of(orderItem).toString());
+    assertEquals("Product(id=5, price=9.99, stock=null)", LogSummary.of(product).toString());
+  }
+
+  @Test
+  void givenLongList_whenToString_thenBoundElementsAndLength() {
+    // arrange
+    List<Long> ids = LongStream.rangeClosed(1, 1000).boxed().toList();
+
+    // act
+    String summary = LogSummary.of(ids).toString();
+    String longSummary = LogSummary.of(List.of("x".repeat(500))).toString();
+
+    // assert
+    assertEquals("[1, 2, 3, 4, 5, 6, 7, 8, 9, 10, ... 1000 in total]", summary);
+    assertEquals(LogSummary.MAX_LENGTH, longSummary.length());
+    assertTrue(longSummary.endsWith("..."));
+  }
+}
@@ -0,0 +1,94 @@
+package com.splawrence.ecommercepro.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import com.splawrence.ecommercepro.config.LogSamplingProperties;
+import com.splawrence.ecommercepro.controller.ProductController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+class RequestLogSamplerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final SampledLogFilter filter = new SampledLogFilter();
+  private final LoggerContext loggerContext = new LoggerContext();
+  private final Logger controllerLogger = loggerContext.getLogger(ProductController.class);
+
+  @AfterEach
+  void clearMdc() {
+    MDC.clear();
+  }
+
+  @Test
+  void givenEndpointRateZero_whenPreHandle_thenDenyDebugButNotInfo() throws Exception {
+    // arrange
+    RequestLogSampler sampler = sampler(1.0, "ProductController.getProductById", 0.0);
+
+    // act
+    sampler.preHandle(request(), new MockHttpServletResponse(), handler("getProductById", Long.class));
+
+    // assert
+    assertEquals(FilterReply.DENY, decide(controllerLogger, Level.DEBUG));
+    assertEquals(FilterReply.NEUTRAL, decide(controllerLogger, Level.INFO));
+    assertEquals(FilterReply.NEUTRAL, decide(loggerContext.getLogger("org.hibernate.SQL"), Level.DEBUG));
+    assertEquals(1.0, meterRegistry.get("ecommercepro.log-sampling.requests").tag("sampled", "false").counter()
+        .count());
+  }
+
+  @Test
+  void givenControllerRateOne_whenPreHandle_thenKeepDebugWithEndpoint() throws Exception {
+    // arrange
+    RequestLogSampler sampler = sampler(0.0, "ProductController", 1.0);
+
+    // act
+    sampler.preHandle(request(), new MockHttpServletResponse(), handler("getProducts"));
+
+    // assert
+    assertEquals(FilterReply.NEUTRAL, decide(controllerLogger, Level.DEBUG));
+    assertEquals("ProductController.getProducts", MDC.get(RequestLogSampler.ENDPOINT));
+  }
+
+  @Test
+  void givenCompletedRequest_whenAfterCompletion_thenClearSamplingDecision() throws Exception {
+    // arrange
+    RequestLogSampler sampler = sampler(0.0, "OrderController", 1.0);
+    HandlerMethod handler = handler("getProducts");
+    sampler.preHandle(request(), new MockHttpServletResponse(), handler);
+
+    // act
+    sampler.afterCompletion(request(), new MockHttpServletResponse(), handler, null);
+
+    // assert
+    assertNull(MDC.get(RequestLogSampler.SAMPLED));
+    assertEquals(FilterReply.NEUTRAL, decide(controllerLogger, Level.DEBUG));
+  }
+
+  private FilterReply decide(Logger logger, Level level) {
+    return filter.decide(null, logger, level, "message {}", new Object[] { 1 }, null);
+  }
+
+  private RequestLogSampler sampler(double defaultRate, String endpoint, double rate) {
+    LogSamplingProperties properties = new LogSamplingProperties();
+    properties.setDefaultRate(defaultRate);
+    properties.getRates().put(endpoint, rate);
+    return new RequestLogSampler(properties, meterRegistry);
+  }
+
+  private static MockHttpServletRequest request() {
+    return new MockHttpServletRequest("GET", "/api/products");
+  }
+
+  private static HandlerMethod handler(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+    return new HandlerMethod(new Object(), ProductController.class.getMethod(name, parameterTypes));
+  }
+}
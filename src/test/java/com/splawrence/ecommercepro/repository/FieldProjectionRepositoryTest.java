@@ -0,0 +1,127 @@
+package com.splawrence.ecommercepro.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderItem;
+import com.splawrence.ecommercepro.model.Product;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+@Slf4j
+@DataJpaTest
+@Import(FieldProjectionRepository.class)
+@TestPropertySource(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop" })
+class FieldProjectionRepositoryTest {
+
+  @Autowired
+  private TestEntityManager testEntityManager;
+
+  @Autowired
+  private FieldProjectionRepository fieldProjectionRepository;
+
+  @Autowired
+  private OrderItemRepository orderItemRepository;
+
+  private OrderItem orderItem;
+
+  @BeforeEach
+  void setup() {
+    LocalDateTime now = LocalDateTime.now();
+    Product product = new Product();
+    product.setDescription("Designer Product");
+    product.setPrice(BigDecimal.valueOf(75));
+    product.setCreated(now);
+    product.setUpdated(now);
+    testEntityManager.persist(product);
+
+    Order order = new Order();
+    order.setStatus("Processing");
+    order.setCreated(now);
+    order.setUpdated(now);
+    testEntityManager.persist(order);
+
+    orderItem = new OrderItem();
+    orderItem.setQuantity(3);
+    orderItem.setCreated(now);
+    orderItem.setUpdated(now);
+    orderItem.setOrder(order);
+    orderItem.setProduct(product);
+    testEntityManager.persist(orderItem);
+    testEntityManager.flush();
+    testEntityManager.clear();
+  }
+
+  @Test
+  void givenNestedFields_whenFindAll_thenReturnOnlyRequestedFields() throws Exception {
+    // act
+    List<Map<String, Object>> rows = fieldProjectionRepository.findAll(OrderItem.class,
+        List.of("id", "quantity", "product.description"));
+
+    // assert
+    assertEquals(1, rows.size());
+    Map<String, Object> row = rows.get(0);
+    assertEquals(List.of("id", "quantity", "product"), List.copyOf(row.keySet()));
+    assertEquals(3, row.get("quantity"));
+    assertEquals(Map.of("description", "Designer Product"), row.get("product"));
+  }
+
+  @Test
+  void givenAssociationName_whenFindById_thenReturnAllBasicFieldsOfAssociation() throws Exception {
+    // act
+    Map<String, Object> row = fieldProjectionRepository
+        .findById(OrderItem.class, orderItem.getId(), List.of("order"))
+        .orElseThrow();
+
+    // assert
+    @SuppressWarnings("unchecked")
+    Map<String, Object> order = (Map<String, Object>) row.get("order");
+    assertEquals("Processing", order.get("status"));
+    assertTrue(order.containsKey("created"));
+  }
+
+  @Test
+  void givenMissingId_whenFindById_thenReturnEmpty() throws Exception {
+    assertFalse(fieldProjectionRepository.findById(Product.class, -1L, List.of("id")).isPresent());
+  }
+
+  @Test
+  void givenUnknownField_whenFindAll_thenThrowBadRequest() {
+    assertThrows(BadRequestException.class,
+        () -> fieldProjectionRepository.findAll(OrderItem.class, List.of("product.supplier")));
+    assertThrows(BadRequestException.class,
+        () -> fieldProjectionRepository.findAll(OrderItem.class, List.of("quantity.value")));
+  }
+
+  @Test
+  void givenSparseFields_whenSerialized_thenPayloadIsSmallerThanFullEntity() throws Exception {
+    // arrange
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    // act
+    int fullBytes = objectMapper.writeValueAsBytes(orderItemRepository.findAll()).length;
+    int sparseBytes = objectMapper.writeValueAsBytes(fieldProjectionRepository.findAll(OrderItem.class,
+        List.of("id", "quantity", "product.description"))).length;
+
+    // assert
+    log.info("OrderItem list payload: {} bytes full, {} bytes with sparse fields", fullBytes, sparseBytes);
+    assertTrue(sparseBytes * 3 < fullBytes, sparseBytes + " should be well under " + fullBytes);
+  }
+}
@@ -0,0 +1,123 @@
+package com.splawrence.ecommercepro.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Applies the Flyway migrations to a real Postgres, validates the entity
+ * mappings against them and checks that the hot repository queries are
+ * planned as index scans. Skipped when Docker is not available.
+ */
+@Slf4j
+@DataJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.flyway.enabled=true",
+    "spring.jpa.hibernate.ddl-auto=validate" })
+class QueryPlanTest {
+
+  @Container
+  @ServiceConnection
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @BeforeEach
+  void setup() {
+    // enough rows, mostly completed orders, for the planner to prefer the indexes
+    execute("INSERT INTO products (id, created, description, price, updated)"
+        + " SELECT n, now(), 'Product ' || n, 10.00, now() - n * interval '1 second'"
+        + " FROM generate_series(1, 1000) n");
+    execute("INSERT INTO orders (id, created, status, updated)"
+        + " SELECT n, now(), CASE WHEN n % 100 = 0 THEN 'New' ELSE 'Completed' END,"
+        + " now() - n * interval '1 second' FROM generate_series(1, 10000) n");
+    execute("INSERT INTO order_items (id, created, quantity, updated, order_id, product_id)"
+        + " SELECT n, now(), 1, now() - n * interval '1 second', n % 10000 + 1, n % 1000 + 1"
+        + " FROM generate_series(1, 50000) n");
+    execute("INSERT INTO tombstones (id, entity_type, entity_id, deleted)"
+        + " SELECT n, CASE WHEN n % 3 = 0 THEN 'products' ELSE 'orders' END, n,"
+        + " now() - n * interval '1 second' FROM generate_series(1, 10000) n");
+    execute("ANALYZE");
+  }
+
+  @Test
+  void givenOrderId_whenFindByOrderId_thenUseOrderIdIndex() {
+    assertIndexScan("idx_order_items_order_id",
+        "SELECT * FROM order_items oi JOIN orders o ON o.id = oi.order_id"
+            + " JOIN products p ON p.id = oi.product_id WHERE oi.order_id = 42");
+  }
+
+  @Test
+  void givenProductId_whenFindItemsByProduct_thenUseProductIdIndex() {
+    assertIndexScan("idx_order_items_product_id", "SELECT id FROM order_items WHERE product_id = 42");
+  }
+
+  @Test
+  void givenCursor_whenFindChangedSince_thenUseUpdatedIdIndexes() {
+    String cursor = " WHERE updated > now() - interval '1 hour'"
+        + " OR (updated = now() - interval '1 hour' AND id > 5) ORDER BY updated, id LIMIT 100";
+    assertIndexScan("idx_products_updated_id", "SELECT * FROM products" + cursor);
+    assertIndexScan("idx_orders_updated_id", "SELECT * FROM orders" + cursor);
+    assertIndexScan("idx_order_items_updated_id", "SELECT * FROM order_items" + cursor);
+    assertIndexScan("idx_tombstones_type_deleted_entity",
+        "SELECT * FROM tombstones WHERE entity_type = 'products' AND (deleted > now() - interval '1 hour'"
+            + " OR (deleted = now() - interval '1 hour' AND entity_id > 5)) ORDER BY deleted, entity_id LIMIT 100");
+  }
+
+  @Test
+  void givenOverlapWindow_whenFindChangedBetween_thenScanUpdatedIdIndexesBackwards() {
+    String window = " WHERE updated >= now() - interval '1 hour' AND (updated < now()"
+        + " OR (updated = now() AND id <= 5)) ORDER BY updated DESC, id DESC LIMIT 50";
+    assertIndexScan("idx_products_updated_id", "SELECT * FROM products" + window);
+    assertIndexScan("idx_orders_updated_id", "SELECT * FROM orders" + window);
+    assertIndexScan("idx_order_items_updated_id", "SELECT * FROM order_items" + window);
+    assertIndexScan("idx_tombstones_type_deleted_entity",
+        "SELECT * FROM tombstones WHERE entity_type = 'products' AND deleted >= now() - interval '1 hour'"
+            + " AND (deleted < now() OR (deleted = now() AND entity_id <= 5))"
+            + " ORDER BY deleted DESC, entity_id DESC LIMIT 50");
+  }
+
+  @Test
+  void givenPendingOrders_whenClaimBatch_thenUseStatusIndex() {
+    assertIndexScan("idx_orders_status_updated",
+        "SELECT * FROM orders WHERE status IN ('New', 'Processing', 'Shipped') AND updated < now()"
+            + " ORDER BY updated, id LIMIT 100 FOR UPDATE SKIP LOCKED");
+  }
+
+  @Test
+  void givenDateRange_whenScanSales_thenUseCreatedIndex() {
+    assertIndexScan("idx_order_items_created",
+        "SELECT product_id, quantity FROM order_items"
+            + " WHERE created >= now() - interval '2 days' AND created < now() - interval '1 day'");
+  }
+
+  private void assertIndexScan(String index, String sql) {
+    @SuppressWarnings("unchecked")
+    List<String> rows = entityManager.createNativeQuery("EXPLAIN " + sql).getResultList();
+    String plan = rows.stream().collect(Collectors.joining("\n"));
+    log.info("Plan for {}:\n{}", sql, plan);
+    assertTrue(plan.contains(index), "expected " + index + " in plan:\n" + plan);
+    assertFalse(plan.contains("Seq Scan"), "unexpected sequential scan in plan:\n" + plan);
+  }
+
+  private void execute(String sql) {
+    entityManager.createNativeQuery(sql).executeUpdate();
+  }
+}
@@ -0,0 +1,197 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.model.ChangeCursor;
+import com.splawrence.ecommercepro.model.ChangeSet;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.model.Tombstone;
+import com.splawrence.ecommercepro.repository.TombstoneRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeFeedServiceTest {
+
+  private static final LocalDateTime T1 = LocalDateTime.of(2024, 3, 4, 4, 40, 16);
+  private static final LocalDateTime T2 = T1.plusSeconds(1);
+
+  @Mock
+  private TombstoneRepository tombstoneRepository;
+
+  private ChangeFeedService changeFeedService;
+
+  @BeforeEach
+  void setup() {
+    changeFeedService = new ChangeFeedService(tombstoneRepository, 100, 2, Duration.ZERO);
+  }
+
+  @Test
+  void givenRowsAndTombstones_whenChangesSince_thenMergeInCursorOrder() throws Exception {
+    // arrange
+    when(tombstoneRepository.findChangedSince(eq(ChangeFeedService.PRODUCTS), any(), any(), any()))
+        .thenReturn(List.of(new Tombstone(ChangeFeedService.PRODUCTS, 5L, T1)));
+
+    // act
+    ChangeSet<Product> changeSet = changeFeedService.changesSince(ChangeFeedService.PRODUCTS, null, null,
+        (updated, id, pageable) -> List.of(product(7L, T1), product(2L, T2)), ChangeFeedServiceTest::noReplay);
+
+    // assert
+    assertEquals(List.of(5L), changeSet.getDeleted());
+    assertEquals(7L, changeSet.getChanged().get(0).getId());
+    assertEquals(1, changeSet.getChanged().size());
+    assertEquals(new ChangeCursor(T1, 7L), position(changeSet.getNextCursor()));
+    assertTrue(changeSet.isHasMore());
+  }
+
+  @Test
+  void givenNoChanges_whenChangesSince_thenReturnSameCursor() throws Exception {
+    // arrange
+    String since = new ChangeCursor(T1, 3L).toString();
+    when(tombstoneRepository.findChangedSince(eq(ChangeFeedService.PRODUCTS), eq(T1), eq(3L), any()))
+        .thenReturn(List.of());
+
+    // act
+    ChangeSet<Product> changeSet = changeFeedService.changesSince(ChangeFeedService.PRODUCTS, since, 1,
+        (updated, id, pageable) -> List.of(), ChangeFeedServiceTest::noReplay);
+
+    // assert
+    assertTrue(changeSet.getChanged().isEmpty());
+    assertEquals(new ChangeCursor(T1, 3L), position(changeSet.getNextCursor()));
+    assertNotNull(ChangeCursor.parse(changeSet.getNextCursor()).getRead());
+    assertFalse(changeSet.isHasMore());
+  }
+
+  @Test
+  void givenRowCommittedBehindCursor_whenChangesSince_thenReplayWindowSincePreviousRead() throws Exception {
+    // arrange
+    ChangeFeedService overlapping = new ChangeFeedService(tombstoneRepository, 100, 10, Duration.ofSeconds(5));
+    // row 4 was stamped before the cursor but committed after the previous page was read at T1 + 1s
+    when(tombstoneRepository.findChangedSince(eq(ChangeFeedService.PRODUCTS), any(), any(), any()))
+        .thenReturn(List.of());
+    when(tombstoneRepository.findChangedBetween(eq(ChangeFeedService.PRODUCTS), any(), any(), any(), any()))
+        .thenReturn(List.of());
+
+    // act
+    ChangeSet<Product> changeSet = overlapping.changesSince(ChangeFeedService.PRODUCTS,
+        new ChangeCursor(T1, 6L, T1.plusSeconds(1)).toString(), null, ChangeFeedServiceTest::changedSince,
+        ChangeFeedServiceTest::changedBetween);
+
+    // assert: the replay re-sends 4 and 6 but not 3, read well before, and the page adds 8
+    assertEquals(List.of(4L, 6L, 8L), changeSet.getChanged().stream().map(Product::getId).toList());
+    assertEquals(new ChangeCursor(T2, 8L), position(changeSet.getNextCursor()));
+    verify(tombstoneRepository).findChangedBetween(ChangeFeedService.PRODUCTS, T1.minusSeconds(4), T1, 6L,
+        PageRequest.of(0, 5));
+  }
+
+  @Test
+  void givenMoreRowsInWindowThanHalfAPage_whenChangesSince_thenReplayNearestAndKeepLimit() throws Exception {
+    // arrange
+    ChangeFeedService overlapping = new ChangeFeedService(tombstoneRepository, 100, 10, Duration.ofSeconds(5));
+    when(tombstoneRepository.findChangedSince(eq(ChangeFeedService.PRODUCTS), any(), any(), any()))
+        .thenReturn(List.of());
+    when(tombstoneRepository.findChangedBetween(eq(ChangeFeedService.PRODUCTS), any(), any(), any(), any()))
+        .thenReturn(List.of());
+
+    // act
+    ChangeSet<Product> changeSet = overlapping.changesSince(ChangeFeedService.PRODUCTS,
+        new ChangeCursor(T1, 6L).toString(), 2, ChangeFeedServiceTest::changedSince,
+        ChangeFeedServiceTest::changedBetween);
+
+    // assert: one slot replays 6, the row nearest the cursor, and the other moves on to 8
+    assertEquals(List.of(6L, 8L), changeSet.getChanged().stream().map(Product::getId).toList());
+    assertEquals(new ChangeCursor(T2, 8L), position(changeSet.getNextCursor()));
+    verify(tombstoneRepository).findChangedSince(ChangeFeedService.PRODUCTS, T1, 6L, PageRequest.of(0, 2));
+  }
+
+  @Test
+  void givenCursorReadLongerAgoThanOverlap_whenChangesSince_thenReplayNothing() throws Exception {
+    // arrange
+    ChangeFeedService overlapping = new ChangeFeedService(tombstoneRepository, 100, 10, Duration.ofSeconds(5));
+    when(tombstoneRepository.findChangedSince(eq(ChangeFeedService.PRODUCTS), any(), any(), any()))
+        .thenReturn(List.of());
+
+    // act
+    ChangeSet<Product> changeSet = overlapping.changesSince(ChangeFeedService.PRODUCTS,
+        new ChangeCursor(T2, 8L, T2.plusSeconds(6)).toString(), null, ChangeFeedServiceTest::changedSince,
+        ChangeFeedServiceTest::noReplay);
+
+    // assert
+    assertTrue(changeSet.getChanged().isEmpty());
+    assertEquals(new ChangeCursor(T2, 8L), position(changeSet.getNextCursor()));
+  }
+
+  @Test
+  void givenBadCursor_whenChangesSince_thenThrowBadRequest() {
+    assertThrows(BadRequestException.class, () -> changeFeedService.changesSince(
+        ChangeFeedService.PRODUCTS, "yesterday", null, (updated, id, pageable) -> List.<Product>of(),
+        ChangeFeedServiceTest::noReplay));
+  }
+
+  @Test
+  void givenId_whenRecordDeletion_thenSaveTombstone() {
+    // act
+    changeFeedService.recordDeletion(ChangeFeedService.ORDERS, 9L);
+
+    // assert
+    ArgumentCaptor<Tombstone> captor = ArgumentCaptor.forClass(Tombstone.class);
+    verify(tombstoneRepository).save(captor.capture());
+    assertEquals(ChangeFeedService.ORDERS, captor.getValue().getEntityType());
+    assertEquals(9L, captor.getValue().getEntityId());
+  }
+
+  private static final List<Product> TABLE = List.of(product(3L, T1.minusSeconds(9)),
+      product(4L, T1.minusSeconds(2)), product(6L, T1), product(8L, T2));
+
+  private static List<Product> changedSince(LocalDateTime updated, Long id, Pageable pageable) {
+    return TABLE.stream()
+        .filter(row -> row.getUpdated().isAfter(updated) || (row.getUpdated().isEqual(updated) && row.getId() > id))
+        .limit(pageable.getPageSize())
+        .toList();
+  }
+
+  private static List<Product> changedBetween(LocalDateTime from, LocalDateTime updated, Long id,
+      Pageable pageable) {
+    return TABLE.stream()
+        .sorted(Comparator.comparing(Product::getUpdated).thenComparing(Product::getId).reversed())
+        .filter(row -> !row.getUpdated().isBefore(from))
+        .filter(row -> row.getUpdated().isBefore(updated) || (row.getUpdated().isEqual(updated) && row.getId() <= id))
+        .limit(pageable.getPageSize())
+        .toList();
+  }
+
+  private static List<Product> noReplay(LocalDateTime from, LocalDateTime updated, Long id, Pageable pageable) {
+    throw new AssertionError("should not replay");
+  }
+
+  private static ChangeCursor position(String cursor) throws BadRequestException {
+    ChangeCursor parsed = ChangeCursor.parse(cursor);
+    return new ChangeCursor(parsed.getUpdated(), parsed.getId());
+  }
+
+  private static Product product(Long id, LocalDateTime updated) {
+    Product product = new Product();
+    product.setId(id);
+    product.setUpdated(updated);
+    return product;
+  }
+}
@@ -0,0 +1,189 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+class ConnectionPoolMonitorTest {
+
+  private final HikariDataSource dataSource = mock(HikariDataSource.class);
+  private final HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+  private final HikariConfigMXBean config = mock(HikariConfigMXBean.class);
+  private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Timer acquire = Timer.builder("hikaricp.connections.acquire").tag("pool", "ecommercepro")
+      .register(meterRegistry);
+  private final Timer usage = Timer.builder("hikaricp.connections.usage").tag("pool", "ecommercepro")
+      .publishPercentiles(0.5).register(meterRegistry);
+  private ConnectionPoolMonitor monitor;
+
+  @BeforeEach
+  void setup() {
+    when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+    when(dataSource.getHikariConfigMXBean()).thenReturn(config);
+    when(dataSource.getPoolName()).thenReturn("ecommercepro");
+    when(config.getMaximumPoolSize()).thenReturn(10);
+    monitor = new ConnectionPoolMonitor(dataSource, meterRegistry, eventPublisher, true, 5, 30,
+        Duration.ofMillis(5), 2.0, 0.5, 1);
+  }
+
+  @Test
+  void givenRequestsWaitingForConnections_whenSample_thenGrowBySquareRoot() {
+    // arrange
+    when(pool.getActiveConnections()).thenReturn(10);
+    when(pool.getThreadsAwaitingConnection()).thenReturn(3);
+    acquire.record(Duration.ofMillis(20));
+    usage.record(Duration.ofMillis(10));
+
+    // act
+    monitor.sample();
+
+    // assert
+    verify(config).setMaximumPoolSize(14);
+    assertFalse(monitor.isSaturated());
+    assertEquals(1.0, meterRegistry.get("ecommercepro.connection-pool.resizes").tag("direction", "grow").counter()
+        .count());
+  }
+
+  @Test
+  void givenSlowDatabaseAndWaitingRequests_whenSample_thenKeepSizeAndRefuseTraffic() {
+    // arrange: a first sample sets the usual usage time
+    when(pool.getActiveConnections()).thenReturn(6);
+    usage.record(Duration.ofMillis(10));
+    monitor.sample();
+    when(pool.getActiveConnections()).thenReturn(10);
+    when(pool.getThreadsAwaitingConnection()).thenReturn(5);
+    recordUsage(Duration.ofMillis(50), 3);
+
+    // act
+    monitor.sample();
+
+    // assert
+    verify(config, never()).setMaximumPoolSize(anyInt());
+    assertTrue(monitor.isSaturated());
+    ArgumentCaptor<ApplicationEvent> event = ArgumentCaptor.forClass(ApplicationEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertEquals(ReadinessState.REFUSING_TRAFFIC, ((AvailabilityChangeEvent<?>) event.getValue()).getState());
+  }
+
+  @Test
+  void givenSlowDatabaseAndNoWaitingRequests_whenSample_thenShrink() {
+    // arrange
+    when(pool.getActiveConnections()).thenReturn(6);
+    usage.record(Duration.ofMillis(10));
+    monitor.sample();
+    recordUsage(Duration.ofMillis(50), 3);
+
+    // act
+    monitor.sample();
+
+    // assert
+    verify(config).setMaximumPoolSize(9);
+    assertFalse(monitor.isSaturated());
+  }
+
+  @Test
+  void givenFewLongBulkConnections_whenSample_thenDatabaseIsNotSlow() {
+    // arrange
+    when(pool.getActiveConnections()).thenReturn(6);
+    usage.record(Duration.ofMillis(10));
+    monitor.sample();
+    recordUsage(Duration.ofMillis(10), 5);
+    // an import holding its connection for a minute lifts the mean far above the usual time
+    usage.record(Duration.ofMinutes(1));
+
+    // act
+    monitor.sample();
+
+    // assert
+    verify(config, never()).setMaximumPoolSize(anyInt());
+  }
+
+  @Test
+  void givenPoolSaturatedForFewerThanReadinessSamples_whenSample_thenKeepAcceptingTraffic() {
+    // arrange
+    monitor = new ConnectionPoolMonitor(dataSource, meterRegistry, eventPublisher, false, 5, 30,
+        Duration.ofMillis(5), 2.0, 0.5, 3);
+    when(pool.getActiveConnections()).thenReturn(10, 10, 3, 10, 10, 10);
+    when(pool.getThreadsAwaitingConnection()).thenReturn(2, 2, 0, 2, 2, 2);
+
+    // act
+    for (int i = 0; i < 5; i++) {
+      monitor.sample();
+    }
+
+    // assert: saturated, recovered, then saturated twice, never three samples in a row
+    assertFalse(monitor.isSaturated());
+    verify(eventPublisher, never()).publishEvent(any(ApplicationEvent.class));
+
+    // act
+    monitor.sample();
+
+    // assert
+    assertTrue(monitor.isSaturated());
+    verify(eventPublisher).publishEvent(any(ApplicationEvent.class));
+  }
+
+  @Test
+  void givenSaturatedPoolThatRecovers_whenSample_thenAcceptTrafficAgain() {
+    // arrange
+    monitor = new ConnectionPoolMonitor(dataSource, meterRegistry, eventPublisher, false, 5, 30,
+        Duration.ofMillis(5), 2.0, 0.5, 1);
+    when(pool.getActiveConnections()).thenReturn(10);
+    when(pool.getThreadsAwaitingConnection()).thenReturn(2);
+    monitor.sample();
+    when(pool.getActiveConnections()).thenReturn(3);
+    when(pool.getThreadsAwaitingConnection()).thenReturn(0);
+
+    // act
+    monitor.sample();
+
+    // assert
+    assertFalse(monitor.isSaturated());
+    ArgumentCaptor<ApplicationEvent> events = ArgumentCaptor.forClass(ApplicationEvent.class);
+    verify(eventPublisher, times(2)).publishEvent(events.capture());
+    assertEquals(ReadinessState.ACCEPTING_TRAFFIC,
+        ((AvailabilityChangeEvent<?>) events.getAllValues().get(1)).getState());
+    verify(config, never()).setMaximumPoolSize(anyInt());
+  }
+
+  @Test
+  void givenPoolNotStarted_whenSample_thenDoNothing() {
+    // arrange
+    when(dataSource.getHikariPoolMXBean()).thenReturn(null);
+
+    // act
+    monitor.sample();
+
+    // assert
+    verify(config, never()).setMaximumPoolSize(anyInt());
+    verify(eventPublisher, never()).publishEvent(any(ApplicationEvent.class));
+  }
+
+  private void recordUsage(Duration duration, int times) {
+    for (int i = 0; i < times; i++) {
+      usage.record(duration);
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splawrence.ecommercepro.exception.IdempotencyConflictException;
+import com.splawrence.ecommercepro.exception.IdempotencyKeyReusedException;
+import com.splawrence.ecommercepro.model.IdempotencyRecord;
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderDetail;
+import com.splawrence.ecommercepro.repository.IdempotencyRecordRepository;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+  @Mock
+  private IdempotencyRecordRepository idempotencyRecordRepository;
+
+  private IdempotencyService service(boolean durable, Duration waitTimeout) {
+    return new IdempotencyService(idempotencyRecordRepository, new ObjectMapper().findAndRegisterModules(),
+        100, Duration.ofMinutes(1), waitTimeout, Duration.ofMinutes(1), durable);
+  }
+
+  @Test
+  void givenSameKey_whenExecuteTwice_thenRunOnce() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(false, Duration.ofSeconds(1));
+    AtomicInteger executions = new AtomicInteger();
+
+    // act
+    Integer first = idempotencyService.execute("orders", "k", "body", Integer.class, executions::incrementAndGet);
+    Integer second = idempotencyService.execute("orders", "k", "body", Integer.class, executions::incrementAndGet);
+    Integer otherScope = idempotencyService.execute("products", "k", "body", Integer.class, executions::incrementAndGet);
+
+    // assert
+    assertEquals(1, first);
+    assertEquals(1, second);
+    assertEquals(2, otherScope);
+  }
+
+  @Test
+  void givenConcurrentDuplicate_whenExecute_thenShareInFlightResult() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(false, Duration.ofSeconds(5));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Object response = new Object();
+    CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> {
+      try {
+        return idempotencyService.execute("orders", "k", "body", Object.class, () -> {
+          started.countDown();
+          awaitQuietly(release);
+          return response;
+        });
+      } catch (BadRequestException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    started.await(5, TimeUnit.SECONDS);
+
+    // act
+    CompletableFuture<Object> duplicate = CompletableFuture.supplyAsync(() -> {
+      try {
+        return idempotencyService.execute("orders", "k", "body", Object.class, Object::new);
+      } catch (BadRequestException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    release.countDown();
+
+    // assert
+    assertSame(response, first.get(5, TimeUnit.SECONDS));
+    assertSame(response, duplicate.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void givenSlowInFlightRequest_whenDuplicateTimesOut_thenThrowConflict() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(false, Duration.ofMillis(10));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture.runAsync(() -> {
+      try {
+        idempotencyService.execute("orders", "k", "body", Object.class, () -> {
+          started.countDown();
+          awaitQuietly(release);
+          return new Object();
+        });
+      } catch (BadRequestException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    started.await(5, TimeUnit.SECONDS);
+
+    // act & assert
+    assertThrows(IdempotencyConflictException.class,
+        () -> idempotencyService.execute("orders", "k", "body", Object.class, Object::new));
+    release.countDown();
+  }
+
+  @Test
+  void givenFailedExecution_whenRetried_thenRunAgain() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(false, Duration.ofSeconds(1));
+
+    // act
+    assertThrows(IllegalStateException.class, () -> idempotencyService.execute("orders", "k", "body", Integer.class,
+        () -> {
+          throw new IllegalStateException("database down");
+        }));
+    Integer retried = idempotencyService.execute("orders", "k", "body", Integer.class, () -> 7);
+
+    // assert
+    assertEquals(7, retried);
+  }
+
+  @Test
+  void givenDurableRecord_whenExecute_thenReplayWithoutRunning() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(true, Duration.ofSeconds(1));
+    when(idempotencyRecordRepository.claim(eq("orders:k"), any(), any(), eq(Order.class.getName()))).thenReturn(0);
+    when(idempotencyRecordRepository.findById("orders:k")).thenReturn(Optional.of(
+        new IdempotencyRecord("orders:k", "{\"id\":5,\"status\":\"New\"}", LocalDateTime.now(),
+            Order.class.getName(), null)));
+
+    // act
+    Order order = idempotencyService.execute("orders", "k", "body", Order.class, () -> {
+      throw new AssertionError("should not run");
+    });
+
+    // assert
+    assertEquals(5L, order.getId());
+  }
+
+  @Test
+  void givenDurableStore_whenExecute_thenClaimKeyAndSaveResponse() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(true, Duration.ofSeconds(1));
+    when(idempotencyRecordRepository.claim(eq("orders:k"), any(), any(), eq(Order.class.getName()))).thenReturn(1);
+
+    // act
+    idempotencyService.execute("orders", "k", "body", Order.class, Order::new);
+
+    // assert
+    verify(idempotencyRecordRepository).complete(eq("orders:k"), any());
+    verify(idempotencyRecordRepository, never()).release(any());
+  }
+
+  @Test
+  void givenKeyClaimedOnAnotherInstance_whenExecute_thenWaitForItsResponse() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(true, Duration.ofSeconds(5));
+    String hash = hashOf("body");
+    when(idempotencyRecordRepository.claim(eq("orders:k"), any(), any(), eq(Order.class.getName()))).thenReturn(0);
+    when(idempotencyRecordRepository.findById("orders:k")).thenReturn(
+        Optional.of(new IdempotencyRecord("orders:k", null, LocalDateTime.now(), Order.class.getName(), hash)),
+        Optional.of(new IdempotencyRecord("orders:k", "{\"id\":5,\"status\":\"New\"}", LocalDateTime.now(),
+            Order.class.getName(), hash)));
+
+    // act
+    Order order = idempotencyService.execute("orders", "k", "body", Order.class, () -> {
+      throw new AssertionError("should not run");
+    });
+
+    // assert
+    assertEquals(5L, order.getId());
+  }
+
+  @Test
+  void givenKeyStillClaimedAfterWaitTimeout_whenExecute_thenThrowConflict() {
+    // arrange
+    IdempotencyService idempotencyService = service(true, Duration.ofMillis(10));
+    when(idempotencyRecordRepository.claim(eq("orders:k"), any(), any(), eq(Order.class.getName()))).thenReturn(0);
+    when(idempotencyRecordRepository.findById("orders:k")).thenReturn(Optional.of(
+        new IdempotencyRecord("orders:k", null, LocalDateTime.now(), Order.class.getName(), hashOf("body"))));
+
+    // act & assert
+    assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("orders", "k", "body",
+        Order.class, Order::new));
+  }
+
+  @Test
+  void givenAbandonedClaim_whenExecute_thenTakeItOverAndRun() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(true, Duration.ofSeconds(1));
+    LocalDateTime claimed = LocalDateTime.now().minusMinutes(5);
+    when(idempotencyRecordRepository.claim(eq("orders:k"), any(), any(), eq(Order.class.getName()))).thenReturn(0);
+    when(idempotencyRecordRepository.findById("orders:k")).thenReturn(Optional.of(
+        new IdempotencyRecord("orders:k", null, claimed, Order.class.getName(), hashOf("body"))));
+    when(idempotencyRecordRepository.reclaim(eq("orders:k"), any(), eq(claimed))).thenReturn(1);
+    AtomicInteger executions = new AtomicInteger();
+
+    // act
+    idempotencyService.execute("orders", "k", "body", Order.class, () -> {
+      executions.incrementAndGet();
+      return new Order();
+    });
+
+    // assert
+    assertEquals(1, executions.get());
+    verify(idempotencyRecordRepository).complete(eq("orders:k"), any());
+  }
+
+  @Test
+  void givenDurableClaimAndFailedExecution_whenExecute_thenReleaseClaim() {
+    // arrange
+    IdempotencyService idempotencyService = service(true, Duration.ofSeconds(1));
+    when(idempotencyRecordRepository.claim(eq("orders:k"), any(), any(), eq(Order.class.getName()))).thenReturn(1);
+
+    // act
+    assertThrows(IllegalStateException.class, () -> idempotencyService.execute("orders", "k", "body", Order.class,
+        () -> {
+          throw new IllegalStateException("database down");
+        }));
+
+    // assert
+    verify(idempotencyRecordRepository).release("orders:k");
+  }
+
+  @Test
+  void givenKeyReusedWithOtherBody_whenExecute_thenThrowReused() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(false, Duration.ofSeconds(1));
+    idempotencyService.execute("orders", "k", "body", Order.class, Order::new);
+
+    // act & assert
+    assertThrows(IdempotencyKeyReusedException.class,
+        () -> idempotencyService.execute("orders", "k", "other body", Order.class, Order::new));
+  }
+
+  @Test
+  void givenDurableRecordForOtherBody_whenExecute_thenThrowReused() {
+    // arrange
+    IdempotencyService idempotencyService = service(true, Duration.ofSeconds(1));
+    when(idempotencyRecordRepository.claim(eq("orders:k"), any(), any(), eq(Order.class.getName()))).thenReturn(0);
+    when(idempotencyRecordRepository.findById("orders:k")).thenReturn(Optional.of(
+        new IdempotencyRecord("orders:k", "{\"id\":5,\"status\":\"New\"}", LocalDateTime.now(),
+            Order.class.getName(), hashOf("other body"))));
+
+    // act & assert
+    assertThrows(IdempotencyKeyReusedException.class,
+        () -> idempotencyService.execute("orders", "k", "body", Order.class, Order::new));
+  }
+
+  @Test
+  void givenKeyReusedWithOtherResponseType_whenExecute_thenThrowReused() throws Exception {
+    // arrange
+    IdempotencyService idempotencyService = service(false, Duration.ofSeconds(1));
+    idempotencyService.execute("orders", "k", "body", Order.class, Order::new);
+
+    // act & assert
+    assertThrows(IdempotencyKeyReusedException.class,
+        () -> idempotencyService.execute("orders", "k", "body", OrderDetail.class, OrderDetail::new));
+  }
+
+  @Test
+  void givenDurableRecordOfOtherResponseType_whenExecute_thenThrowReused() {
+    // arrange
+    IdempotencyService idempotencyService = service(true, Duration.ofSeconds(1));
+    when(idempotencyRecordRepository.claim(eq("orders:k"), any(), any(), eq(OrderDetail.class.getName())))
+        .thenReturn(0);
+    when(idempotencyRecordRepository.findById("orders:k")).thenReturn(Optional.of(
+        new IdempotencyRecord("orders:k", "{\"id\":5,\"status\":\"New\"}", LocalDateTime.now(),
+            Order.class.getName(), null)));
+
+    // act & assert
+    assertThrows(IdempotencyKeyReusedException.class,
+        () -> idempotencyService.execute("orders", "k", "body", OrderDetail.class, OrderDetail::new));
+  }
+
+  @Test
+  void givenBlankKey_whenExecute_thenThrowBadRequest() {
+    IdempotencyService idempotencyService = service(false, Duration.ofSeconds(1));
+
+    assertThrows(BadRequestException.class,
+        () -> idempotencyService.execute("orders", " ", "body", Object.class, Object::new));
+  }
+
+  private static String hashOf(String body) throws Exception {
+    byte[] json = new ObjectMapper().writeValueAsBytes(body);
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.exception.InsufficientStockException;
+import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.ProductRepository;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryServiceTest {
+
+  @Mock
+  private ProductRepository productRepository;
+
+  @InjectMocks
+  private InventoryService inventoryService;
+
+  @Test
+  void givenEnoughStock_whenReserve_thenOnlyRunConditionalUpdate() {
+    // arrange
+    when(productRepository.reserveStock(1L, 3)).thenReturn(1);
+
+    // act
+    inventoryService.reserve(1L, 3);
+
+    // assert
+    verify(productRepository, never()).findById(1L);
+  }
+
+  @Test
+  void givenTooLittleStock_whenReserve_thenThrowInsufficientStock() {
+    // arrange
+    when(productRepository.reserveStock(1L, 3)).thenReturn(0);
+    when(productRepository.findById(1L)).thenReturn(Optional.of(product(2)));
+
+    // act & assert
+    InsufficientStockException exception = assertThrows(InsufficientStockException.class,
+        () -> inventoryService.reserve(1L, 3));
+    assertEquals("Only 2 in stock for Product Id: 1", exception.getMessage());
+  }
+
+  @Test
+  void givenUntrackedStock_whenReserve_thenAllow() {
+    // arrange
+    when(productRepository.reserveStock(1L, 3)).thenReturn(0);
+    when(productRepository.findById(1L)).thenReturn(Optional.of(product(null)));
+
+    // act & assert
+    assertDoesNotThrow(() -> inventoryService.reserve(1L, 3));
+  }
+
+  @Test
+  void givenMissingProductOrBadQuantity_whenReserve_thenThrow() {
+    when(productRepository.reserveStock(1L, 3)).thenReturn(0);
+    when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+    assertThrows(ResourceNotFoundException.class, () -> inventoryService.reserve(1L, 3));
+    assertThrows(IllegalArgumentException.class, () -> inventoryService.reserve(1L, 0));
+  }
+
+  private static Product product(Integer stock) {
+    Product product = new Product();
+    product.setId(1L);
+    product.setStock(stock);
+    return product;
+  }
+}
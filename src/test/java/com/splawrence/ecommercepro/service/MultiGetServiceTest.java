@@ -0,0 +1,52 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.splawrence.ecommercepro.model.MultiGetResult;
+import com.splawrence.ecommercepro.model.Order;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+class MultiGetServiceTest {
+
+  private final MultiGetService multiGetService = new MultiGetService(3);
+
+  @Test
+  void givenDuplicateIds_whenFindAll_thenQueryEachIdOnce() throws Exception {
+    // arrange
+    List<Long> queried = new ArrayList<>();
+
+    // act
+    MultiGetResult<Order> result = multiGetService.findAll(List.of(2L, 1L, 2L), ids -> {
+      ids.forEach(queried::add);
+      return List.of(order(1L), order(2L));
+    });
+
+    // assert
+    assertEquals(List.of(2L, 1L), queried);
+    assertEquals(2L, result.getFound().get(0).getId());
+    assertEquals(1L, result.getFound().get(1).getId());
+    assertEquals(List.of(), result.getMissing());
+  }
+
+  @Test
+  void givenTooManyIds_whenFindAll_thenThrowBadRequest() {
+    assertThrows(BadRequestException.class,
+        () -> multiGetService.findAll(List.of(1L, 2L, 3L, 4L), ids -> List.<Order>of()));
+  }
+
+  @Test
+  void givenNoIds_whenFindAll_thenThrowBadRequest() {
+    assertThrows(BadRequestException.class,
+        () -> multiGetService.findAll(List.of(), ids -> List.<Order>of()));
+  }
+
+  private static Order order(Long id) {
+    Order order = new Order();
+    order.setId(id);
+    return order;
+  }
+}
@@ -0,0 +1,104 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.splawrence.ecommercepro.model.Product;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class OffHeapProductStoreTest {
+
+  private static final LocalDateTime T1 = LocalDateTime.of(2024, 3, 4, 4, 40, 16, 123456789);
+  private static final LocalDateTime T2 = T1.plusSeconds(1);
+
+  private final OffHeapProductStore store = new OffHeapProductStore();
+
+  @Test
+  void givenProduct_whenPutAndGet_thenDecodeWithMillisecondTimestamps() {
+    // arrange
+    Product product = product(1L, "Bolsa de café", "75.00", T1);
+    product.setStock(3);
+
+    // act
+    store.put(product);
+
+    // assert
+    Product stored = store.get(1L).orElseThrow();
+    assertEquals("Bolsa de café", stored.getDescription());
+    assertEquals(new BigDecimal("75.00"), stored.getPrice());
+    assertEquals(3, stored.getStock());
+    assertEquals(LocalDateTime.of(2024, 3, 4, 4, 40, 16, 123000000), stored.getUpdated());
+    assertEquals(Optional.empty(), store.get(2L));
+  }
+
+  @Test
+  void givenStoredProduct_whenPutOlderThenNewer_thenKeepNewest() {
+    // arrange
+    store.put(product(1L, "Current", "1.00", T2));
+
+    // act
+    store.put(product(1L, "Older", "1.00", T1));
+    String afterOlder = store.get(1L).orElseThrow().getDescription();
+    store.put(product(1L, "Newer", "2.00", T2.plusSeconds(1)));
+
+    // assert
+    assertEquals("Current", afterOlder);
+    assertEquals("Newer", store.get(1L).orElseThrow().getDescription());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void givenPriceWithMoreThanTwoDecimals_whenPut_thenNotStored() {
+    // act
+    store.put(product(1L, "Fractional", "1.005", T1));
+
+    // assert
+    assertEquals(Optional.empty(), store.get(1L));
+  }
+
+  @Test
+  void givenManyProducts_whenRemoveSomeAndRewrite_thenLookupsAndIterationStayConsistent() {
+    // arrange: enough ids to grow the table and fill more than one record buffer
+    int count = 100_000;
+    for (long id = 1; id <= count; id++) {
+      store.put(product(id, "Product " + id, "9.99", T1));
+    }
+
+    // act: remove every third product and rewrite the rest
+    for (long id = 3; id <= count; id += 3) {
+      store.remove(id);
+    }
+    for (int round = 0; round < 3; round++) {
+      for (long id = 1; id <= count; id++) {
+        if (id % 3 != 0) {
+          store.put(product(id, "Product " + id + " v" + round, "9.99", T2.plusSeconds(round)));
+        }
+      }
+    }
+    Set<Long> visited = new HashSet<>();
+    store.forEach(product -> visited.add(product.getId()));
+
+    // assert
+    int expected = count - count / 3;
+    assertEquals(expected, store.size());
+    assertEquals(expected, visited.size());
+    assertEquals(Optional.empty(), store.get(3L));
+    assertEquals("Product 99998 v2", store.get(99_998L).orElseThrow().getDescription());
+    assertTrue(store.offHeapBytes() > 0);
+  }
+
+  private static Product product(Long id, String description, String price, LocalDateTime updated) {
+    Product product = new Product();
+    product.setId(id);
+    product.setDescription(description);
+    product.setPrice(new BigDecimal(price));
+    product.setCreated(T1);
+    product.setUpdated(updated);
+    return product;
+  }
+}
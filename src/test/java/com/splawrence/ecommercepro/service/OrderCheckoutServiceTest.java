@@ -0,0 +1,195 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.exception.InsufficientStockException;
+import com.splawrence.ecommercepro.exception.ResourceNotFoundException;
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderDetail;
+import com.splawrence.ecommercepro.model.OrderItem;
+import com.splawrence.ecommercepro.model.OrderWithItemsRequest;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.OrderItemRepository;
+import com.splawrence.ecommercepro.repository.OrderRepository;
+import com.splawrence.ecommercepro.repository.ProductRepository;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class OrderCheckoutServiceTest {
+
+  private final OrderRepository orderRepository = mock(OrderRepository.class);
+  private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+  private final ProductRepository productRepository = mock(ProductRepository.class);
+  private final InventoryService inventoryService = mock(InventoryService.class);
+  private final OrderStatusPublisher orderStatusPublisher = mock(OrderStatusPublisher.class);
+  private final TransactionTemplate transactionTemplate = new TransactionTemplate() {
+    @Override
+    public <T> T execute(TransactionCallback<T> action) {
+      return action.doInTransaction(null);
+    }
+  };
+  private final OrderCheckoutService checkoutService = new OrderCheckoutService(orderRepository,
+      orderItemRepository, productRepository, inventoryService, transactionTemplate, orderStatusPublisher, 2);
+
+  @Test
+  void givenLines_whenCreate_thenReserveInIdOrderAndSaveWithTotals() {
+    // arrange
+    OrderWithItemsRequest request = new OrderWithItemsRequest("New",
+        List.of(new OrderWithItemsRequest.Line(9L, 2), new OrderWithItemsRequest.Line(4L, 1)));
+    when(productRepository.findAllById(Set.of(4L, 9L)))
+        .thenReturn(List.of(product(4L, "10.00"), product(9L, "2.50")));
+    when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+      Order order = invocation.getArgument(0);
+      order.setId(1L);
+      return order;
+    });
+    when(orderItemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    OrderDetail detail = checkoutService.create(request);
+
+    // assert
+    InOrder reservations = inOrder(inventoryService);
+    reservations.verify(inventoryService).reserve(4L, 1);
+    reservations.verify(inventoryService).reserve(9L, 2);
+    assertEquals(1L, detail.getOrder().getId());
+    assertEquals(2, detail.getItems().size());
+    assertEquals(9L, detail.getItems().get(0).getProduct().getId());
+    assertEquals(new BigDecimal("2.50"), detail.getItems().get(0).getUnitPrice());
+    assertEquals(3, detail.getTotalQuantity());
+    assertEquals(new BigDecimal("15.00"), detail.getTotal());
+    verify(orderStatusPublisher).publish(any());
+  }
+
+  @Test
+  void givenProductShortOfStock_whenCreate_thenSaveNothing() {
+    // arrange
+    OrderWithItemsRequest request = new OrderWithItemsRequest("New", List.of(new OrderWithItemsRequest.Line(4L, 5)));
+    doThrow(new InsufficientStockException("Only 1 in stock for Product Id: 4"))
+        .when(inventoryService).reserve(anyLong(), anyInt());
+
+    // act & assert
+    assertThrows(InsufficientStockException.class, () -> checkoutService.create(request));
+    verify(orderRepository, never()).save(any());
+    verify(orderStatusPublisher, never()).publish(any());
+  }
+
+  @Test
+  void givenTooManyOrBadLines_whenValidate_thenThrowBadRequest() {
+    // act & assert
+    assertThrows(BadRequestException.class, () -> checkoutService.validate(new OrderWithItemsRequest("New",
+        List.of(new OrderWithItemsRequest.Line(1L, 1), new OrderWithItemsRequest.Line(2L, 1),
+            new OrderWithItemsRequest.Line(3L, 1)))));
+    assertThrows(BadRequestException.class, () -> checkoutService.validate(new OrderWithItemsRequest("New",
+        List.of(new OrderWithItemsRequest.Line(1L, 0)))));
+    assertThrows(BadRequestException.class, () -> checkoutService.validate(new OrderWithItemsRequest(null,
+        List.of(new OrderWithItemsRequest.Line(1L, 1)))));
+  }
+
+  @Test
+  void givenLargerQuantity_whenChangeQuantity_thenReserveDifferenceAndKeepAssociations() {
+    // arrange
+    OrderItem item = item(3);
+    when(orderItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(item));
+    when(orderItemRepository.save(any(OrderItem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    OrderItem saved = checkoutService.changeQuantity(7L, 5);
+
+    // assert
+    verify(inventoryService).reserve(4L, 2);
+    verify(inventoryService, never()).release(anyLong(), anyInt());
+    assertEquals(5, saved.getQuantity());
+    assertSame(item.getOrder(), saved.getOrder());
+    assertSame(item.getProduct(), saved.getProduct());
+    assertEquals(new BigDecimal("10.00"), saved.getUnitPrice());
+  }
+
+  @Test
+  void givenSmallerQuantity_whenChangeQuantity_thenReleaseDifference() {
+    // arrange
+    when(orderItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(item(3)));
+    when(orderItemRepository.save(any(OrderItem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    checkoutService.changeQuantity(7L, 1);
+
+    // assert
+    verify(inventoryService).release(4L, 2);
+    verify(inventoryService, never()).reserve(anyLong(), anyInt());
+  }
+
+  @Test
+  void givenProductShortOfStock_whenChangeQuantity_thenSaveNothing() {
+    // arrange
+    when(orderItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(item(3)));
+    doThrow(new InsufficientStockException("Only 1 in stock for Product Id: 4"))
+        .when(inventoryService).reserve(4L, 7);
+
+    // act & assert
+    assertThrows(InsufficientStockException.class, () -> checkoutService.changeQuantity(7L, 10));
+    verify(orderItemRepository, never()).save(any());
+  }
+
+  @Test
+  void givenItem_whenDeleteItem_thenReleaseItsQuantity() {
+    // arrange
+    OrderItem item = item(3);
+    when(orderItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(item));
+
+    // act
+    checkoutService.deleteItem(7L);
+
+    // assert
+    InOrder steps = inOrder(inventoryService, orderItemRepository);
+    steps.verify(inventoryService).release(4L, 3);
+    steps.verify(orderItemRepository).delete(item);
+  }
+
+  @Test
+  void givenMissingItem_whenDeleteItem_thenThrowResourceNotFound() {
+    // arrange
+    when(orderItemRepository.findByIdForUpdate(7L)).thenReturn(Optional.empty());
+
+    // act & assert
+    assertThrows(ResourceNotFoundException.class, () -> checkoutService.deleteItem(7L));
+    verify(inventoryService, never()).release(anyLong(), anyInt());
+  }
+
+  private static OrderItem item(int quantity) {
+    Order order = new Order();
+    order.setId(1L);
+    OrderItem item = new OrderItem();
+    item.setId(7L);
+    item.setOrder(order);
+    item.snapshotProduct(product(4L, "10.00"));
+    item.setQuantity(quantity);
+    return item;
+  }
+
+  private static Product product(Long id, String price) {
+    Product product = new Product();
+    product.setId(id);
+    product.setPrice(new BigDecimal(price));
+    return product;
+  }
+}
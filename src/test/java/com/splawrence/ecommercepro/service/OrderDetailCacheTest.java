@@ -0,0 +1,128 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderDetail;
+import com.splawrence.ecommercepro.model.OrderItem;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.OrderItemRepository;
+import com.splawrence.ecommercepro.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class OrderDetailCacheTest {
+
+  private final OrderRepository orderRepository = mock(OrderRepository.class);
+  private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final OrderDetailCache cache = new OrderDetailCache(orderRepository, orderItemRepository, meterRegistry,
+      true, 1000, 2, Duration.ofSeconds(60));
+
+  @Test
+  void givenOrderWithItems_whenGetTwice_thenLoadOnceWithTotals() {
+    // arrange
+    Order order = order(1L);
+    when(orderItemRepository.findByOrderId(1L))
+        .thenReturn(List.of(item(order, "2.50", 2), item(order, "10.00", 1)));
+
+    // act
+    OrderDetail first = cache.get(1L).orElseThrow();
+    OrderDetail second = cache.get(1L).orElseThrow();
+
+    // assert
+    assertEquals(first, second);
+    assertEquals(3, first.getTotalQuantity());
+    assertEquals(new BigDecimal("15.00"), first.getTotal());
+    verify(orderItemRepository, times(1)).findByOrderId(1L);
+    verify(orderRepository, never()).findById(1L);
+    assertEquals(0.5, meterRegistry.get("ecommercepro.order-detail-cache.hit-ratio").gauge().value());
+  }
+
+  @Test
+  void givenCachedOrder_whenInvalidate_thenReloadOnNextGet() {
+    // arrange
+    Order order = order(1L);
+    when(orderItemRepository.findByOrderId(1L))
+        .thenReturn(List.of(item(order, "2.50", 1)))
+        .thenReturn(List.of(item(order, "2.50", 1), item(order, "2.50", 3)));
+    cache.get(1L);
+
+    // act
+    cache.invalidate(1L);
+    List<OrderItem> items = cache.getItems(1L);
+
+    // assert
+    assertEquals(2, items.size());
+    verify(orderItemRepository, times(2)).findByOrderId(1L);
+  }
+
+  @Test
+  void givenOrderWithMoreItemsThanLimit_whenGet_thenReturnButDoNotCache() {
+    // arrange
+    Order order = order(1L);
+    when(orderItemRepository.findByOrderId(1L))
+        .thenReturn(List.of(item(order, "1.00", 1), item(order, "1.00", 1), item(order, "1.00", 1)));
+
+    // act
+    cache.get(1L);
+    int items = cache.getItems(1L).size();
+
+    // assert
+    assertEquals(3, items);
+    verify(orderItemRepository, times(2)).findByOrderId(1L);
+  }
+
+  @Test
+  void givenOrderWithoutItemsOrMissingOrder_whenGet_thenFallBackToOrderLookup() {
+    // arrange
+    when(orderItemRepository.findByOrderId(1L)).thenReturn(List.of());
+    when(orderItemRepository.findByOrderId(2L)).thenReturn(List.of());
+    when(orderRepository.findById(1L)).thenReturn(Optional.of(order(1L)));
+    when(orderRepository.findById(2L)).thenReturn(Optional.empty());
+
+    // act & assert
+    assertEquals(BigDecimal.ZERO.setScale(2), cache.get(1L).orElseThrow().getTotal());
+    assertEquals(Optional.empty(), cache.get(2L));
+    assertEquals(List.of(), cache.getItems(2L));
+  }
+
+  @Test
+  void givenRepricedProduct_whenGet_thenTotalUsesPriceRecordedOnItem() {
+    // arrange
+    Order order = order(1L);
+    OrderItem item = item(order, "2.00", 2);
+    item.snapshotProduct(item.getProduct());
+    item.getProduct().setPrice(new BigDecimal("3.00"));
+    when(orderItemRepository.findByOrderId(1L)).thenReturn(List.of(item));
+
+    // act & assert
+    assertEquals(new BigDecimal("4.00"), cache.get(1L).orElseThrow().getTotal());
+  }
+
+  private static Order order(Long id) {
+    Order order = new Order();
+    order.setId(id);
+    order.setStatus("New");
+    return order;
+  }
+
+  private static OrderItem item(Order order, String price, int quantity) {
+    Product product = new Product();
+    product.setPrice(new BigDecimal(price));
+    OrderItem item = new OrderItem();
+    item.setOrder(order);
+    item.setProduct(product);
+    item.setQuantity(quantity);
+    return item;
+  }
+}
@@ -0,0 +1,140 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.model.Order;
+import com.splawrence.ecommercepro.model.OrderStatus;
+import com.splawrence.ecommercepro.model.OrderStatusEvent;
+import com.splawrence.ecommercepro.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class OrderFulfillmentPipelineTest {
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private OrderStatusPublisher orderStatusPublisher;
+
+  @Mock
+  private OrderDetailCache orderDetailCache;
+
+  @Mock
+  private OrderStatusWriteBehind orderStatusWriteBehind;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private OrderFulfillmentPipeline pipeline;
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    pipeline = new OrderFulfillmentPipeline(orderRepository, new TransactionTemplate(transactionManager),
+        orderStatusPublisher, orderDetailCache, orderStatusWriteBehind, meterRegistry, false, 1, 10, Duration.ofSeconds(30), Duration.ofSeconds(1));
+  }
+
+  @Test
+  void givenClaimedOrders_whenProcessBatch_thenAdvanceEachOneStateAndPublish() {
+    // arrange
+    Order newOrder = order(1L, "New");
+    Order shipped = order(2L, "Shipped");
+    when(orderRepository.claimBatch(eq(OrderStatus.pendingLabels()), any(), eq(10)))
+        .thenReturn(List.of(newOrder, shipped));
+    when(orderRepository.saveAll(List.of(newOrder, shipped))).thenReturn(List.of(newOrder, shipped));
+
+    // act
+    int advanced = pipeline.processBatch();
+
+    // assert
+    assertEquals(2, advanced);
+    assertEquals("Processing", newOrder.getStatus());
+    assertEquals("Completed", shipped.getStatus());
+    ArgumentCaptor<OrderStatusEvent> captor = ArgumentCaptor.forClass(OrderStatusEvent.class);
+    verify(orderStatusPublisher, times(2)).publish(captor.capture());
+    assertEquals("Processing", captor.getAllValues().get(0).getStatus());
+    verify(orderDetailCache).invalidateAll(List.of(1L, 2L));
+    assertEquals(1.0, meterRegistry.get("ecommercepro.fulfillment.transitions")
+        .tag("status", "Completed").counter().count());
+  }
+
+  @Test
+  void givenStepDelay_whenProcessBatch_thenOnlyClaimOrdersIdleLongerThanDelay() {
+    // arrange
+    LocalDateTime before = LocalDateTime.now().minusSeconds(30);
+    when(orderRepository.claimBatch(any(), any(), eq(10))).thenReturn(List.of());
+    when(orderRepository.saveAll(List.of())).thenReturn(List.of());
+
+    // act
+    int advanced = pipeline.processBatch();
+
+    // assert
+    assertEquals(0, advanced);
+    ArgumentCaptor<LocalDateTime> captor = ArgumentCaptor.forClass(LocalDateTime.class);
+    verify(orderRepository).claimBatch(any(), captor.capture(), eq(10));
+    assertTrue(!captor.getValue().isBefore(before) && captor.getValue().isBefore(LocalDateTime.now()));
+    verify(orderStatusPublisher, never()).publish(any());
+  }
+
+  @Test
+  void givenUnknownStatus_whenProcessBatch_thenLeaveOrderUnchanged() {
+    // arrange
+    Order onHold = order(3L, "On Hold");
+    when(orderRepository.claimBatch(any(), any(), eq(10))).thenReturn(List.of(onHold));
+    when(orderRepository.saveAll(List.of())).thenReturn(List.of());
+
+    // act
+    int advanced = pipeline.processBatch();
+
+    // assert
+    assertEquals(0, advanced);
+    assertEquals("On Hold", onHold.getStatus());
+    verify(orderStatusPublisher, never()).publish(any());
+  }
+
+  @Test
+  void givenBufferedStatus_whenProcessBatch_thenLeaveOrderForLaterBatch() {
+    // arrange
+    Order newOrder = order(4L, "New");
+    when(orderRepository.claimBatch(any(), any(), eq(10))).thenReturn(List.of(newOrder));
+    when(orderStatusWriteBehind.buffered(4L)).thenReturn(Optional.of(order(4L, "Cancelled")));
+    when(orderRepository.saveAll(List.of())).thenReturn(List.of());
+
+    // act
+    int advanced = pipeline.processBatch();
+
+    // assert
+    assertEquals(0, advanced);
+    assertEquals("New", newOrder.getStatus());
+    verify(orderStatusPublisher, never()).publish(any());
+  }
+
+  private static Order order(Long id, String status) {
+    Order order = new Order();
+    order.setId(id);
+    order.setStatus(status);
+    return order;
+  }
+}
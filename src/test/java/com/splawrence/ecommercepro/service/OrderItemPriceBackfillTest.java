@@ -0,0 +1,56 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class OrderItemPriceBackfillTest {
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final OrderItemPriceBackfill backfill = new OrderItemPriceBackfill(jdbcTemplate, meterRegistry, false, 3,
+      Duration.ZERO);
+
+  @Test
+  void givenUnpricedRows_whenRun_thenPriceEachChunkByIdRange() throws Exception {
+    // arrange: the second chunk is short, so it is the last
+    when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(0L), eq(3)))
+        .thenReturn(List.of(2L, 5L, 9L));
+    when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(9L), eq(3)))
+        .thenReturn(List.of(12L));
+    when(jdbcTemplate.update(anyString(), eq(0L), eq(9L))).thenReturn(3);
+    // an item without a product is left unpriced
+    when(jdbcTemplate.update(anyString(), eq(9L), eq(12L))).thenReturn(0);
+
+    // act
+    long priced = backfill.run();
+
+    // assert
+    assertEquals(3, priced);
+    assertEquals(3.0, meterRegistry.get("ecommercepro.order-item-price-backfill.rows").counter().count());
+  }
+
+  @Test
+  void givenNoUnpricedRows_whenRun_thenUpdateNothing() throws Exception {
+    // arrange
+    when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(0L), eq(3))).thenReturn(List.of());
+
+    // act
+    long priced = backfill.run();
+
+    // assert
+    assertEquals(0, priced);
+    verify(jdbcTemplate, never()).update(anyString(), anyLong(), anyLong());
+  }
+}
@@ -0,0 +1,248 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.splawrence.ecommercepro.model.OrderStatusEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class OrderStatusPublisherTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 4, 4, 42, 3);
+
+  private final List<Runnable> queuedSends = new ArrayList<>();
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private OrderStatusPublisher orderStatusPublisher;
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    Executor sender = queuedSends::add;
+    orderStatusPublisher = new OrderStatusPublisher(meterRegistry, sender, 2, Duration.ofMinutes(1),
+        Duration.ofSeconds(5), 4);
+  }
+
+  @Test
+  void givenSubscriber_whenPublish_thenDeliverOnlyWatchedOrders() {
+    // arrange
+    RecordingEmitter emitter = new RecordingEmitter();
+    orderStatusPublisher.subscribe(List.of(2L), List::of, emitter);
+
+    // act
+    orderStatusPublisher.publish(new OrderStatusEvent(2L, "Completed", NOW));
+    orderStatusPublisher.publish(new OrderStatusEvent(3L, "Completed", NOW));
+    runQueuedSends();
+
+    // assert
+    assertEquals(1, emitter.sent.size());
+  }
+
+  @Test
+  void givenCurrentStatus_whenSubscribe_thenSendItFirst() {
+    // arrange
+    RecordingEmitter emitter = new RecordingEmitter();
+
+    // act
+    orderStatusPublisher.subscribe(List.of(2L), () -> List.of(new OrderStatusEvent(2L, "Processing", NOW)), emitter);
+    runQueuedSends();
+
+    // assert
+    assertEquals(1, emitter.sent.size());
+  }
+
+  @Test
+  void givenEventsPublishedWhileReadingCurrentStatus_whenSubscribe_thenSendOnlyNewerOnesAfterIt() {
+    // arrange
+    RecordingEmitter emitter = new RecordingEmitter();
+
+    // act: one change lands before the read, which sees it, and one after
+    orderStatusPublisher.subscribe(List.of(2L), () -> {
+      orderStatusPublisher.publish(new OrderStatusEvent(2L, "Processing", NOW));
+      orderStatusPublisher.publish(new OrderStatusEvent(2L, "Shipped", NOW.plusSeconds(1)));
+      return List.of(new OrderStatusEvent(2L, "Processing", NOW));
+    }, emitter);
+    runQueuedSends();
+
+    // assert
+    assertEquals(2, emitter.sent.size());
+    assertTrue(render(emitter.sent.get(0)).contains("Processing"));
+    assertTrue(render(emitter.sent.get(1)).contains("Shipped"));
+  }
+
+  @Test
+  void givenSlowSubscriber_whenBufferFull_thenDropOldestEvents() {
+    // arrange
+    RecordingEmitter emitter = new RecordingEmitter();
+    orderStatusPublisher.subscribe(List.of(2L), List::of, emitter);
+
+    // act
+    for (int i = 0; i < 5; i++) {
+      orderStatusPublisher.publish(new OrderStatusEvent(2L, "Status " + i, NOW.plusSeconds(i)));
+    }
+    runQueuedSends();
+
+    // assert
+    assertEquals(2, emitter.sent.size());
+    assertEquals(3.0, meterRegistry.get("ecommercepro.order-status-stream.dropped").counter().count());
+  }
+
+  @Test
+  void givenBrokenConnection_whenPublish_thenRemoveSubscriber() {
+    // arrange
+    RecordingEmitter emitter = new RecordingEmitter();
+    emitter.broken = true;
+    orderStatusPublisher.subscribe(List.of(2L), List::of, emitter);
+
+    // act
+    orderStatusPublisher.publish(new OrderStatusEvent(2L, "Completed", NOW));
+    runQueuedSends();
+
+    // assert
+    assertEquals(0, orderStatusPublisher.getSubscriberCount());
+  }
+
+  @Test
+  void givenSubscribers_whenHeartbeat_thenSendToAll() {
+    // arrange
+    RecordingEmitter first = new RecordingEmitter();
+    RecordingEmitter second = new RecordingEmitter();
+    orderStatusPublisher.subscribe(List.of(2L), List::of, first);
+    orderStatusPublisher.subscribe(List.of(3L), List::of, second);
+
+    // act
+    orderStatusPublisher.heartbeat();
+    runQueuedSends();
+
+    // assert
+    assertEquals(1, first.sent.size());
+    assertEquals(1, second.sent.size());
+  }
+
+  @Test
+  void givenSeveralSubscribers_whenPublish_thenEachSendsItsOwnEvent() {
+    // arrange
+    RecordingEmitter first = new RecordingEmitter();
+    RecordingEmitter second = new RecordingEmitter();
+    orderStatusPublisher.subscribe(List.of(2L), List::of, first);
+    orderStatusPublisher.subscribe(List.of(2L), List::of, second);
+
+    // act
+    orderStatusPublisher.publish(new OrderStatusEvent(2L, "Completed", NOW));
+    runQueuedSends();
+
+    // assert: a builder is rendered into when sent, so it must not be shared
+    assertNotSame(first.sent.get(0), second.sent.get(0));
+    assertEquals(first.sent.get(0).build().size(), second.sent.get(0).build().size());
+  }
+
+  @Test
+  void givenUnexpectedSendFailure_whenPublish_thenRemoveSubscriber() {
+    // arrange
+    RecordingEmitter emitter = new RecordingEmitter();
+    emitter.failure = new IllegalArgumentException("No converter");
+    orderStatusPublisher.subscribe(List.of(2L), List::of, emitter);
+
+    // act
+    orderStatusPublisher.publish(new OrderStatusEvent(2L, "Completed", NOW));
+    runQueuedSends();
+
+    // assert
+    assertEquals(0, orderStatusPublisher.getSubscriberCount());
+  }
+
+  @Test
+  void givenStalledSubscriber_whenStallCheck_thenDropItAndReplaceItsThread() throws Exception {
+    // arrange
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    OrderStatusPublisher publisher = new OrderStatusPublisher(meterRegistry, pool, 2, Duration.ofMinutes(1),
+        Duration.ofMillis(10), 4);
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingEmitter stalled = new RecordingEmitter();
+    stalled.blockUntil = release;
+    RecordingEmitter healthy = new RecordingEmitter();
+    publisher.subscribe(List.of(2L), List::of, stalled);
+    publisher.subscribe(List.of(3L), List::of, healthy);
+    publisher.publish(new OrderStatusEvent(2L, "Completed", NOW));
+    Thread.sleep(50);
+
+    // act
+    publisher.dropStalledSubscribers();
+    publisher.publish(new OrderStatusEvent(3L, "Completed", NOW));
+
+    // assert
+    healthy.delivered.await(5, TimeUnit.SECONDS);
+    assertEquals(1, healthy.sent.size());
+    assertEquals(1, publisher.getSubscriberCount());
+    assertTrue(stalled.completed.await(5, TimeUnit.SECONDS));
+    assertEquals(2, pool.getMaximumPoolSize());
+    release.countDown();
+    shutdown(pool);
+    assertEquals(1, pool.getMaximumPoolSize());
+  }
+
+  private static void shutdown(ExecutorService pool) throws InterruptedException {
+    pool.shutdown();
+    pool.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  private static String render(SseEmitter.SseEventBuilder builder) {
+    return builder.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining());
+  }
+
+  private void runQueuedSends() {
+    while (!queuedSends.isEmpty()) {
+      queuedSends.remove(0).run();
+    }
+  }
+
+  private static class RecordingEmitter extends SseEmitter {
+    private final List<SseEventBuilder> sent = new ArrayList<>();
+    private final CountDownLatch delivered = new CountDownLatch(1);
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private boolean broken;
+    private RuntimeException failure;
+    private CountDownLatch blockUntil;
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      if (broken) {
+        throw new IOException("Broken pipe");
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      if (blockUntil != null) {
+        try {
+          blockUntil.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      sent.add(builder);
+      delivered.countDown();
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+      completed.countDown();
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.model.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class OrderStatusWriteBehindTest {
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final OrderDetailCache orderDetailCache = mock(OrderDetailCache.class);
+  private final OrderStatusWriteBehind writeBehind = new OrderStatusWriteBehind(jdbcTemplate, meterRegistry,
+      orderDetailCache, true, 3);
+
+  @BeforeEach
+  void setup() {
+    // every conditional update matches its row unless a test says otherwise
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+        .thenAnswer(invocation -> matched(invocation.<List<?>>getArgument(1).size()));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void givenSeveralUpdatesPerOrder_whenFlush_thenWriteOnlyTheLatestInIdOrder() {
+    // arrange
+    writeBehind.buffer(order(2L, "Processing"));
+    writeBehind.buffer(order(1L, "Processing"));
+    writeBehind.buffer(order(2L, "Shipped"));
+
+    // act
+    int written = writeBehind.flush();
+
+    // assert
+    ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(eq("UPDATE orders SET status = ?, updated = ? WHERE id = ? AND updated <= ?"),
+        batch.capture());
+    assertEquals(2, written);
+    assertEquals("Processing", batch.getValue().get(0)[0]);
+    assertEquals(1L, batch.getValue().get(0)[2]);
+    assertEquals("Shipped", batch.getValue().get(1)[0]);
+    assertEquals(2L, batch.getValue().get(1)[2]);
+    assertTrue(writeBehind.buffered(2L).isEmpty());
+    verify(orderDetailCache).invalidateAll(List.of(1L, 2L));
+    assertEquals(1.0, meterRegistry.get("ecommercepro.order-status-write-behind.coalesced").counter().count());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void givenBufferedUpdate_whenFlush_thenStampFlushTimeOnlyIfRowNotUpdatedSinceBuffered() {
+    // arrange
+    Order buffered = order(1L, "Shipped");
+    writeBehind.buffer(buffered);
+    LocalDateTime bufferedAt = buffered.getUpdated();
+
+    // act
+    writeBehind.flush();
+
+    // assert
+    ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+    Object[] args = batch.getValue().get(0);
+    assertEquals(Timestamp.valueOf(bufferedAt), args[3]);
+    assertFalse(((Timestamp) args[1]).before(Timestamp.valueOf(bufferedAt)));
+  }
+
+  @Test
+  void givenRowUpdatedSinceBuffered_whenFlush_thenDropUpdateAndCountIt() {
+    // arrange
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 0, 1 });
+    writeBehind.buffer(order(1L, "Shipped"));
+    writeBehind.buffer(order(2L, "Shipped"));
+
+    // act
+    int written = writeBehind.flush();
+
+    // assert
+    assertEquals(1, written);
+    assertTrue(writeBehind.buffered(1L).isEmpty());
+    assertEquals(1.0, meterRegistry.get("ecommercepro.order-status-write-behind.superseded").counter().count());
+    assertEquals(1.0, meterRegistry.get("ecommercepro.order-status-write-behind.flushed").counter().count());
+  }
+
+  @Test
+  void givenBufferedOrder_whenOverlay_thenReturnBufferedVersion() {
+    // arrange
+    Order stored = order(1L, "New");
+    Order buffered = order(1L, "Shipped");
+    Order other = order(2L, "New");
+    writeBehind.buffer(buffered);
+
+    // act & assert
+    assertSame(buffered, writeBehind.overlay(stored));
+    assertEquals(List.of(buffered, other), writeBehind.overlay(List.of(stored, other)));
+  }
+
+  @Test
+  void givenFailedFlush_whenFlush_thenKeepUpdatesBuffered() {
+    // arrange
+    when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+    writeBehind.buffer(order(1L, "Shipped"));
+
+    // act
+    int written = writeBehind.flush();
+
+    // assert
+    assertEquals(0, written);
+    assertEquals("Shipped", writeBehind.buffered(1L).orElseThrow().getStatus());
+  }
+
+  @Test
+  void givenFullBuffer_whenBuffer_thenFlushSynchronously() {
+    // act
+    writeBehind.buffer(order(1L, "Shipped"));
+    writeBehind.buffer(order(2L, "Shipped"));
+    writeBehind.buffer(order(3L, "Shipped"));
+
+    // assert
+    assertTrue(writeBehind.buffered(1L).isEmpty());
+    assertTrue(writeBehind.buffered(3L).isEmpty());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void givenBufferedOrders_whenFlushBeforeRead_thenWriteOnlyThatOrdersEntry() {
+    // arrange
+    writeBehind.buffer(order(1L, "Shipped"));
+    writeBehind.buffer(order(2L, "Shipped"));
+
+    // act
+    writeBehind.flushBeforeRead(3L);
+    writeBehind.flushBeforeRead(1L);
+
+    // assert
+    ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+    assertEquals(1, batch.getValue().size());
+    assertEquals(1L, batch.getValue().get(0)[2]);
+    assertTrue(writeBehind.buffered(1L).isEmpty());
+    assertTrue(writeBehind.buffered(2L).isPresent());
+  }
+
+  private static Order order(Long id, String status) {
+    Order order = new Order();
+    order.setId(id);
+    order.setStatus(status);
+    order.setCreated(LocalDateTime.of(2024, 3, 4, 4, 0));
+    order.setUpdated(LocalDateTime.now());
+    return order;
+  }
+
+  private static int[] matched(int rows) {
+    int[] counts = new int[rows];
+    Arrays.fill(counts, 1);
+    return counts;
+  }
+}
@@ -0,0 +1,227 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.model.ChangeCursor;
+import com.splawrence.ecommercepro.model.ChangeSet;
+import com.splawrence.ecommercepro.model.Product;
+import com.splawrence.ecommercepro.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProductCatalogCacheTest {
+
+  private static final LocalDateTime T1 = LocalDateTime.of(2024, 3, 4, 4, 40, 16, 123456000);
+  private static final LocalDateTime T2 = T1.plusSeconds(1);
+
+  private final ChangeFeedService changeFeedService = mock(ChangeFeedService.class);
+
+  @TempDir
+  private Path dir;
+
+  @Test
+  void givenProducts_whenWriteAndReadSnapshot_thenRoundTrip() throws Exception {
+    // arrange
+    Path path = dir.resolve("catalog.bin");
+    Product tracked = product(2L, "Bolsa de café", "0.99", T2);
+    tracked.setStock(7);
+    List<Product> products = List.of(product(1L, "Designer Product", "75.00", T1), tracked);
+
+    // act
+    CatalogSnapshotFile.write(path, new ChangeCursor(T2, 2L), products::forEach);
+    List<Product> read = new ArrayList<>();
+    ChangeCursor cursor = CatalogSnapshotFile.read(path, read::add);
+
+    // assert
+    assertEquals(new ChangeCursor(T2, 2L), cursor);
+    assertEquals(products, read);
+  }
+
+  @Test
+  void givenProductWithOversizedPrice_whenWriteSnapshot_thenSkipOnlyThatProduct() throws Exception {
+    // arrange
+    Path path = dir.resolve("catalog.bin");
+    Product oversized = product(2L, "Oversized", "1.00", T1);
+    oversized.setPrice(new BigDecimal("123456789012345678901234567890.00"));
+    List<Product> products = List.of(product(1L, "One", "1.00", T1), oversized, product(3L, "Three", "3.00", T1));
+
+    // act
+    CatalogSnapshotFile.write(path, new ChangeCursor(T1, 3L), products::forEach);
+    List<Product> read = new ArrayList<>();
+    CatalogSnapshotFile.read(path, read::add);
+
+    // assert
+    assertEquals(List.of(products.get(0), products.get(2)), read);
+  }
+
+  @Test
+  void givenSnapshot_whenWarmUp_thenServeSnapshotWithCatchUpApplied() throws Exception {
+    // arrange
+    Path path = dir.resolve("catalog.bin");
+    CatalogSnapshotFile.write(path, new ChangeCursor(T1, 3L), List.of(product(1L, "One", "1.00", T1),
+        product(2L, "Two", "2.00", T1), product(3L, "Three", "3.00", T1))::forEach);
+    Product repriced = product(2L, "Two", "2.50", T2);
+    when(changeFeedService.<Product>changesSince(eq(ChangeFeedService.PRODUCTS), anyString(), anyInt(), any(),
+        any()))
+        .thenReturn(new ChangeSet<>(List.of(repriced), List.of(3L), new ChangeCursor(T2, 2L).toString(), false));
+    ProductCatalogCache cache = cache(path);
+
+    // act
+    cache.warmUp();
+
+    // assert
+    // catch-up starts a little before the snapshot cursor to pick up late commits
+    verify(changeFeedService).changesSince(eq(ChangeFeedService.PRODUCTS),
+        eq(new ChangeCursor(T1.minusSeconds(5), 0L).toString()), anyInt(), any(), any());
+    assertEquals("One", cache.get(1L).orElseThrow().getDescription());
+    assertEquals(new BigDecimal("2.50"), cache.get(2L).orElseThrow().getPrice());
+    assertEquals(Optional.empty(), cache.get(3L));
+  }
+
+  @Test
+  void givenCorruptSnapshot_whenWarmUp_thenCatchUpFromStart() throws Exception {
+    // arrange
+    Path path = dir.resolve("catalog.bin");
+    Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+    when(changeFeedService.<Product>changesSince(eq(ChangeFeedService.PRODUCTS), anyString(), anyInt(), any(),
+        any()))
+        .thenReturn(new ChangeSet<>(List.of(product(1L, "One", "1.00", T1)), List.of(),
+            new ChangeCursor(T1, 1L).toString(), false));
+    ProductCatalogCache cache = cache(path);
+
+    // act
+    cache.warmUp();
+
+    // assert
+    verify(changeFeedService).changesSince(eq(ChangeFeedService.PRODUCTS), eq(ChangeCursor.START.toString()),
+        anyInt(), any(), any());
+    assertTrue(cache.get(1L).isPresent());
+  }
+
+  @Test
+  void givenCachedProduct_whenPutOlderOrStockTracked_thenKeepNewerAndSkipTracked() throws Exception {
+    // arrange
+    when(changeFeedService.<Product>changesSince(eq(ChangeFeedService.PRODUCTS), anyString(), anyInt(), any(),
+        any()))
+        .thenReturn(new ChangeSet<>(List.of(), List.of(), ChangeCursor.START.toString(), false));
+    ProductCatalogCache cache = cache(dir.resolve("catalog.bin"));
+    cache.warmUp();
+    cache.put(product(1L, "Newer", "1.00", T2));
+    Product tracked = product(2L, "Tracked", "2.00", T1);
+    tracked.setStock(5);
+
+    // act
+    cache.put(product(1L, "Older", "1.00", T1));
+    cache.put(tracked);
+
+    // assert
+    assertEquals("Newer", cache.get(1L).orElseThrow().getDescription());
+    assertEquals(Optional.empty(), cache.get(2L));
+  }
+
+  @Test
+  void givenSomeProductsCached_whenGetAll_thenLoadOnlyMisses() throws Exception {
+    // arrange
+    when(changeFeedService.<Product>changesSince(eq(ChangeFeedService.PRODUCTS), anyString(), anyInt(), any(),
+        any()))
+        .thenReturn(new ChangeSet<>(List.of(product(1L, "One", "1.00", T1)), List.of(),
+            new ChangeCursor(T1, 1L).toString(), false));
+    ProductCatalogCache cache = cache(dir.resolve("catalog.bin"));
+    cache.warmUp();
+    List<Iterable<Long>> loaded = new ArrayList<>();
+
+    // act
+    List<Product> found = cache.getAll(List.of(1L, 2L, 3L), ids -> {
+      loaded.add(ids);
+      return List.of(product(2L, "Two", "2.00", T1));
+    });
+
+    // assert
+    assertEquals(List.of(List.of(2L, 3L)), loaded);
+    assertEquals(2, found.size());
+    assertEquals("Two", cache.get(2L).orElseThrow().getDescription());
+  }
+
+  @Test
+  void givenCatalogChangedEvent_whenHandled_thenCatchUpOffTheCallingThread() throws Exception {
+    // arrange
+    List<String> threads = new CopyOnWriteArrayList<>();
+    CountDownLatch caughtUp = new CountDownLatch(2);
+    when(changeFeedService.<Product>changesSince(eq(ChangeFeedService.PRODUCTS), anyString(), anyInt(), any(),
+        any()))
+        .thenAnswer(invocation -> {
+          threads.add(Thread.currentThread().getName());
+          caughtUp.countDown();
+          return new ChangeSet<>(List.of(product(1L, "One", "1.00", T1)), List.of(),
+              new ChangeCursor(T1, 1L).toString(), false);
+        });
+    ProductCatalogCache cache = cache(dir.resolve("catalog.bin"));
+    cache.warmUp();
+
+    // act
+    cache.onCatalogChanged(new ProductCatalogChangedEvent("reprice", 1));
+
+    // assert
+    assertTrue(caughtUp.await(5, TimeUnit.SECONDS));
+    assertEquals("catalog-cache-refresh", threads.get(1));
+  }
+
+  @Test
+  void givenWarmCache_whenWriteSnapshot_thenNextInstanceLoadsIt() throws Exception {
+    // arrange
+    Path path = dir.resolve("catalog.bin");
+    when(changeFeedService.<Product>changesSince(eq(ChangeFeedService.PRODUCTS), anyString(), anyInt(), any(),
+        any()))
+        .thenReturn(new ChangeSet<>(List.of(product(1L, "One", "1.00", T1)), List.of(),
+            new ChangeCursor(T1, 1L).toString(), false));
+    ProductCatalogCache first = cache(path);
+    first.warmUp();
+
+    // act
+    first.writeSnapshot();
+    when(changeFeedService.<Product>changesSince(eq(ChangeFeedService.PRODUCTS), anyString(), anyInt(), any(),
+        any()))
+        .thenReturn(new ChangeSet<>(List.of(), List.of(), new ChangeCursor(T1, 1L).toString(), false));
+    ProductCatalogCache second = cache(path);
+    second.warmUp();
+
+    // assert
+    assertTrue(Files.exists(path));
+    assertEquals("One", second.get(1L).orElseThrow().getDescription());
+  }
+
+  private ProductCatalogCache cache(Path path) {
+    return new ProductCatalogCache(mock(ProductRepository.class), changeFeedService, new SimpleMeterRegistry(), true,
+        path, Duration.ofSeconds(5), "heap");
+  }
+
+  private static Product product(Long id, String description, String price, LocalDateTime updated) {
+    Product product = new Product();
+    product.setId(id);
+    product.setDescription(description);
+    product.setPrice(new BigDecimal(price));
+    product.setCreated(T1);
+    product.setUpdated(updated);
+    return product;
+  }
+}
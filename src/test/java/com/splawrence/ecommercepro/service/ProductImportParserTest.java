@@ -0,0 +1,102 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splawrence.ecommercepro.model.ProductImportFormat;
+import java.math.BigDecimal;
+import java.util.List;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+class ProductImportParserTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void givenCsvHeaderInAnyOrder_whenParse_thenMapColumnsByName() throws Exception {
+    // arrange
+    ProductImportParser parser = new ProductImportParser(ProductImportFormat.CSV, objectMapper);
+    parser.readHeader("price,description,id");
+
+    // act
+    ProductImportParser.Row row = parser.parse("12.50,\"Widget, \"\"large\"\"\",7");
+
+    // assert
+    assertEquals(7L, row.id());
+    assertEquals("Widget, \"large\"", row.description());
+    assertEquals(new BigDecimal("12.50"), row.price());
+  }
+
+  @Test
+  void givenCsvWithoutIdColumn_whenParse_thenIdIsNull() throws Exception {
+    // arrange
+    ProductImportParser parser = new ProductImportParser(ProductImportFormat.CSV, objectMapper);
+    parser.readHeader("description,price");
+
+    // act
+    ProductImportParser.Row row = parser.parse("Widget,3");
+
+    // assert
+    assertNull(row.id());
+  }
+
+  @Test
+  void givenHeaderWithoutPrice_whenReadHeader_thenThrowBadRequest() {
+    ProductImportParser parser = new ProductImportParser(ProductImportFormat.CSV, objectMapper);
+
+    assertThrows(BadRequestException.class, () -> parser.readHeader("id,description"));
+    assertThrows(BadRequestException.class, () -> parser.readHeader(null));
+  }
+
+  @Test
+  void givenNdjson_whenParse_thenReadFields() {
+    // arrange
+    ProductImportParser parser = new ProductImportParser(ProductImportFormat.NDJSON, objectMapper);
+
+    // act
+    ProductImportParser.Row row = parser.parse("{\"id\":null,\"description\":\"Widget\",\"price\":9.99}");
+
+    // assert
+    assertNull(row.id());
+    assertEquals("Widget", row.description());
+    assertEquals(new BigDecimal("9.99"), row.price());
+  }
+
+  @Test
+  void givenInvalidRows_whenParse_thenThrowWithReason() throws Exception {
+    ProductImportParser csv = new ProductImportParser(ProductImportFormat.CSV, objectMapper);
+    ProductImportParser ndjson = new ProductImportParser(ProductImportFormat.NDJSON, objectMapper);
+    csv.readHeader("description,price,extra");
+
+    assertEquals("Description is required", assertThrows(IllegalArgumentException.class,
+        () -> csv.parse(",5")).getMessage());
+    assertEquals("Invalid price: five", assertThrows(IllegalArgumentException.class,
+        () -> csv.parse("Widget,five")).getMessage());
+    assertEquals("Price must not be negative: -1", assertThrows(IllegalArgumentException.class,
+        () -> csv.parse("Widget,-1")).getMessage());
+    assertEquals("Price has more than 2 decimal places: 1.001", assertThrows(IllegalArgumentException.class,
+        () -> csv.parse("Widget,1.001")).getMessage());
+    assertEquals("Unterminated quoted field", assertThrows(IllegalArgumentException.class,
+        () -> csv.parse("\"Widget,1")).getMessage());
+    assertEquals("Expected a JSON object", assertThrows(IllegalArgumentException.class,
+        () -> ndjson.parse("[1]")).getMessage());
+    assertEquals("Id must be positive: 0", assertThrows(IllegalArgumentException.class,
+        () -> ndjson.parse("{\"id\":0,\"description\":\"Widget\",\"price\":1}")).getMessage());
+  }
+
+  @Test
+  void givenRow_whenAppendCopyLine_thenQuoteDescriptionAndLeaveMissingIdEmpty() {
+    // arrange
+    StringBuilder out = new StringBuilder();
+
+    // act
+    ProductImportParser.appendCopyLine(out, 3, new ProductImportParser.Row(null, "A \"b\"", new BigDecimal("1.5")));
+    ProductImportParser.appendCopyLine(out, 4, new ProductImportParser.Row(9L, "C", BigDecimal.TEN));
+
+    // assert
+    assertEquals(List.of("3,,\"A \"\"b\"\"\",1.5", "4,9,\"C\",10"), out.toString().lines().toList());
+  }
+}
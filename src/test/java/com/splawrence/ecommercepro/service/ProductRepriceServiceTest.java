@@ -0,0 +1,107 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.model.ProductRepriceRequest;
+import com.splawrence.ecommercepro.model.ProductRepriceResult;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ProductRepriceServiceTest {
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+  private final TransactionTemplate transactionTemplate = new TransactionTemplate() {
+    @Override
+    public <T> T execute(TransactionCallback<T> action) {
+      return action.doInTransaction(null);
+    }
+  };
+  private final ProductRepriceService productRepriceService = new ProductRepriceService(
+      jdbcTemplate, transactionTemplate, eventPublisher, 2, new BigDecimal("1000"));
+
+  @Test
+  void givenRuleWithFilters_whenReprice_thenRunOneUpdateAndPublishEvent() throws Exception {
+    // arrange
+    when(jdbcTemplate.update(any(String.class), any(Object[].class))).thenReturn(4);
+    ProductRepriceRequest.Rule rule = new ProductRepriceRequest.Rule(new BigDecimal("-10"), 5L, 9L, "50%_off");
+
+    // act
+    ProductRepriceResult result = productRepriceService.reprice(new ProductRepriceRequest(null, rule));
+
+    // assert
+    assertEquals(4, result.getUpdated());
+    verify(jdbcTemplate).update(
+        eq("UPDATE products SET price = round(price * (100 + ?) / 100, 2), updated = ?"
+            + " WHERE id >= ? AND id <= ? AND description ILIKE ? ESCAPE '\\'"),
+        eq(new BigDecimal("-10")), any(), eq(5L), eq(9L), eq("%50\\%\\_off%"));
+    verify(eventPublisher).publishEvent(new ProductCatalogChangedEvent("reprice", 4));
+  }
+
+  @Test
+  void givenPrices_whenReprice_thenUpdateInProductIdOrder() throws Exception {
+    // arrange
+    Connection connection = mock(Connection.class);
+    when(connection.prepareStatement(any(String.class))).thenReturn(mock(PreparedStatement.class));
+    Map<Long, BigDecimal> prices = new LinkedHashMap<>();
+    prices.put(9L, BigDecimal.TEN);
+    prices.put(3L, BigDecimal.ONE);
+
+    // act
+    productRepriceService.reprice(new ProductRepriceRequest(prices, null));
+
+    // assert
+    ArgumentCaptor<PreparedStatementCreator> statement = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+    verify(jdbcTemplate).query(statement.capture(), any(RowCallbackHandler.class));
+    statement.getValue().createPreparedStatement(connection);
+    verify(connection).createArrayOf("bigint", new Object[] {3L, 9L});
+    verify(connection).createArrayOf("numeric", new Object[] {BigDecimal.ONE, BigDecimal.TEN});
+  }
+
+  @Test
+  void givenBothOrNeither_whenReprice_thenThrowBadRequest() {
+    ProductRepriceRequest.Rule rule = new ProductRepriceRequest.Rule(BigDecimal.ONE, null, null, null);
+
+    assertThrows(BadRequestException.class,
+        () -> productRepriceService.reprice(new ProductRepriceRequest(Map.of(1L, BigDecimal.ONE), rule)));
+    assertThrows(BadRequestException.class,
+        () -> productRepriceService.reprice(new ProductRepriceRequest(null, null)));
+  }
+
+  @Test
+  void givenInvalidPricesOrRule_whenReprice_thenThrowBadRequest() {
+    assertThrows(BadRequestException.class, () -> productRepriceService.reprice(
+        new ProductRepriceRequest(Map.of(1L, new BigDecimal("-1")), null)));
+    assertThrows(BadRequestException.class, () -> productRepriceService.reprice(
+        new ProductRepriceRequest(Map.of(1L, new BigDecimal("1.001")), null)));
+    assertThrows(BadRequestException.class, () -> productRepriceService.reprice(
+        new ProductRepriceRequest(Map.of(1L, BigDecimal.ONE, 2L, BigDecimal.ONE, 3L, BigDecimal.ONE), null)));
+    assertThrows(BadRequestException.class, () -> productRepriceService.reprice(
+        new ProductRepriceRequest(null, new ProductRepriceRequest.Rule(new BigDecimal("-101"), null, null, null))));
+    assertThrows(BadRequestException.class, () -> productRepriceService.reprice(
+        new ProductRepriceRequest(null, new ProductRepriceRequest.Rule(BigDecimal.ONE, 9L, 5L, null))));
+    assertThrows(BadRequestException.class, () -> productRepriceService.reprice(
+        new ProductRepriceRequest(null, new ProductRepriceRequest.Rule(new BigDecimal("1e40"), null, null, null))));
+
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
+  }
+}
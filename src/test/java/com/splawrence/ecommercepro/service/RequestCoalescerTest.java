@@ -0,0 +1,107 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.splawrence.ecommercepro.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class RequestCoalescerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void givenConcurrentLookupsForSameKey_whenExecute_thenShareOneCall() throws Exception {
+    // arrange
+    RequestCoalescer requestCoalescer = new RequestCoalescer(meterRegistry, Duration.ofSeconds(5), 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+    Object row = new Object();
+    CompletableFuture<Object> leader = CompletableFuture.supplyAsync(
+        () -> requestCoalescer.execute("products", 1L, () -> {
+          calls.incrementAndGet();
+          started.countDown();
+          awaitQuietly(release);
+          return row;
+        }));
+    started.await(5, TimeUnit.SECONDS);
+
+    // act
+    CompletableFuture<Object> follower = CompletableFuture.supplyAsync(
+        () -> requestCoalescer.execute("products", 1L, () -> {
+          calls.incrementAndGet();
+          return new Object();
+        }));
+    waitForSharedCount(1.0);
+    release.countDown();
+
+    // assert
+    assertSame(row, leader.get(5, TimeUnit.SECONDS));
+    assertSame(row, follower.get(5, TimeUnit.SECONDS));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void givenSequentialLookups_whenExecute_thenCallEachTime() {
+    // arrange
+    RequestCoalescer requestCoalescer = new RequestCoalescer(meterRegistry, Duration.ofSeconds(1), 1);
+    AtomicInteger calls = new AtomicInteger();
+
+    // act
+    requestCoalescer.execute("orders", 1L, calls::incrementAndGet);
+    requestCoalescer.execute("orders", 1L, calls::incrementAndGet);
+
+    // assert
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void givenSlowLookup_whenFollowerTimesOut_thenThrowServiceOverloaded() throws Exception {
+    // arrange
+    RequestCoalescer requestCoalescer = new RequestCoalescer(meterRegistry, Duration.ofMillis(10), 3);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture.runAsync(() -> requestCoalescer.execute("orders", 1L, () -> {
+      started.countDown();
+      awaitQuietly(release);
+      return null;
+    }));
+    started.await(5, TimeUnit.SECONDS);
+
+    // act
+    ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class,
+        () -> requestCoalescer.execute("orders", 1L, Object::new));
+    release.countDown();
+
+    // assert
+    assertEquals(3, exception.getRetryAfterSeconds());
+  }
+
+  private void waitForSharedCount(double expected) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      if (meterRegistry.find("ecommercepro.coalescing.requests").tag("outcome", "shared").counter() != null
+          && meterRegistry.get("ecommercepro.coalescing.requests").tag("outcome", "shared").counter()
+              .count() >= expected) {
+        return;
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
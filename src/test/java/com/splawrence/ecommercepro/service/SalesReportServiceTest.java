@@ -0,0 +1,75 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import com.splawrence.ecommercepro.model.DailyRevenue;
+import com.splawrence.ecommercepro.model.ProductSales;
+import com.splawrence.ecommercepro.model.SalesMetric;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class SalesReportServiceTest {
+
+  private final SalesReportService salesReportService = new SalesReportService(
+      mock(JdbcTemplate.class), mock(PlatformTransactionManager.class), 10, 31, 1000);
+
+  @Test
+  void givenRows_whenTopProducts_thenRankByMetricAndBreakTiesById() {
+    // arrange
+    SalesReportService.ProductTotals totals = new SalesReportService.ProductTotals();
+    totals.add(1L, 5, 100);
+    totals.add(2L, 1, 999);
+    totals.add(3L, 2, 250);
+    totals.add(1L, 1, 100);
+
+    // act
+    List<ProductSales> byQuantity = totals.top(SalesMetric.QUANTITY, 2);
+    List<ProductSales> byRevenue = totals.top(SalesMetric.REVENUE, 3);
+
+    // assert
+    assertEquals(List.of(1L, 3L), byQuantity.stream().map(ProductSales::getProductId).toList());
+    assertEquals(6, byQuantity.get(0).getQuantity());
+    assertEquals(List.of(2L, 1L, 3L), byRevenue.stream().map(ProductSales::getProductId).toList());
+    assertEquals(new BigDecimal("9.99"), byRevenue.get(0).getRevenue());
+    assertEquals(new BigDecimal("6.00"), byRevenue.get(1).getRevenue());
+  }
+
+  @Test
+  void givenRows_whenDailyTotals_thenIncludeEmptyDays() {
+    // arrange
+    SalesReportService.DailyTotals totals = new SalesReportService.DailyTotals(3);
+    totals.add(0, 2, 150);
+    totals.add(2, 1, 1);
+
+    // act
+    List<DailyRevenue> days = totals.toList(LocalDate.of(2024, 2, 28));
+
+    // assert
+    assertEquals(List.of(
+        new DailyRevenue(LocalDate.of(2024, 2, 28), 2, new BigDecimal("3.00")),
+        new DailyRevenue(LocalDate.of(2024, 2, 29), 0, new BigDecimal("0.00")),
+        new DailyRevenue(LocalDate.of(2024, 3, 1), 1, new BigDecimal("0.01"))), days);
+  }
+
+  @Test
+  void givenBadLimitOrRange_whenReport_thenThrowBadRequest() {
+    LocalDate day = LocalDate.of(2024, 1, 1);
+
+    assertThrows(BadRequestException.class,
+        () -> salesReportService.topProducts(SalesMetric.REVENUE, 11, day, day, false));
+    assertThrows(BadRequestException.class,
+        () -> salesReportService.dailyRevenue(day, day.minusDays(1), false));
+    assertThrows(BadRequestException.class,
+        () -> salesReportService.dailyRevenue(day, day.plusDays(31), true));
+    assertThrows(BadRequestException.class, () -> SalesMetric.fromValue("profit"));
+    assertEquals(SalesMetric.QUANTITY, assertDoesNotThrow(() -> SalesMetric.fromValue("Quantity")));
+  }
+}
@@ -0,0 +1,93 @@
+package com.splawrence.ecommercepro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.splawrence.ecommercepro.model.CountMode;
+import com.splawrence.ecommercepro.model.TotalCount;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class TotalCountServiceTest {
+
+  private static final String COUNT_ORDERS = "SELECT count(*) FROM orders";
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final TotalCountService totalCountService = new TotalCountService(jdbcTemplate, meterRegistry, 1000,
+      Duration.ofMinutes(1), 100);
+
+  @Test
+  void givenSmallTable_whenCountAuto_thenCountExactly() {
+    // arrange
+    when(jdbcTemplate.queryForObject(contains("pg_class"), eq(Long.class), eq("orders"))).thenReturn(990L);
+    when(jdbcTemplate.queryForObject(COUNT_ORDERS, Long.class)).thenReturn(1002L);
+
+    // act
+    TotalCount count = totalCountService.count(ChangeFeedService.ORDERS, CountMode.AUTO);
+
+    // assert
+    assertEquals(new TotalCount(1002, CountMode.EXACT), count);
+  }
+
+  @Test
+  void givenLargeTable_whenCountAuto_thenEstimateWithoutCounting() {
+    // arrange
+    when(jdbcTemplate.queryForObject(contains("pg_class"), eq(Long.class), eq("orders"))).thenReturn(5_000_000L);
+
+    // act
+    TotalCount count = totalCountService.count(ChangeFeedService.ORDERS, CountMode.AUTO);
+
+    // assert
+    assertEquals(new TotalCount(5_000_000, CountMode.ESTIMATE), count);
+    verify(jdbcTemplate, never()).queryForObject(COUNT_ORDERS, Long.class);
+    assertEquals(1.0, meterRegistry.get("ecommercepro.total-count.counts").tag("mode", "estimate").counter().count());
+  }
+
+  @Test
+  void givenCachedMode_whenCountTwice_thenCountOnce() {
+    // arrange
+    when(jdbcTemplate.queryForObject(COUNT_ORDERS, Long.class)).thenReturn(42L);
+
+    // act
+    totalCountService.count(ChangeFeedService.ORDERS, CountMode.CACHED);
+    TotalCount count = totalCountService.count(ChangeFeedService.ORDERS, CountMode.CACHED);
+
+    // assert
+    assertEquals(new TotalCount(42, CountMode.CACHED), count);
+    verify(jdbcTemplate, times(1)).queryForObject(COUNT_ORDERS, Long.class);
+  }
+
+  @Test
+  void givenNeverAnalyzedTable_whenCountEstimate_thenFallBackToCachedCount() {
+    // arrange
+    when(jdbcTemplate.queryForObject(contains("pg_class"), eq(Long.class), eq("orders"))).thenReturn(-1L);
+    when(jdbcTemplate.queryForObject(COUNT_ORDERS, Long.class)).thenReturn(7L);
+
+    // act
+    TotalCount count = totalCountService.count(ChangeFeedService.ORDERS, CountMode.ESTIMATE);
+
+    // assert
+    assertEquals(new TotalCount(7, CountMode.CACHED), count);
+  }
+
+  @Test
+  void givenBadPageOrTable_whenPageOrCount_thenReject() {
+    assertThrows(BadRequestException.class, () -> totalCountService.page(-1, 10));
+    assertThrows(BadRequestException.class, () -> totalCountService.page(0, 101));
+    assertThrows(BadRequestException.class, () -> CountMode.fromValue("guess"));
+    assertThrows(IllegalArgumentException.class, () -> totalCountService.count("pg_authid", CountMode.EXACT));
+    verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Long.class));
+  }
+}